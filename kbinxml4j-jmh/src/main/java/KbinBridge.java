@@ -0,0 +1,154 @@
+import SimpleMappingModel.XrpcNode;
+import SimpleMappingModel.XrpcNodeConverter;
+import kbinxml4j.jmh.Kbin;
+import org.w3c.dom.Document;
+
+/**
+ * {@link Kbin} over the library classes, see there for why it exists.
+ */
+public class KbinBridge implements Kbin {
+    // ---------- KbinXml ----------
+
+    @Override
+    public Object fromBinary(byte[] kbin) {
+        return new KbinXml(kbin, false);
+    }
+
+    @Override
+    public byte[] toBinary(Object xml) {
+        return ((KbinXml) xml).toBinary();
+    }
+
+    @Override
+    public String toText(Object xml) {
+        return ((KbinXml) xml).toText();
+    }
+
+    @Override
+    public Object fromText(byte[] xml) {
+        return new KbinXml(xml, false);
+    }
+
+    @Override
+    public Document getDocument(Object xml) {
+        return ((KbinXml) xml).getDocument();
+    }
+
+    // ---------- Sixbit ----------
+
+    @Override
+    public byte[] packSixbit(String[] names) {
+        KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+        for (String name : names) {
+            Sixbit.packSixBit(name, buf);
+        }
+        return buf.toByteArray();
+    }
+
+    @Override
+    public int unpackSixbit(byte[] packed, int count, char[] dst) {
+        KBinXmlByteBuffer buf = KBinXmlByteBuffer.wrap(packed);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += Sixbit.unpackSixbit(buf, dst);
+        }
+        return total;
+    }
+
+    // ---------- KBinXmlByteBuffer ----------
+
+    @Override
+    public long readU8(byte[] data) {
+        KBinXmlByteBuffer buf = KBinXmlByteBuffer.wrap(data);
+        long sum = 0;
+        for (int i = data.length; i > 0; i--) {
+            sum += buf.getU8();
+        }
+        return sum;
+    }
+
+    @Override
+    public long readS16(byte[] data) {
+        KBinXmlByteBuffer buf = KBinXmlByteBuffer.wrap(data);
+        long sum = 0;
+        for (int i = data.length / 2; i > 0; i--) {
+            sum += buf.getS16();
+        }
+        return sum;
+    }
+
+    @Override
+    public long readS32(byte[] data) {
+        KBinXmlByteBuffer buf = KBinXmlByteBuffer.wrap(data);
+        long sum = 0;
+        for (int i = data.length / 4; i > 0; i--) {
+            sum += buf.getS32();
+        }
+        return sum;
+    }
+
+    @Override
+    public long readS64(byte[] data) {
+        KBinXmlByteBuffer buf = KBinXmlByteBuffer.wrap(data);
+        long sum = 0;
+        for (int i = data.length / 8; i > 0; i--) {
+            sum += buf.getS64();
+        }
+        return sum;
+    }
+
+    @Override
+    public int[] readS32Array(byte[] data) {
+        return KBinXmlByteBuffer.wrap(data).getS32Array(data.length / 4);
+    }
+
+    @Override
+    public int appendS32(int[] values) {
+        KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+        for (int value : values) {
+            buf.appendS32(value);
+        }
+        return buf.length();
+    }
+
+    @Override
+    public int appendS32Array(int[] values) {
+        KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+        buf.appendS32Array(values);
+        return buf.length();
+    }
+
+    // ---------- XrpcNodeConverter ----------
+
+    @Override
+    public Object xrpcFromXml(Document document) {
+        return XrpcNodeConverter.ConvertFromXml(document);
+    }
+
+    @Override
+    public Document xrpcToXml(Object node) {
+        try {
+            return XrpcNodeConverter.ToXml((XrpcNode) node);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Object xrpcFromXmlString(String xml) {
+        try {
+            return XrpcNodeConverter.ConvertFromXmlString(xml);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String xrpcToXmlString(Object node) {
+        try {
+            return XrpcNodeConverter.ToXmlString((XrpcNode) node);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package kbinxml4j.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code KBinXmlByteBuffer} accessors over the document's encoded bytes: one call per value, and the
+ * bulk array forms.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ByteBufferBenchmark {
+    @Benchmark
+    public long getU8(Corpus corpus) {
+        return corpus.kbin.readU8(corpus.words);
+    }
+
+    @Benchmark
+    public long getS16(Corpus corpus) {
+        return corpus.kbin.readS16(corpus.words);
+    }
+
+    @Benchmark
+    public long getS32(Corpus corpus) {
+        return corpus.kbin.readS32(corpus.words);
+    }
+
+    @Benchmark
+    public long getS64(Corpus corpus) {
+        return corpus.kbin.readS64(corpus.words);
+    }
+
+    @Benchmark
+    public int[] getS32Array(Corpus corpus) {
+        return corpus.kbin.readS32Array(corpus.words);
+    }
+
+    @Benchmark
+    public int appendS32(Corpus corpus) {
+        return corpus.kbin.appendS32(corpus.ints);
+    }
+
+    @Benchmark
+    public int appendS32Array(Corpus corpus) {
+        return corpus.kbin.appendS32Array(corpus.ints);
+    }
+}
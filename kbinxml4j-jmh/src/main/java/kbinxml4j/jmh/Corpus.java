@@ -0,0 +1,161 @@
+package kbinxml4j.jmh;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The benchmark documents, prepared once per trial in every form the benchmarks start from.
+ * {@code small} is the repository's testcases.xml. {@code medium} and {@code large} are generated
+ * with a fixed seed: records that mix nesting, attributes, strings, binary and scalar and array
+ * values of most numeric types.
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    public Kbin kbin;
+
+    // XML text and kbin encodings of the document
+    public byte[] xml;
+    public byte[] binary;
+    // decoded KbinXml, its DOM and XML text
+    public Object decoded;
+    public Document document;
+    public String text;
+    // XrpcNode tree of the document
+    public Object node;
+
+    // distinct element and attribute names, and the same names sixbit-packed
+    public String[] names;
+    public byte[] packedNames;
+    public char[] nameScratch;
+
+    // the kbin bytes cut to a multiple of 8, as raw material for the accessor benchmarks
+    public byte[] words;
+    public int[] ints;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        kbin = Kbin.load();
+        switch (size) {
+            case "small":
+                xml = resource("/testcases.xml");
+                break;
+            case "medium":
+                xml = generate(500).getBytes(StandardCharsets.UTF_8);
+                break;
+            case "large":
+                xml = generate(20_000).getBytes(StandardCharsets.UTF_8);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown size: " + size);
+        }
+
+        binary = kbin.toBinary(kbin.fromText(xml));
+        decoded = kbin.fromBinary(binary);
+        document = kbin.getDocument(decoded);
+        text = kbin.toText(decoded);
+        node = kbin.xrpcFromXml(document);
+
+        names = names(document);
+        packedNames = kbin.packSixbit(names);
+        nameScratch = new char[255];
+
+        words = Arrays.copyOf(binary, binary.length & ~7);
+        ints = kbin.readS32Array(words);
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = Corpus.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing resource " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    // names that are sixbit-representable, which is every name kbin can store compressed
+    private static String[] names(Document document) {
+        LinkedHashSet<String> names = new LinkedHashSet<>();
+        NodeList all = document.getElementsByTagName("*");
+        for (int i = 0; i < all.getLength(); i++) {
+            Element e = (Element) all.item(i);
+            names.add(e.getTagName());
+            for (int j = 0; j < e.getAttributes().getLength(); j++) {
+                names.add(e.getAttributes().item(j).getNodeName());
+            }
+        }
+        List<String> packable = new ArrayList<>();
+        for (String name : names) {
+            if (name.matches("[0-9:A-Z_a-z]{1,255}")) {
+                packable.add(name);
+            }
+        }
+        return packable.toArray(new String[0]);
+    }
+
+    private static String generate(int records) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(records * 640);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<response status=\"0\">\n");
+        for (int i = 0; i < records; i++) {
+            sb.append("  <record id=\"").append(i).append("\" kind=\"r").append(i % 7).append("\">\n");
+            leaf(sb, "index", "s32", Integer.toString(i));
+            leaf(sb, "name", "str", "player_" + Long.toHexString(random.nextLong()));
+            leaf(sb, "flag", "bool", random.nextBoolean() ? "1" : "0");
+            leaf(sb, "level", "u8", Integer.toString(random.nextInt(256)));
+            leaf(sb, "rank", "s16", Integer.toString(random.nextInt(65536) - 32768));
+            leaf(sb, "score", "u64", Long.toUnsignedString(random.nextLong()));
+            leaf(sb, "addr", "ip4", random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256));
+            leaf(sb, "pos", "3f", random.nextInt(1000) + ".5 " + random.nextInt(1000) + ".25 -" + random.nextInt(1000) + ".125");
+            leaf(sb, "rate", "double", random.nextInt(100) + ".75");
+            sb.append("    <hist __type=\"s32\" __count=\"16\">");
+            for (int j = 0; j < 16; j++) {
+                sb.append(j == 0 ? "" : " ").append(random.nextInt());
+            }
+            sb.append("</hist>\n");
+            sb.append("    <mask __type=\"u8\" __count=\"8\">");
+            for (int j = 0; j < 8; j++) {
+                sb.append(j == 0 ? "" : " ").append(random.nextInt(256));
+            }
+            sb.append("</mask>\n");
+            byte[] blob = new byte[24];
+            random.nextBytes(blob);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : blob) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            leaf(sb, "blob", "bin", hex.toString());
+            sb.append("    <items>\n");
+            for (int j = 0; j < 3; j++) {
+                sb.append("      <item slot=\"").append(j).append("\" __type=\"2u16\">")
+                        .append(random.nextInt(65536)).append(' ').append(random.nextInt(65536)).append("</item>\n");
+            }
+            sb.append("    </items>\n");
+            sb.append("  </record>\n");
+        }
+        sb.append("</response>\n");
+        return sb.toString();
+    }
+
+    private static void leaf(StringBuilder sb, String name, String type, String value) {
+        sb.append("    <").append(name).append(" __type=\"").append(type).append("\">")
+                .append(value).append("</").append(name).append(">\n");
+    }
+}
@@ -0,0 +1,111 @@
+package kbinxml4j.jmh;
+
+import org.w3c.dom.Document;
+
+/**
+ * The library lives in the unnamed package, which a named package cannot import, and JMH refuses
+ * benchmarks in the unnamed package. Benchmarks therefore call the library through this interface;
+ * its only implementation, {@code KbinBridge}, sits in this module's unnamed package and is loaded once
+ * by name. The call sites are monomorphic, so the JIT inlines through the interface.
+ * <p>
+ * Handles typed {@code Object} are library objects the benchmark only passes back in: a decoded
+ * {@code KbinXml} or an {@code XrpcNode}.
+ */
+public interface Kbin {
+    static Kbin load() {
+        try {
+            return (Kbin) Class.forName("KbinBridge").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("KbinBridge not on the classpath", e);
+        }
+    }
+
+    // ---------- KbinXml ----------
+
+    /**
+     * @return the decoded {@code KbinXml}
+     */
+    Object fromBinary(byte[] kbin);
+
+    byte[] toBinary(Object xml);
+
+    String toText(Object xml);
+
+    /**
+     * @return the parsed {@code KbinXml}
+     */
+    Object fromText(byte[] xml);
+
+    Document getDocument(Object xml);
+
+    // ---------- Sixbit ----------
+
+    /**
+     * @return all names sixbit-packed back to back
+     */
+    byte[] packSixbit(String[] names);
+
+    /**
+     * Unpack {@code count} names from {@code packed} into {@code dst}.
+     *
+     * @return total number of characters
+     */
+    int unpackSixbit(byte[] packed, int count, char[] dst);
+
+    // ---------- KBinXmlByteBuffer ----------
+
+    /**
+     * @return sum of the big-endian u8 values in {@code data}, read one accessor call at a time
+     */
+    long readU8(byte[] data);
+
+    /**
+     * @return sum of the big-endian s16 values in {@code data}, read one accessor call at a time
+     */
+    long readS16(byte[] data);
+
+    /**
+     * @return sum of the big-endian s32 values in {@code data}, read one accessor call at a time
+     */
+    long readS32(byte[] data);
+
+    /**
+     * @return sum of the big-endian s64 values in {@code data}, read one accessor call at a time
+     */
+    long readS64(byte[] data);
+
+    /**
+     * @return {@code data} as big-endian s32 values, read with one bulk accessor call
+     */
+    int[] readS32Array(byte[] data);
+
+    /**
+     * Append {@code values} one by one to a fresh buffer, as the writer does.
+     *
+     * @return the written length
+     */
+    int appendS32(int[] values);
+
+    /**
+     * Append {@code values} to a fresh buffer with one bulk call.
+     *
+     * @return the written length
+     */
+    int appendS32Array(int[] values);
+
+    // ---------- XrpcNodeConverter ----------
+
+    /**
+     * @return the {@code XrpcNode} tree for {@code document}
+     */
+    Object xrpcFromXml(Document document);
+
+    Document xrpcToXml(Object node);
+
+    /**
+     * @return the {@code XrpcNode} tree for {@code xml}
+     */
+    Object xrpcFromXmlString(String xml);
+
+    String xrpcToXmlString(Object node);
+}
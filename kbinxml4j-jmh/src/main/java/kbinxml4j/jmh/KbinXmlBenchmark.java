@@ -0,0 +1,41 @@
+package kbinxml4j.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-document conversions through {@code KbinXml}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KbinXmlBenchmark {
+    @Benchmark
+    public Object fromBinary(Corpus corpus) {
+        return corpus.kbin.fromBinary(corpus.binary);
+    }
+
+    @Benchmark
+    public byte[] toBinary(Corpus corpus) {
+        return corpus.kbin.toBinary(corpus.decoded);
+    }
+
+    @Benchmark
+    public String toText(Corpus corpus) {
+        return corpus.kbin.toText(corpus.decoded);
+    }
+
+    @Benchmark
+    public Object fromText(Corpus corpus) {
+        return corpus.kbin.fromText(corpus.xml);
+    }
+}
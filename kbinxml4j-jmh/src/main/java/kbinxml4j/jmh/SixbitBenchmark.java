@@ -0,0 +1,31 @@
+package kbinxml4j.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sixbit packing of every distinct node and attribute name of the document, per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SixbitBenchmark {
+    @Benchmark
+    public byte[] pack(Corpus corpus) {
+        return corpus.kbin.packSixbit(corpus.names);
+    }
+
+    @Benchmark
+    public int unpack(Corpus corpus) {
+        return corpus.kbin.unpackSixbit(corpus.packedNames, corpus.names.length, corpus.nameScratch);
+    }
+}
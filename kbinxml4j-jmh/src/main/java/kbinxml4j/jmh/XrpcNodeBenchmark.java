@@ -0,0 +1,53 @@
+package kbinxml4j.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code XrpcNodeConverter} in both directions, from and to a DOM and from and to XML text, plus the
+ * full round trips.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XrpcNodeBenchmark {
+    @Benchmark
+    public Object fromXml(Corpus corpus) {
+        return corpus.kbin.xrpcFromXml(corpus.document);
+    }
+
+    @Benchmark
+    public Document toXml(Corpus corpus) {
+        return corpus.kbin.xrpcToXml(corpus.node);
+    }
+
+    @Benchmark
+    public Object fromXmlString(Corpus corpus) {
+        return corpus.kbin.xrpcFromXmlString(corpus.text);
+    }
+
+    @Benchmark
+    public String toXmlString(Corpus corpus) {
+        return corpus.kbin.xrpcToXmlString(corpus.node);
+    }
+
+    @Benchmark
+    public Document roundTripXml(Corpus corpus) {
+        return corpus.kbin.xrpcToXml(corpus.kbin.xrpcFromXml(corpus.document));
+    }
+
+    @Benchmark
+    public String roundTripXmlString(Corpus corpus) {
+        return corpus.kbin.xrpcToXmlString(corpus.kbin.xrpcFromXmlString(corpus.text));
+    }
+}
@@ -1,15 +1,42 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
 
 public class KBinXmlByteBuffer {
+    // 字节数组视图，按固定字节序读写基本类型，不产生任何临时对象
+    private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // 底层存储：堆数组 data，或非数组的 ByteBuffer（直接内存/只读/映射文件）
     private byte[] data;
+    private ByteBuffer nio;
+    // 逻辑偏移 0 在底层存储中的位置，以及可寻址的字节数
+    private int base;
+    private int limit;
+    private boolean readOnly;
+    // 定长可写视图：写入调用方的内存，不扩容
+    private boolean fixed;
+
     private int offset;
     private ByteOrder endian;
+    private boolean bigEndian;
     private int end;
 
+    // 返回底层数组；视图与其他缓冲区共享该数组，且逻辑偏移 0 不一定对应下标 0
     public byte[] getData() {
         return data;
     }
@@ -32,11 +59,91 @@ public class KBinXmlByteBuffer {
 
     public KBinXmlByteBuffer(byte[] input, int offset, ByteOrder endian) {
         this.data = Arrays.copyOf(input, input.length);
+        this.limit = data.length;
         this.offset = offset;
-        this.endian = endian;
+        setEndian(endian);
         this.end = data.length;
     }
 
+    private KBinXmlByteBuffer(byte[] data, ByteBuffer nio, int base, int length, ByteOrder endian) {
+        this.data = data;
+        this.nio = nio;
+        this.base = base;
+        this.limit = length;
+        this.readOnly = true;
+        setEndian(endian);
+        this.end = length;
+    }
+
+    // 只读视图：直接引用调用方的数组，不做拷贝
+    public static KBinXmlByteBuffer wrap(byte[] input) {
+        return wrap(input, 0, input.length);
+    }
+
+    public static KBinXmlByteBuffer wrap(byte[] input, int from, int length) {
+        if (from < 0 || length < 0 || from + length > input.length) {
+            throw new IndexOutOfBoundsException("View out of range");
+        }
+        return new KBinXmlByteBuffer(input, null, from, length, ByteOrder.BIG_ENDIAN);
+    }
+
+    // 只读视图：覆盖 input 的 position..limit，堆内存与直接内存均可，不修改 input 本身的游标
+    public static KBinXmlByteBuffer wrap(ByteBuffer input) {
+        if (input.hasArray()) {
+            return new KBinXmlByteBuffer(input.array(), null, input.arrayOffset() + input.position(), input.remaining(), ByteOrder.BIG_ENDIAN);
+        }
+        return new KBinXmlByteBuffer(null, input.slice(), 0, input.remaining(), ByteOrder.BIG_ENDIAN);
+    }
+
+    // 将文件只读映射到内存并返回其视图；堆上不保留文件内容，映射在视图不可达后由 GC 释放
+    public static KBinXmlByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + file + " (" + size + " bytes)");
+            }
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    // target 的 [index, index + length) 区间上的定长可写视图，从空开始写入；越界写入抛 BufferOverflowException。
+    // 不修改 target 本身的游标
+    static KBinXmlByteBuffer writable(ByteBuffer target, int index, int length) {
+        if (target.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        if (index < 0 || length < 0 || index + length > target.limit()) {
+            throw new IndexOutOfBoundsException("View out of range");
+        }
+        KBinXmlByteBuffer view = target.hasArray()
+                ? new KBinXmlByteBuffer(target.array(), null, target.arrayOffset() + index, length, ByteOrder.BIG_ENDIAN)
+                : new KBinXmlByteBuffer(null, target.duplicate(), index, length, ByteOrder.BIG_ENDIAN);
+        view.readOnly = false;
+        view.fixed = true;
+        view.end = 0;
+        return view;
+    }
+
+    // 与当前缓冲区共享同一块内存、拥有独立游标的只读视图
+    public KBinXmlByteBuffer duplicate() {
+        KBinXmlByteBuffer view = new KBinXmlByteBuffer(data, nio == null ? null : nio.duplicate(), base, limit, endian);
+        view.offset = offset;
+        view.end = end;
+        return view;
+    }
+
+    // 以 from 为新起点、长度为 length 的只读视图，偏移从 0 开始
+    public KBinXmlByteBuffer slice(int from, int length) {
+        if (from < 0 || length < 0 || from + length > limit) {
+            throw new IndexOutOfBoundsException("View out of range");
+        }
+        return new KBinXmlByteBuffer(data, nio == null ? null : nio.duplicate(), base + from, length, endian);
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     public KBinXmlByteBuffer(byte[] input, ByteOrder endian) {
         this(input, 0, endian);
     }
@@ -47,15 +154,29 @@ public class KBinXmlByteBuffer {
 
     // 获取指定数量的字节
     public byte[] getBytes(int count) {
-        if (offset + count > data.length) {
-            throw new IndexOutOfBoundsException("Not enough data available");
-        }
-        byte[] result = Arrays.copyOfRange(data, offset, offset + count);
+        byte[] result = readS8Array(checkRead(count), count);
         offset += count;
         return result;
     }
 
-    // 通用获取方法
+    // 读取到调用方提供的数组（可复用），不分配新数组
+    public void getBytes(byte[] dst, int from, int count) {
+        int pos = checkRead(count);
+        if (data == null) {
+            nio.get(base + pos, dst, from, count);
+        } else {
+            System.arraycopy(data, base + pos, dst, from, count);
+        }
+        offset += count;
+    }
+
+    // 跳过指定数量的字节（带边界检查），不读取内容
+    public void skip(int count) {
+        checkRead(count);
+        offset += count;
+    }
+
+    // 通用获取方法（兼容层，内部转发到基本类型方法）
     public Object get(String type, Integer count) {
         Object result = peek(type, count);
         int size = getSize(type);
@@ -72,32 +193,29 @@ public class KBinXmlByteBuffer {
         if (count != null) {
             size *= count;
         }
-
-        if (offset + size > data.length) {
-            throw new IndexOutOfBoundsException("Not enough data available");
-        }
-
-        ByteBuffer buffer = ByteBuffer.wrap(data, offset, size);
-        buffer.order(endian);
+        int pos = checkRead(size);
 
         switch (type) {
             case "b": // signed byte
-                return count == null ? buffer.get() : getByteArray(buffer, count);
+                return count == null ? readS8(pos) : readS8Array(pos, count);
             case "B": // unsigned byte
-                return count == null ? Byte.toUnsignedInt(buffer.get()) : getUnsignedByteArray(buffer, count);
+                return count == null ? readU8(pos) : readS8Array(pos, count);
             case "h": // signed short
-                return count == null ? buffer.getShort() : getShortArray(buffer, count);
+                return count == null ? readS16(pos) : readS16Array(pos, count);
             case "H": // unsigned short
-                return count == null ? Short.toUnsignedInt(buffer.getShort()) : getUnsignedShortArray(buffer, count);
+                return count == null ? readU16(pos) : readU16Array(pos, count);
             case "i": // signed int
-                return count == null ? buffer.getInt() : getIntArray(buffer, count);
+                return count == null ? readS32(pos) : readS32Array(pos, count);
             case "I": // unsigned int
-                return count == null ? (int) Integer.toUnsignedLong(buffer.getInt()) : getUnsignedIntArray(buffer, count);
+                return count == null ? readS32(pos) : readU32Array(pos, count);
             case "q": // signed long
-                return count == null ? buffer.getLong() : getLongArray(buffer, count);
             case "Q": // unsigned long
                 // Java中没有无符号long，返回原值
-                return count == null ? buffer.getLong() : getLongArray(buffer, count);
+                return count == null ? readS64(pos) : readS64Array(pos, count);
+            case "f": // float
+                return count == null ? readF32(pos) : readF32Array(pos, count);
+            case "d": // double
+                return count == null ? readF64(pos) : readF64Array(pos, count);
             default:
                 throw new IllegalArgumentException("Unsupported type: " + type);
         }
@@ -105,76 +223,27 @@ public class KBinXmlByteBuffer {
 
     // 添加字节数据
     public void appendBytes(byte[] newData) {
-        ensureCapacity(offset + newData.length);
-        System.arraycopy(newData, 0, data, offset, newData.length);
-        offset += newData.length;
-        end = Math.max(end, offset);
+        appendBytes(newData, 0, newData.length);
+    }
+
+    public void appendBytes(byte[] newData, int from, int length) {
+        writeBytes(reserve(length), newData, from, length);
     }
 
     // 通用添加方法
     public void append(Object value, String type, Integer count) {
         int size = getSize(type);
-        if (count != null) {
-            size *= count;
-        }
-
-        ensureCapacity(offset + size);
-        ByteBuffer buffer = ByteBuffer.allocate(size);
-        buffer.order(endian);
-
-        if (count == null) {
-            // 单个值
-            putValue(buffer, value, type);
-        } else {
-            // 数组值
-            if (value instanceof Object[] array) {
-                for (Object item : array) {
-                    putValue(buffer, item, type);
-                }
-            } else if (value instanceof List array) {
-                for (Object item : array) {
-                    putValue(buffer, item, type);
-                }
-            } else {
-                throw new IllegalArgumentException("Expected array for count > 1");
-            }
-        }
-
-        System.arraycopy(buffer.array(), 0, data, offset, size);
-        offset += size;
-        end = Math.max(end, offset);
+        int total = count == null ? size : size * count;
+        int pos = reserve(total);
+        putValues(pos, value, type, size, count);
     }
 
     // 设置指定位置的数据
     public void set(Object value, int targetOffset, String type, Integer count) {
         int size = getSize(type);
-        if (count != null) {
-            size *= count;
-        }
-
-        ensureCapacity(targetOffset + size);
-        ByteBuffer buffer = ByteBuffer.allocate(size);
-        buffer.order(endian);
-
-        if (count == null) {
-            putValue(buffer, value, type);
-        } else {
-            if (value instanceof Object[] array) {
-                for (Object item : array) {
-                    putValue(buffer, item, type);
-                }
-            } else if (value instanceof List list) {
-                for (Object item : list) {
-                    putValue(buffer, item, type);
-                }
-            } else {
-                throw new IllegalArgumentException("Expected array for count > 1");
-            }
-        }
-
-        System.arraycopy(buffer.array(), 0, data, targetOffset, size);
-        offset = Math.max(offset, targetOffset + size);
-        end = Math.max(end, targetOffset + size);
+        int total = count == null ? size : size * count;
+        reserveAt(targetOffset, total);
+        putValues(targetOffset, value, type, size, count);
     }
 
     public boolean hasData() {
@@ -182,152 +251,264 @@ public class KBinXmlByteBuffer {
     }
 
     public void realignWrites(int size) {
-        while (data.length % size != 0) {
+        while (end % size != 0) {
             appendU8(0);
         }
     }
 
     public void realignReads(int size) {
-        while (offset % size != 0) {
-            offset++;
+        int rem = offset % size;
+        if (rem != 0) {
+            offset += size - rem;
         }
     }
 
+    // 已写入/可读取数据的逻辑长度（不含扩容留出的空间）
     public int length() {
-        return data.length;
+        return end;
     }
 
     // 各种类型的具体方法
     public byte getS8() {
-        return (Byte) get("b", null);
+        byte value = peekS8();
+        offset += 1;
+        return value;
     }
 
     public byte peekS8() {
-        return (Byte) peek("b", null);
+        return readS8(checkRead(1));
     }
 
     public void appendS8(byte value) {
-        append(value, "b", null);
+        writeS8(reserve(1), value);
     }
 
     public void setS8(byte value, int targetOffset) {
-        set(value, targetOffset, "b", null);
+        reserveAt(targetOffset, 1);
+        writeS8(targetOffset, value);
     }
 
     public short getS16() {
-        return (Short) get("h", null);
+        short value = peekS16();
+        offset += 2;
+        return value;
     }
 
     public short peekS16() {
-        return (Short) peek("h", null);
+        return readS16(checkRead(2));
     }
 
     public void appendS16(short value) {
-        append(value, "h", null);
+        writeS16(reserve(2), value);
     }
 
     public void setS16(short value, int targetOffset) {
-        set(value, targetOffset, "h", null);
+        reserveAt(targetOffset, 2);
+        writeS16(targetOffset, value);
     }
 
     public int getS32() {
-        return (Integer) get("i", null);
+        int value = peekS32();
+        offset += 4;
+        return value;
     }
 
     public int peekS32() {
-        return (Integer) peek("i", null);
+        return readS32(checkRead(4));
     }
 
     public void appendS32(int value) {
-        append(value, "i", null);
+        writeS32(reserve(4), value);
     }
 
     public void setS32(int value, int targetOffset) {
-        set(value, targetOffset, "i", null);
+        reserveAt(targetOffset, 4);
+        writeS32(targetOffset, value);
     }
 
     public long getS64() {
-        return (Long) get("q", null);
+        long value = peekS64();
+        offset += 8;
+        return value;
     }
 
     public long peekS64() {
-        return (Long) peek("q", null);
+        return readS64(checkRead(8));
     }
 
     public void appendS64(long value) {
-        append(value, "q", null);
+        writeS64(reserve(8), value);
     }
 
     public void setS64(long value, int targetOffset) {
-        set(value, targetOffset, "q", null);
+        reserveAt(targetOffset, 8);
+        writeS64(targetOffset, value);
     }
 
     public int getU8() {
-        return (Integer) get("B", null);
+        int value = peekU8();
+        offset += 1;
+        return value;
     }
 
     public int peekU8() {
-        return (Integer) peek("B", null);
+        return readU8(checkRead(1));
     }
 
     public void appendU8(int value) {
-        append(value, "B", null);
+        writeS8(reserve(1), (byte) value);
     }
 
     public void setU8(int value, int targetOffset) {
-        set(value, targetOffset, "B", null);
+        reserveAt(targetOffset, 1);
+        writeS8(targetOffset, (byte) value);
     }
 
     public int getU16() {
-        return (Integer) get("H", null);
+        int value = peekU16();
+        offset += 2;
+        return value;
     }
 
     public int peekU16() {
-        return (Integer) peek("H", null);
+        return readU16(checkRead(2));
     }
 
     public void appendU16(int value) {
-        append(value, "H", null);
+        writeS16(reserve(2), (short) value);
     }
 
     public void setU16(int value, int targetOffset) {
-        set(value, targetOffset, "H", null);
+        reserveAt(targetOffset, 2);
+        writeS16(targetOffset, (short) value);
     }
 
     public int getU32() {
-        return (Integer) get("I", null);
+        int value = peekU32();
+        offset += 4;
+        return value;
     }
 
     public int peekU32() {
-        return (Integer) peek("I", null);
+        return readS32(checkRead(4));
     }
 
     public void appendU32(int value) {
-        append(value, "I", null);
+        writeS32(reserve(4), value);
     }
 
     public void setU32(int value, int targetOffset) {
-        set(value, targetOffset, "I", null);
+        reserveAt(targetOffset, 4);
+        writeS32(targetOffset, value);
     }
 
     public long getU64() {
-        return (Long) get("Q", null);
+        long value = peekU64();
+        offset += 8;
+        return value;
     }
 
     public long peekU64() {
-        return (Long) peek("Q", null);
+        return readS64(checkRead(8));
     }
 
     public void appendU64(long value) {
-        append(value, "Q", null);
+        writeS64(reserve(8), value);
     }
 
     public void setU64(long value, int targetOffset) {
-        set(value, targetOffset, "Q", null);
+        reserveAt(targetOffset, 8);
+        writeS64(targetOffset, value);
+    }
+
+    // 数组读取，一次边界检查后直接从底层数组解码
+    public byte[] getS8Array(int count) {
+        byte[] result = readS8Array(checkRead(count), count);
+        offset += count;
+        return result;
+    }
+
+    public short[] getS16Array(int count) {
+        short[] result = readS16Array(checkRead(count * 2), count);
+        offset += count * 2;
+        return result;
+    }
+
+    public int[] getU16Array(int count) {
+        int[] result = readU16Array(checkRead(count * 2), count);
+        offset += count * 2;
+        return result;
+    }
+
+    public int[] getS32Array(int count) {
+        int[] result = readS32Array(checkRead(count * 4), count);
+        offset += count * 4;
+        return result;
+    }
+
+    public long[] getU32Array(int count) {
+        long[] result = readU32Array(checkRead(count * 4), count);
+        offset += count * 4;
+        return result;
+    }
+
+    public long[] getS64Array(int count) {
+        long[] result = readS64Array(checkRead(count * 8), count);
+        offset += count * 8;
+        return result;
+    }
+
+    public float getF32() {
+        float result = readF32(checkRead(4));
+        offset += 4;
+        return result;
+    }
+
+    public double getF64() {
+        double result = readF64(checkRead(8));
+        offset += 8;
+        return result;
+    }
+
+    public float[] getF32Array(int count) {
+        float[] result = readF32Array(checkRead(count * 4), count);
+        offset += count * 4;
+        return result;
+    }
+
+    public double[] getF64Array(int count) {
+        double[] result = readF64Array(checkRead(count * 8), count);
+        offset += count * 8;
+        return result;
+    }
+
+    // 数组写入，一次扩容后直接写入底层数组
+    public void appendS16Array(short[] values) {
+        int pos = reserve(values.length * 2);
+        for (short value : values) {
+            writeS16(pos, value);
+            pos += 2;
+        }
+    }
+
+    public void appendS32Array(int[] values) {
+        int pos = reserve(values.length * 4);
+        for (int value : values) {
+            writeS32(pos, value);
+            pos += 4;
+        }
+    }
+
+    public void appendS64Array(long[] values) {
+        int pos = reserve(values.length * 8);
+        for (long value : values) {
+            writeS64(pos, value);
+            pos += 8;
+        }
     }
 
     public byte[] toByteArray() {
-        return Arrays.copyOf(data, end);
+        return readS8Array(0, end);
     }
 
     public int getOffset() {
@@ -344,6 +525,31 @@ public class KBinXmlByteBuffer {
 
     public void setEndian(ByteOrder endian) {
         this.endian = endian;
+        this.bigEndian = endian == ByteOrder.BIG_ENDIAN;
+        if (nio != null) {
+            nio.order(endian);
+        }
+    }
+
+    // 清空缓冲区以便复用：保留底层存储，已写入的部分清零
+    void clear() {
+        if (readOnly) {
+            throw new ReadOnlyBufferException();
+        }
+        if (data != null) {
+            Arrays.fill(data, base, base + end, (byte) 0);
+        } else {
+            for (int i = 0; i < end; i++) {
+                nio.put(base + i, (byte) 0);
+            }
+        }
+        offset = 0;
+        end = 0;
+    }
+
+    // 底层数组的容量
+    int capacity() {
+        return limit;
     }
 
     // 辅助方法
@@ -360,99 +566,255 @@ public class KBinXmlByteBuffer {
                 return 4;
             case "q":
             case "Q":
+            case "d":
                 return 8;
+            case "f":
+                return 4;
             default:
                 throw new IllegalArgumentException("Unknown type: " + type);
         }
     }
 
+    // 自有的堆数组（base 恒为 0）按需扩容；定长可写视图不扩容，其余视图只读
     private void ensureCapacity(int minCapacity) {
+        if (readOnly) {
+            throw new ReadOnlyBufferException();
+        }
+        if (fixed) {
+            if (minCapacity > limit) {
+                throw new BufferOverflowException();
+            }
+            return;
+        }
         if (minCapacity > data.length) {
             int newCapacity = Math.max(data.length * 2, minCapacity);
             data = Arrays.copyOf(data, newCapacity);
+            limit = newCapacity;
         }
     }
 
-    private void putValue(ByteBuffer buffer, Object value, String type) {
-        switch (type) {
-            case "b":
-                buffer.put((Byte) value);
-                break;
-            case "B":
-                buffer.put((byte) ((Integer) value).intValue());
-                break;
-            case "h":
-                buffer.putShort((Short) value);
-                break;
-            case "H":
-                buffer.putShort((short) ((Integer) value).intValue());
-                break;
-            case "i":
-                buffer.putInt((Integer) value);
-                break;
-            case "I":
-                buffer.putInt((int) value);
-                break;
-            case "q":
-                buffer.putLong((Long) value);
-                break;
-            case "Q":
-                buffer.putLong((Long) value);
-                break;
+    // 检查可读长度，返回读取起点
+    private int checkRead(int size) {
+        int pos = offset;
+        if (size < 0 || pos + size > limit) {
+            throw new IndexOutOfBoundsException("Not enough data available");
         }
+        return pos;
     }
 
-    private byte[] getByteArray(ByteBuffer buffer, int count) {
-        byte[] result = new byte[count];
-        buffer.get(result);
-        return result;
+    // 在当前偏移处预留空间并前移偏移量，返回写入起点
+    private int reserve(int size) {
+        int pos = offset;
+        ensureCapacity(pos + size);
+        offset = pos + size;
+        end = Math.max(end, offset);
+        return pos;
     }
 
-    private byte[] getUnsignedByteArray(ByteBuffer buffer, int count) {
-        byte[] result = new byte[count];
-        for (int i = 0; i < count; i++) {
-            result[i] = (byte) Byte.toUnsignedInt(buffer.get());
+    private void reserveAt(int targetOffset, int size) {
+        ensureCapacity(targetOffset + size);
+        offset = Math.max(offset, targetOffset + size);
+        end = Math.max(end, targetOffset + size);
+    }
+
+    private byte readS8(int pos) {
+        return data != null ? data[base + pos] : nio.get(base + pos);
+    }
+
+    private int readU8(int pos) {
+        return readS8(pos) & 0xFF;
+    }
+
+    private short readS16(int pos) {
+        if (data == null) {
+            return nio.getShort(base + pos);
+        }
+        return bigEndian ? (short) SHORT_BE.get(data, base + pos) : (short) SHORT_LE.get(data, base + pos);
+    }
+
+    private int readU16(int pos) {
+        return readS16(pos) & 0xFFFF;
+    }
+
+    private int readS32(int pos) {
+        if (data == null) {
+            return nio.getInt(base + pos);
+        }
+        return bigEndian ? (int) INT_BE.get(data, base + pos) : (int) INT_LE.get(data, base + pos);
+    }
+
+    private long readS64(int pos) {
+        if (data == null) {
+            return nio.getLong(base + pos);
+        }
+        return bigEndian ? (long) LONG_BE.get(data, base + pos) : (long) LONG_LE.get(data, base + pos);
+    }
+
+    private void writeS8(int pos, byte value) {
+        if (data == null) {
+            nio.put(base + pos, value);
+        } else {
+            data[base + pos] = value;
+        }
+    }
+
+    private void writeS16(int pos, short value) {
+        if (data == null) {
+            nio.putShort(base + pos, value);
+        } else if (bigEndian) {
+            SHORT_BE.set(data, base + pos, value);
+        } else {
+            SHORT_LE.set(data, base + pos, value);
         }
-        return result;
     }
 
-    private short[] getShortArray(ByteBuffer buffer, int count) {
+    private void writeS32(int pos, int value) {
+        if (data == null) {
+            nio.putInt(base + pos, value);
+        } else if (bigEndian) {
+            INT_BE.set(data, base + pos, value);
+        } else {
+            INT_LE.set(data, base + pos, value);
+        }
+    }
+
+    private void writeS64(int pos, long value) {
+        if (data == null) {
+            nio.putLong(base + pos, value);
+        } else if (bigEndian) {
+            LONG_BE.set(data, base + pos, value);
+        } else {
+            LONG_LE.set(data, base + pos, value);
+        }
+    }
+
+    private void writeBytes(int pos, byte[] src, int from, int length) {
+        if (data == null) {
+            nio.put(base + pos, src, from, length);
+        } else {
+            System.arraycopy(src, from, data, base + pos, length);
+        }
+    }
+
+    private byte[] readS8Array(int pos, int count) {
+        if (data == null) {
+            byte[] result = new byte[count];
+            nio.get(base + pos, result);
+            return result;
+        }
+        return Arrays.copyOfRange(data, base + pos, base + pos + count);
+    }
+
+    private short[] readS16Array(int pos, int count) {
         short[] result = new short[count];
         for (int i = 0; i < count; i++) {
-            result[i] = buffer.getShort();
+            result[i] = readS16(pos + i * 2);
         }
         return result;
     }
 
-    private int[] getUnsignedShortArray(ByteBuffer buffer, int count) {
+    private int[] readU16Array(int pos, int count) {
         int[] result = new int[count];
         for (int i = 0; i < count; i++) {
-            result[i] = Short.toUnsignedInt(buffer.getShort());
+            result[i] = readU16(pos + i * 2);
         }
         return result;
     }
 
-    private int[] getIntArray(ByteBuffer buffer, int count) {
+    private int[] readS32Array(int pos, int count) {
         int[] result = new int[count];
         for (int i = 0; i < count; i++) {
-            result[i] = buffer.getInt();
+            result[i] = readS32(pos + i * 4);
         }
         return result;
     }
 
-    private long[] getUnsignedIntArray(ByteBuffer buffer, int count) {
+    private long[] readU32Array(int pos, int count) {
         long[] result = new long[count];
         for (int i = 0; i < count; i++) {
-            result[i] = Integer.toUnsignedLong(buffer.getInt());
+            result[i] = Integer.toUnsignedLong(readS32(pos + i * 4));
         }
         return result;
     }
 
-    private long[] getLongArray(ByteBuffer buffer, int count) {
+    private long[] readS64Array(int pos, int count) {
         long[] result = new long[count];
         for (int i = 0; i < count; i++) {
-            result[i] = buffer.getLong();
+            result[i] = readS64(pos + i * 8);
+        }
+        return result;
+    }
+
+    private float readF32(int pos) {
+        return Float.intBitsToFloat(readS32(pos));
+    }
+
+    private double readF64(int pos) {
+        return Double.longBitsToDouble(readS64(pos));
+    }
+
+    private float[] readF32Array(int pos, int count) {
+        float[] result = new float[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = readF32(pos + i * 4);
+        }
+        return result;
+    }
+
+    private double[] readF64Array(int pos, int count) {
+        double[] result = new double[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = readF64(pos + i * 8);
         }
         return result;
     }
+
+    // 兼容层写入：单值或数组（Object[] / List / 基本类型数组）
+    private void putValues(int pos, Object value, String type, int size, Integer count) {
+        if (count == null) {
+            putValue(pos, value, type);
+        } else if (value instanceof Object[] array) {
+            for (Object item : array) {
+                putValue(pos, item, type);
+                pos += size;
+            }
+        } else if (value instanceof List<?> list) {
+            for (Object item : list) {
+                putValue(pos, item, type);
+                pos += size;
+            }
+        } else if (value instanceof byte[] array) {
+            writeBytes(pos, array, 0, array.length);
+        } else {
+            throw new IllegalArgumentException("Expected array for count > 1");
+        }
+    }
+
+    private void putValue(int pos, Object value, String type) {
+        Number number = (Number) value;
+        switch (type) {
+            case "b":
+            case "B":
+                writeS8(pos, number.byteValue());
+                break;
+            case "h":
+            case "H":
+                writeS16(pos, number.shortValue());
+                break;
+            case "i":
+            case "I":
+                writeS32(pos, number.intValue());
+                break;
+            case "q":
+            case "Q":
+                writeS64(pos, number.longValue());
+                break;
+            case "f":
+                writeS32(pos, Float.floatToRawIntBits(number.floatValue()));
+                break;
+            case "d":
+                writeS64(pos, Double.doubleToRawLongBits(number.doubleValue()));
+                break;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+import SimpleMappingModel.XrpcNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Bulk conversion of independent documents on an {@link Executor}. Items are converted in parallel
+ * with at most {@code maxInFlight} submitted but not yet delivered, so inputs can come from a lazy
+ * {@link Iterator} or {@link Stream} of any length in bounded memory. Results are delivered in input
+ * order. A failing item becomes a failed {@link Result} and does not abort the batch; only a
+ * {@link VirtualMachineError} other than {@link StackOverflowError} (e.g. OutOfMemoryError), or an
+ * exception from the inputs or the sink, aborts it, and the items still in flight are then cancelled.
+ * <p>
+ * Any executor works: the common {@link ForkJoinPool} (the default), a fixed pool, or a
+ * virtual-thread-per-task executor on runtimes that have one. The conversions share one thread-safe
+ * {@link KbinCodec}.
+ */
+public final class KbinBatch {
+    /**
+     * A single conversion step; what it throws is captured in the item's {@link Result}, including errors
+     * such as a StackOverflowError on a deeply nested document.
+     */
+    @FunctionalInterface
+    public interface Conversion<I, O> {
+        O apply(I input) throws Exception;
+    }
+
+    /**
+     * Outcome of one item: its position in the input and either a value or the failure.
+     */
+    public static final class Result<T> {
+        private final int index;
+        private final T value;
+        private final Throwable error;
+
+        private Result(int index, T value, Throwable error) {
+            this.index = index;
+            this.value = value;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return the converted value, or null when the item failed
+         */
+        public T getValue() {
+            return value;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * @return the converted value
+         * @throws KbinXml.KBinException wrapping the failure when the item failed
+         */
+        public T get() {
+            if (error != null) {
+                throw new KbinXml.KBinException("Item " + index + " failed", error);
+            }
+            return value;
+        }
+    }
+
+    private final KbinCodec codec;
+    private final Executor executor;
+    private final int maxInFlight;
+
+    /**
+     * Default codec on the common pool, with two items in flight per worker.
+     */
+    public KbinBatch() {
+        this(new KbinCodec(), ForkJoinPool.commonPool(), 2 * ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param codec       settings for the encode* conversions; decoding follows each document's header
+     * @param executor    runs the conversions
+     * @param maxInFlight upper bound on items submitted but not yet delivered, and so on inputs and
+     *                    results held at once
+     */
+    public KbinBatch(KbinCodec codec, Executor executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1: " + maxInFlight);
+        }
+        this.codec = codec;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    // ---------- ready-made conversions ----------
+
+    public List<Result<String>> decodeToText(List<byte[]> kbins) {
+        return convertAll(kbins, codec::decodeToText);
+    }
+
+    public List<Result<XrpcNode>> decodeNodes(List<byte[]> kbins) {
+        return convertAll(kbins, codec::decodeNode);
+    }
+
+    /**
+     * @param xmls XML text bytes, see {@link KbinCodec#encodeText}
+     */
+    public List<Result<byte[]>> encodeText(List<byte[]> xmls) {
+        return convertAll(xmls, codec::encodeText);
+    }
+
+    public List<Result<byte[]>> encodeNodes(List<XrpcNode> nodes) {
+        return convertAll(nodes, codec::encodeNode);
+    }
+
+    // ---------- general form ----------
+
+    /**
+     * @return one result per input, in input order
+     */
+    public <I, O> List<Result<O>> convertAll(List<? extends I> inputs, Conversion<? super I, ? extends O> conversion) {
+        List<Result<O>> results = new ArrayList<>(inputs.size());
+        this.<I, O>forEach(inputs.iterator(), conversion, results::add);
+        return results;
+    }
+
+    /**
+     * Convert a stream lazily, handing results to {@code sink} in input order on the calling thread.
+     */
+    public <I, O> void forEach(Stream<? extends I> inputs, Conversion<? super I, ? extends O> conversion,
+                               Consumer<? super Result<O>> sink) {
+        forEach(inputs.iterator(), conversion, sink);
+    }
+
+    /**
+     * Convert lazily, handing results to {@code sink} in input order on the calling thread. Inputs are
+     * pulled only as results are delivered, so no more than {@code maxInFlight} are held at once.
+     */
+    public <I, O> void forEach(Iterator<? extends I> inputs, Conversion<? super I, ? extends O> conversion,
+                               Consumer<? super Result<O>> sink) {
+        ArrayDeque<CompletableFuture<Result<O>>> window = new ArrayDeque<>(maxInFlight);
+        try {
+            int index = 0;
+            while (inputs.hasNext()) {
+                if (window.size() == maxInFlight) {
+                    sink.accept(window.poll().join());
+                }
+                I input = inputs.next();
+                int i = index++;
+                window.add(CompletableFuture.supplyAsync(() -> run(i, input, conversion), executor));
+            }
+            while (!window.isEmpty()) {
+                sink.accept(window.poll().join());
+            }
+        } finally {
+            // only non-empty when aborting: items not started yet are skipped
+            for (CompletableFuture<Result<O>> future : window) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static <I, O> Result<O> run(int index, I input, Conversion<? super I, ? extends O> conversion) {
+        try {
+            return new Result<>(index, conversion.apply(input), null);
+        } catch (StackOverflowError e) {
+            // the stack is unwound by now, so the worker is fine
+            return new Result<>(index, null, e);
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Throwable e) {
+            return new Result<>(index, null, e);
+        }
+    }
+}
@@ -0,0 +1,390 @@
+import SimpleMappingModel.XmlTextWriter;
+import SimpleMappingModel.XrpcNode;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe entry point for kbin &lt;-&gt; XML conversion. Holds only its (immutable) settings, so one
+ * instance can be shared by all request threads; per-call state lives in a fresh {@link KbinXml}.
+ * <p>
+ * The expensive pieces, i.e. the XML parser, the transformer and the writer's growable buffers, are kept
+ * in a small pool of {@link Scratch} objects that calls borrow and return. Unlike a ThreadLocal cache
+ * the pool is sized by concurrency rather than by thread count, so it works the same for 200 platform
+ * threads and for short-lived virtual threads. {@link KbinXml} borrows from the same pool.
+ */
+public final class KbinCodec {
+    // scratch objects kept around; more than this many concurrent calls just allocate
+    private static final int MAX_POOLED = 64;
+    // writer buffers that grew past this are dropped instead of pinning the memory
+    private static final int MAX_RETAINED_BYTES = 1 << 20;
+
+    private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    private static final ConcurrentLinkedQueue<Scratch> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private final String encoding;
+    private final boolean compressed;
+    private final boolean convertIllegalThings;
+    // null leaves KbinXml's default listener in place
+    private final KbinListener listener;
+
+    public KbinCodec() {
+        this(KbinXml.BIN_ENCODING, false, false);
+    }
+
+    /**
+     * @param encoding             string encoding used when encoding to kbin
+     * @param compressed           whether encoded node names are sixbit-packed
+     * @param convertIllegalThings see {@link KbinXml#KbinXml(Object, boolean)}
+     */
+    public KbinCodec(String encoding, boolean compressed, boolean convertIllegalThings) {
+        this(encoding, compressed, convertIllegalThings, null);
+    }
+
+    private KbinCodec(String encoding, boolean compressed, boolean convertIllegalThings, KbinListener listener) {
+        this.encoding = encoding;
+        this.compressed = compressed;
+        this.convertIllegalThings = convertIllegalThings;
+        this.listener = listener;
+    }
+
+    /**
+     * @return a codec with the same settings that reports every conversion to {@code listener}
+     */
+    public KbinCodec withListener(KbinListener listener) {
+        return new KbinCodec(encoding, compressed, convertIllegalThings, listener);
+    }
+
+    // ---------- kbin -> XML ----------
+
+    public Document decode(byte[] kbin) {
+        return decode(KBinXmlByteBuffer.wrap(kbin));
+    }
+
+    public Document decode(KBinXmlByteBuffer kbin) {
+        KbinXml xml = newXml();
+        xml.fromBinary(kbin);
+        return xml.getDocument();
+    }
+
+    /**
+     * @return the same text as {@link KbinXml#toText()} after decoding, produced without a DOM
+     */
+    public String decodeToText(byte[] kbin) {
+        StringBuilder sb = new StringBuilder(kbin.length * 2);
+        try {
+            decodeToText(kbin, sb, true);
+        } catch (IOException e) {
+            // a StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stream the XML text of {@code kbin} to {@code out}, see {@link KbinXml#streamText}.
+     *
+     * @param indent indented as {@link #decodeToText(byte[])}, or compact without line breaks
+     */
+    public void decodeToText(byte[] kbin, Appendable out, boolean indent) throws IOException {
+        newXml().streamText(KBinXmlByteBuffer.wrap(kbin), new XmlTextWriter(out, indent));
+    }
+
+    /**
+     * Stream the XML text of {@code kbin} to {@code out} as UTF-8; {@code out} is flushed, not closed.
+     */
+    public void decodeToText(byte[] kbin, OutputStream out, boolean indent) throws IOException {
+        newXml().streamText(KBinXmlByteBuffer.wrap(kbin), new XmlTextWriter(out, indent));
+    }
+
+    /**
+     * Stream {@code kbin} to {@code out} as UTF-8 JSON, see {@link KbinJson}; {@code out} is flushed, not
+     * closed. Binary values are hex.
+     */
+    public void decodeToJson(byte[] kbin, OutputStream out) throws IOException {
+        json().toJson(kbin, out);
+    }
+
+    /**
+     * Decode straight to an {@link XrpcNode} tree without a DOM. Node and attribute names are checked
+     * as in {@link #decode(byte[])}, and renamed when this codec converts illegal things.
+     */
+    public XrpcNode decodeNode(byte[] kbin) {
+        if (kbin == null) {
+            throw new IllegalArgumentException("input is null");
+        }
+        KbinProbe probe = new KbinProbe(listener(), KbinStats.Operation.DECODE_TO_NODE);
+        KbinReader reader = new KbinReader(kbin);
+        probe.lap(KbinStats.Phase.HEADER);
+        return XrpcNodeKbinCodec.convert(reader, probe, true, convertIllegalThings);
+    }
+
+    // ---------- XML -> kbin ----------
+
+    public byte[] encode(Document document) {
+        return wrap(document).toBinary(encoding, compressed);
+    }
+
+    public byte[] encode(Element element) {
+        return wrap(element).toBinary(encoding, compressed);
+    }
+
+    /**
+     * Encode into {@code dst} at its position, see {@link KbinXml#encodeInto(ByteBuffer, String, boolean)}.
+     *
+     * @return number of bytes written
+     */
+    public int encodeInto(Document document, ByteBuffer dst) {
+        return wrap(document).encodeInto(dst, encoding, compressed);
+    }
+
+    /**
+     * Encode and stream to {@code out} section by section, see {@link KbinXml#writeTo(OutputStream, String, boolean)}.
+     *
+     * @return number of bytes written
+     */
+    public long encodeTo(Document document, OutputStream out) throws IOException {
+        return wrap(document).writeTo(out, encoding, compressed);
+    }
+
+    /**
+     * Encode and write to {@code channel} with a gathering write where supported.
+     *
+     * @return number of bytes written
+     */
+    public long encodeTo(Document document, WritableByteChannel channel) throws IOException {
+        return wrap(document).writeTo(channel, encoding, compressed);
+    }
+
+    /**
+     * Encode {@code node} and write it to {@code out}, which is not flushed or closed.
+     *
+     * @return number of bytes written
+     * @throws KbinXml.KBinException when the node can't be encoded; nothing is written then
+     */
+    public long encodeNodeTo(XrpcNode node, OutputStream out) throws IOException {
+        if (node == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+        KbinProbe probe = new KbinProbe(listener(), KbinStats.Operation.ENCODE_FROM_NODE);
+        Scratch scratch = acquire();
+        try {
+            KbinWriter writer = writeNode(node, scratch.writer(encoding, compressed));
+            probe.lap(KbinStats.Phase.WRITE);
+            long written = writer.writeTo(out);
+            probe.lap(KbinStats.Phase.OUTPUT);
+            endEncode(probe, writer);
+            return written;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * @return exact length of {@link #encode(Document)}'s output
+     */
+    public int encodedSize(Document document) {
+        return wrap(document).getEncodedSize(encoding, compressed);
+    }
+
+    /**
+     * @param xml XML text bytes, encoded without a DOM (see {@link KbinXml#streamBinary}); binary kbin
+     *            input is re-encoded with this codec's settings
+     */
+    public byte[] encodeText(byte[] xml) {
+        if (KbinXml.isBinaryXml(xml)) {
+            return parse(xml).toBinary(encoding, compressed);
+        }
+        return newXml().streamBinary(new ByteArrayInputStream(xml), encoding, compressed);
+    }
+
+    /**
+     * Encode XML text read from {@code xml} and write the kbin to {@code out}, without a DOM; memory use
+     * is the encoded document, not the parsed text. Neither stream is closed.
+     *
+     * @return number of bytes written
+     */
+    public long encodeText(InputStream xml, OutputStream out) throws IOException {
+        return newXml().streamBinary(xml, out, encoding, compressed);
+    }
+
+    /**
+     * Encode UTF-8 JSON in the {@link KbinJson} layout read from {@code json} and write the kbin to
+     * {@code out}, without a tree. Neither stream is closed.
+     *
+     * @return number of bytes written
+     */
+    public long encodeJson(InputStream json, OutputStream out) throws IOException {
+        return json().fromJson(json, out, encoding, compressed);
+    }
+
+    /**
+     * @throws KbinXml.KBinException when the node can't be encoded
+     */
+    public byte[] encodeNode(XrpcNode node) {
+        if (node == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+        KbinProbe probe = new KbinProbe(listener(), KbinStats.Operation.ENCODE_FROM_NODE);
+        Scratch scratch = acquire();
+        try {
+            KbinWriter writer = writeNode(node, scratch.writer(encoding, compressed));
+            probe.lap(KbinStats.Phase.WRITE);
+            byte[] out = writer.toByteArray();
+            probe.lap(KbinStats.Phase.OUTPUT);
+            endEncode(probe, writer);
+            return out;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    // ---------- text ----------
+
+    public String toText(Document document) {
+        return wrap(document).toText();
+    }
+
+    public Document parseText(byte[] xml) {
+        return parse(xml).getDocument();
+    }
+
+    // bad values in the tree (text that doesn't parse for its __type, a wrong __count) become KBinException
+    private static KbinWriter writeNode(XrpcNode node, KbinWriter writer) {
+        try {
+            XrpcNodeKbinCodec.writeNode(node, writer);
+        } catch (IllegalArgumentException e) {
+            throw new KbinXml.KBinException("Failed to encode XrpcNode input", e);
+        }
+        return writer;
+    }
+
+    private void endEncode(KbinProbe probe, KbinWriter writer) {
+        probe.format(encoding, compressed);
+        probe.sections(writer.getLength(), writer.getNodeSectionSize(), writer.getDataSize());
+        probe.nodes(writer.getNodeCount(), writer.getMaxDepth());
+        probe.end();
+    }
+
+    // the codec's own listener, or KbinXml's default as for the other conversions
+    private KbinListener listener() {
+        return listener != null ? listener : KbinXml.getDefaultListener();
+    }
+
+    private KbinXml newXml() {
+        KbinXml xml = new KbinXml(convertIllegalThings);
+        if (listener != null) {
+            xml.setListener(listener);
+        }
+        return xml;
+    }
+
+    private KbinJson json() {
+        KbinJson json = new KbinJson();
+        return listener == null ? json : json.withListener(listener);
+    }
+
+    private KbinXml wrap(Object dom) {
+        KbinXml xml = new KbinXml(dom, convertIllegalThings);
+        if (listener != null) {
+            xml.setListener(listener);
+        }
+        return xml;
+    }
+
+    private KbinXml parse(byte[] input) {
+        KbinXml xml = newXml();
+        xml.fromBytes(input);
+        return xml;
+    }
+
+    // ---------- scratch pool ----------
+
+    /**
+     * Per-call working set. Only one thread uses a Scratch between {@link #acquire()} and {@link #release}.
+     */
+    static final class Scratch {
+        // namespace aware, as KbinXml needs
+        final DocumentBuilder builder;
+        // configured for KbinXml.toText output
+        final Transformer transformer;
+        // for KbinXml.streamBinary; reports CDATA sections apart from text, as the DOM keeps them
+        final XMLInputFactory xmlInput;
+        private KBinXmlByteBuffer nodeBuf = new KBinXmlByteBuffer();
+        private KBinXmlByteBuffer dataBuf = new KBinXmlByteBuffer();
+
+        private Scratch() {
+            try {
+                DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+                dbf.setNamespaceAware(true);
+                this.builder = dbf.newDocumentBuilder();
+
+                this.transformer = TransformerFactory.newInstance().newTransformer();
+                this.transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+                this.transformer.setOutputProperty(OutputKeys.ENCODING, KbinXml.XML_ENCODING);
+                this.transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+
+                this.xmlInput = XMLInputFactory.newInstance();
+                if (this.xmlInput.isPropertySupported(REPORT_CDATA)) {
+                    this.xmlInput.setProperty(REPORT_CDATA, Boolean.TRUE);
+                }
+            } catch (ParserConfigurationException | TransformerConfigurationException e) {
+                throw new KbinXml.KBinException("Failed to set up XML parser/transformer", e);
+            }
+        }
+
+        /**
+         * A writer over this scratch's buffers; it must not be used after the scratch is released.
+         */
+        KbinWriter writer(String encoding, boolean compressed) {
+            return new KbinWriter(encoding, compressed, nodeBuf, dataBuf);
+        }
+
+        private void trim() {
+            if (nodeBuf.capacity() > MAX_RETAINED_BYTES) {
+                nodeBuf = new KBinXmlByteBuffer();
+            }
+            if (dataBuf.capacity() > MAX_RETAINED_BYTES) {
+                dataBuf = new KBinXmlByteBuffer();
+            }
+        }
+    }
+
+    static Scratch acquire() {
+        Scratch scratch = POOL.poll();
+        if (scratch == null) {
+            return new Scratch();
+        }
+        POOLED.decrementAndGet();
+        return scratch;
+    }
+
+    static void release(Scratch scratch) {
+        scratch.builder.reset();
+        scratch.trim();
+        if (POOLED.incrementAndGet() <= MAX_POOLED) {
+            POOL.offer(scratch);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+}
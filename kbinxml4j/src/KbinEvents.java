@@ -0,0 +1,107 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events, one per conversion call, so codec latency lines up with GC pauses and
+ * other activity in a recording. They are enabled by default whenever a recording is running:
+ * {@code -XX:StartFlightRecording} or {@code jcmd <pid> JFR.start}. With no recording they cost a
+ * disabled-check only.
+ */
+final class KbinEvents {
+    private KbinEvents() {
+    }
+
+    @Category("kbinxml4j")
+    @StackTrace(false)
+    abstract static class Conversion extends Event {
+        @Label("Encoding")
+        String encoding;
+
+        @Label("Compressed")
+        @Description("Node names are sixbit-packed")
+        boolean compressed;
+
+        @Label("Document Size")
+        @DataAmount
+        int documentSize;
+
+        @Label("Node Section Size")
+        @DataAmount
+        int nodeSectionSize;
+
+        @Label("Data Section Size")
+        @DataAmount
+        int dataSectionSize;
+
+        @Label("Node Count")
+        int nodeCount;
+
+        @Label("Max Depth")
+        int maxDepth;
+    }
+
+    @Name("kbinxml4j.Decode")
+    @Label("Kbin Decode")
+    @Description("kbin document decoded to a DOM")
+    static final class Decode extends Conversion {
+    }
+
+    @Name("kbinxml4j.Encode")
+    @Label("Kbin Encode")
+    @Description("DOM encoded to a kbin document")
+    static final class Encode extends Conversion {
+    }
+
+    @Name("kbinxml4j.ToText")
+    @Label("Kbin To Text")
+    @Description("DOM serialized to XML text")
+    static final class ToText extends Conversion {
+    }
+
+    @Name("kbinxml4j.FromText")
+    @Label("Kbin From Text")
+    @Description("XML text parsed to a DOM")
+    static final class FromText extends Conversion {
+    }
+
+    @Name("kbinxml4j.DecodeToText")
+    @Label("Kbin Decode To Text")
+    @Description("kbin document streamed to XML text without a DOM")
+    static final class DecodeToText extends Conversion {
+    }
+
+    @Name("kbinxml4j.EncodeFromText")
+    @Label("Kbin Encode From Text")
+    @Description("XML text streamed to a kbin document without a DOM")
+    static final class EncodeFromText extends Conversion {
+    }
+
+    @Name("kbinxml4j.DecodeToJson")
+    @Label("Kbin Decode To JSON")
+    @Description("kbin document streamed to JSON")
+    static final class DecodeToJson extends Conversion {
+    }
+
+    @Name("kbinxml4j.EncodeFromJson")
+    @Label("Kbin Encode From JSON")
+    @Description("JSON streamed to a kbin document")
+    static final class EncodeFromJson extends Conversion {
+    }
+
+    @Name("kbinxml4j.DecodeToNode")
+    @Label("Kbin Decode To XrpcNode")
+    @Description("kbin document decoded to an XrpcNode tree")
+    static final class DecodeToNode extends Conversion {
+    }
+
+    @Name("kbinxml4j.EncodeFromNode")
+    @Label("Kbin Encode From XrpcNode")
+    @Description("XrpcNode tree encoded to a kbin document")
+    static final class EncodeFromNode extends Conversion {
+    }
+}
@@ -0,0 +1,191 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Non-blocking kbin decoder for input that arrives in chunks, e.g. a request body read from the
+ * network. Chunks are pushed with {@link #feed}; {@link #next()} returns the same events as
+ * {@link KbinReader}, or {@link #NEED_INPUT} while the bytes for the next event haven't arrived yet.
+ * <p>
+ * The header fixes the document size, so the body is buffered in a single array allocated once. Sizes
+ * above {@link #getMaxDocumentSize()} are rejected as soon as the length fields arrive, before the
+ * buffer is grown, so a corrupt or hostile header can't make the decoder allocate gigabytes.
+ * Events start once the node section is complete (it only holds names and types, the values make up
+ * the bulk of a document); a node is then reported as soon as its value is in the buffer, so values
+ * can be consumed while the rest of the data section is still in flight.
+ * <pre>
+ * KbinFeedDecoder decoder = new KbinFeedDecoder();
+ * while (channel.read(chunk) != -1) {
+ *     chunk.flip();
+ *     decoder.feed(chunk);
+ *     chunk.compact();
+ *     int event;
+ *     while ((event = decoder.next()) != KbinFeedDecoder.NEED_INPUT) {
+ *         KbinReader r = decoder.getReader();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+public class KbinFeedDecoder {
+    public static final int NEED_INPUT = 0;
+    public static final int DEFAULT_MAX_DOCUMENT_SIZE = 64 << 20;
+
+    private static final int HEADER_SIZE = 8;
+
+    private final int maxDocumentSize;
+
+    private byte[] buffer = new byte[HEADER_SIZE];
+    private int received;
+    // bytes needed before the next stage can start; the full document size once the data size is known
+    private int expected = HEADER_SIZE;
+    private boolean sized;
+
+    private KbinReader reader;
+    // event already taken from the reader but held back until its value has been received
+    private int held;
+
+    /**
+     * Accepts documents of up to {@link #DEFAULT_MAX_DOCUMENT_SIZE} bytes.
+     */
+    public KbinFeedDecoder() {
+        this(DEFAULT_MAX_DOCUMENT_SIZE);
+    }
+
+    /**
+     * @param maxDocumentSize largest document accepted, header included; a header announcing more throws
+     *                        {@link KbinXml.KBinException} from {@link #feed}
+     */
+    public KbinFeedDecoder(int maxDocumentSize) {
+        if (maxDocumentSize < HEADER_SIZE + 4 || maxDocumentSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("maxDocumentSize out of range: " + maxDocumentSize);
+        }
+        this.maxDocumentSize = maxDocumentSize;
+    }
+
+    /**
+     * Buffers the bytes of {@code chunk} that belong to the document and advances its position past
+     * them. Bytes following the end of the document are left in the chunk.
+     *
+     * @return number of bytes consumed
+     * @throws KbinXml.KBinException on a bad signature, or when the header announces a document larger
+     *                               than {@link #getMaxDocumentSize()}
+     */
+    public int feed(ByteBuffer chunk) {
+        int total = 0;
+        while (chunk.hasRemaining() && received < expected) {
+            int n = Math.min(chunk.remaining(), expected - received);
+            chunk.get(buffer, received, n);
+            received += n;
+            total += n;
+            if (received == expected && !sized) {
+                advanceStage();
+            }
+        }
+        return total;
+    }
+
+    public int feed(byte[] chunk, int offset, int length) {
+        return feed(ByteBuffer.wrap(chunk, offset, length));
+    }
+
+    /**
+     * @return the next event, or {@link #NEED_INPUT} if more input has to be fed first
+     */
+    public int next() {
+        if (reader == null) {
+            return NEED_INPUT;
+        }
+        if (held == NEED_INPUT) {
+            if (!reader.hasNext() || !reader.canAdvance(received)) {
+                return NEED_INPUT;
+            }
+            held = reader.next();
+        }
+        if (received < required(held)) {
+            return NEED_INPUT;
+        }
+        int event = held;
+        held = NEED_INPUT;
+        return event;
+    }
+
+    /**
+     * @return false once {@link KbinReader#END_DOCUMENT} has been returned
+     */
+    public boolean hasNext() {
+        return reader == null || held != NEED_INPUT || reader.hasNext();
+    }
+
+    /**
+     * Reader positioned on the event last returned by {@link #next()}; use its getters only, advancing
+     * it directly would bypass the input checks.
+     */
+    public KbinReader getReader() {
+        if (reader == null) {
+            throw new IllegalStateException("Node section has not been received yet");
+        }
+        return reader;
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    /**
+     * @return the document size, or -1 while it isn't known yet
+     */
+    public int getExpectedLength() {
+        return sized ? expected : -1;
+    }
+
+    public int getMaxDocumentSize() {
+        return maxDocumentSize;
+    }
+
+    public boolean isComplete() {
+        return sized && received == expected;
+    }
+
+    // header -> node section and data size -> whole document
+    private void advanceStage() {
+        if (expected == HEADER_SIZE) {
+            int b0 = buffer[0] & 0xFF;
+            int b1 = buffer[1] & 0xFF;
+            if (b0 != KbinXml.SIGNATURE || !(b1 == KbinXml.SIG_COMPRESSED || b1 == KbinXml.SIG_UNCOMPRESSED)) {
+                throw new KbinXml.KBinException("Invalid kbin signature");
+            }
+            long nodeEnd = readU32(4) + HEADER_SIZE;
+            expected = checkedSize(nodeEnd + 4);
+        } else {
+            long dataSize = readU32(expected - 4);
+            expected = checkedSize(expected + dataSize);
+            sized = true;
+            buffer = Arrays.copyOf(buffer, expected);
+            // the reader sees the whole document; next() keeps it within what has been received
+            reader = new KbinReader(KBinXmlByteBuffer.wrap(buffer));
+            return;
+        }
+        buffer = Arrays.copyOf(buffer, expected);
+    }
+
+    private int required(int event) {
+        if (event == KbinReader.END_DOCUMENT) {
+            return expected;
+        }
+        if ((event == KbinReader.START_NODE || event == KbinReader.VALUE) && reader.hasValue()) {
+            return reader.getValueOffset() + reader.getValueSize();
+        }
+        return 0;
+    }
+
+    private long readU32(int pos) {
+        return ((buffer[pos] & 0xFFL) << 24) | ((buffer[pos + 1] & 0xFF) << 16) | ((buffer[pos + 2] & 0xFF) << 8) | (buffer[pos + 3] & 0xFF);
+    }
+
+    private int checkedSize(long size) {
+        if (size > maxDocumentSize) {
+            throw new KbinXml.KBinException("kbin document too large: " + size + " bytes, the maximum is " + maxDocumentSize);
+        }
+        return (int) size;
+    }
+}
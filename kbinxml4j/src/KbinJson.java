@@ -0,0 +1,727 @@
+import SimpleMappingModel.FormatIds;
+import SimpleMappingModel.Hex;
+import SimpleMappingModel.TextCodec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Streams kbin to JSON and JSON to kbin, driven by the node stream: no DOM, no XML text and no JSON
+ * tree in between. Every node becomes one object, in the order the node stream gives its parts:
+ * <pre>
+ * {"name":"entry","type":"s32","count":2,"value":[1,2],"attrs":{"id":"7"},"children":[...]}
+ * </pre>
+ * <ul>
+ * <li>{@code type} is the {@code __type} name; it and {@code value} are absent for void nodes.</li>
+ * <li>{@code count} is the {@code __count} of array nodes.</li>
+ * <li>{@code value} is a number for single-element scalars and an array of numbers for arrays and
+ * multi-element types. Numbers are the XML text form, so u64 stays exact and floats have 6 decimals.
+ * Strings are JSON strings, as are ip4 addresses and non-finite floats. Binary data is a hex string,
+ * or base64 when enabled.</li>
+ * <li>{@code attrs} holds the node's attributes, {@code children} its child nodes.</li>
+ * </ul>
+ * The JSON side is compact UTF-8. When reading, {@code name}, {@code type}, {@code count} and
+ * {@code value} must come before {@code attrs} and {@code children}; other keys are ignored, and
+ * {@code true}/{@code false} are accepted as 1/0. Instances are immutable and thread-safe.
+ */
+public final class KbinJson {
+    private final boolean base64Binary;
+    // null leaves only the JFR events
+    private final KbinListener listener;
+
+    public KbinJson() {
+        this(false);
+    }
+
+    /**
+     * Conversions are reported to the {@link KbinXml#setDefaultListener default listener} set when this
+     * converter is created.
+     *
+     * @param base64Binary write and read bin values as base64 instead of hex
+     */
+    public KbinJson(boolean base64Binary) {
+        this(base64Binary, KbinXml.getDefaultListener());
+    }
+
+    private KbinJson(boolean base64Binary, KbinListener listener) {
+        this.base64Binary = base64Binary;
+        this.listener = listener;
+    }
+
+    /**
+     * @return a converter with the same settings that reports every conversion to {@code listener}
+     */
+    public KbinJson withListener(KbinListener listener) {
+        return new KbinJson(base64Binary, listener);
+    }
+
+    // ---------- kbin -> JSON ----------
+
+    public String toJson(byte[] kbin) {
+        StringBuilder sb = new StringBuilder(kbin.length * 2);
+        try {
+            toJson(KBinXmlByteBuffer.wrap(kbin), sb);
+        } catch (IOException e) {
+            // a StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write the JSON of {@code kbin} to {@code out} as UTF-8; {@code out} is flushed, not closed.
+     */
+    public void toJson(byte[] kbin, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        toJson(KBinXmlByteBuffer.wrap(kbin), writer);
+        writer.flush();
+    }
+
+    /**
+     * Convert node by node, as {@link KbinXml#streamText} does for XML. Only the first top-level node is
+     * written, as in {@link KbinXml#fromBinary}.
+     */
+    public void toJson(KBinXmlByteBuffer kbin, Appendable out) throws IOException {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.DECODE_TO_JSON);
+        KbinReader reader = new KbinReader(kbin);
+        probe.lap(KbinStats.Phase.HEADER);
+
+        // per open node: whether its attrs object / children array has been opened
+        boolean[] attrsOpen = new boolean[16];
+        boolean[] childrenOpen = new boolean[16];
+        // one element's text at a time
+        StringBuilder number = new StringBuilder(24);
+        int nodeCount = 0;
+        int maxDepth = 0;
+        boolean rootDone = false;
+        while (!rootDone && reader.hasNext()) {
+            int event = reader.next();
+            probe.lap(KbinStats.Phase.NODES);
+            if (event == KbinReader.START_NODE) {
+                int level = reader.getDepth() - 1;
+                if (level > 0) {
+                    int parent = level - 1;
+                    closeAttrs(out, attrsOpen, parent);
+                    if (childrenOpen[parent]) {
+                        out.append(',');
+                    } else {
+                        out.append(",\"children\":[");
+                        childrenOpen[parent] = true;
+                    }
+                }
+                if (level == attrsOpen.length) {
+                    attrsOpen = Arrays.copyOf(attrsOpen, level * 2);
+                    childrenOpen = Arrays.copyOf(childrenOpen, level * 2);
+                }
+                attrsOpen[level] = false;
+                childrenOpen[level] = false;
+                nodeCount++;
+                maxDepth = Math.max(maxDepth, level + 1);
+
+                out.append("{\"name\":");
+                string(out, reader.getName());
+                if (reader.hasValue()) {
+                    out.append(",\"type\":");
+                    string(out, reader.getTypeName());
+                    if (reader.isArray()) {
+                        out.append(",\"count\":").append(Integer.toString(reader.getCount()));
+                    }
+                }
+            } else if (event == KbinReader.VALUE) {
+                out.append(",\"value\":");
+                value(out, reader, number);
+                probe.lap(KbinStats.Phase.DATA);
+            } else if (event == KbinReader.ATTRIBUTE) {
+                int level = reader.getDepth() - 1;
+                if (attrsOpen[level]) {
+                    out.append(',');
+                } else {
+                    out.append(",\"attrs\":{");
+                    attrsOpen[level] = true;
+                }
+                string(out, reader.getName());
+                out.append(':');
+                string(out, reader.getString());
+            } else if (event == KbinReader.END_NODE) {
+                int level = reader.getDepth();
+                closeAttrs(out, attrsOpen, level);
+                if (childrenOpen[level]) {
+                    out.append(']');
+                }
+                out.append('}');
+                rootDone = level == 0;
+            }
+            probe.lap(KbinStats.Phase.TEXT);
+        }
+        if (nodeCount == 0) {
+            // the empty wrapper element fromBinary leaves
+            out.append("{\"name\":\"root\"}");
+        }
+        probe.lap(KbinStats.Phase.OUTPUT);
+
+        probe.format(reader.getEncoding(), reader.isCompressed());
+        probe.sections(8 + reader.getNodeSectionSize() + 4 + reader.getDataSize(), reader.getNodeSectionSize(), reader.getDataSize());
+        probe.nodes(nodeCount, maxDepth);
+        probe.end();
+    }
+
+    private static void closeAttrs(Appendable out, boolean[] attrsOpen, int level) throws IOException {
+        if (attrsOpen[level]) {
+            out.append('}');
+            attrsOpen[level] = false;
+        }
+    }
+
+    private void value(Appendable out, KbinReader reader, StringBuilder number) throws IOException {
+        int type = reader.getNodeType();
+        if (type == FormatIds.STRING) {
+            string(out, reader.getText());
+            return;
+        }
+        if (type == FormatIds.BINARY) {
+            string(out, base64Binary ? Base64.getEncoder().encodeToString(reader.getBytes()) : reader.getText());
+            return;
+        }
+        // each element is formatted from the typed value by the type's codec, as the XML text is
+        FormatIds.XmlFormat format = FormatIds.format(type);
+        TextCodec text = format.text;
+        boolean quoted = "ip4".equals(format.name);
+        boolean list = reader.isArray() || format.count != 1;
+        if (list) {
+            out.append('[');
+        }
+        switch (format.kind) {
+            case 'q':
+            case 'Q': {
+                long[] values = reader.getLongArray();
+                for (int i = 0; i < values.length; i++) {
+                    integer(out, text, values[i], i, quoted, number);
+                }
+                break;
+            }
+            case 'f': {
+                float[] values = reader.getFloatArray();
+                for (int i = 0; i < values.length; i++) {
+                    decimal(out, values[i], i, number);
+                }
+                break;
+            }
+            case 'd': {
+                double[] values = reader.getDoubleArray();
+                for (int i = 0; i < values.length; i++) {
+                    decimal(out, values[i], i, number);
+                }
+                break;
+            }
+            default: {
+                // 8, 16 and 32 bit; appendInteger takes the unsigned types' bits either way
+                int[] values = reader.getIntArray();
+                for (int i = 0; i < values.length; i++) {
+                    integer(out, text, values[i], i, quoted, number);
+                }
+            }
+        }
+        if (list) {
+            out.append(']');
+        }
+    }
+
+    private static void integer(Appendable out, TextCodec text, long raw, int index, boolean quoted, StringBuilder number)
+            throws IOException {
+        if (index > 0) {
+            out.append(',');
+        }
+        number.setLength(0);
+        text.appendInteger(raw, number);
+        if (quoted) {
+            out.append('"').append(number).append('"');
+        } else {
+            out.append(number);
+        }
+    }
+
+    private static void decimal(Appendable out, double value, int index, StringBuilder number) throws IOException {
+        if (index > 0) {
+            out.append(',');
+        }
+        number.setLength(0);
+        TextCodec.appendFixed6(value, number);
+        // NaN and Infinity have no JSON number form
+        if (Double.isFinite(value)) {
+            out.append(number);
+        } else {
+            out.append('"').append(number).append('"');
+        }
+    }
+
+    private static void string(Appendable out, String s) throws IOException {
+        out.append('"');
+        int run = 0;
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.append(s, run, i);
+            run = i + 1;
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                case '\b': out.append("\\b"); break;
+                case '\f': out.append("\\f"); break;
+                default:
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        out.append(s, run, length).append('"');
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // ---------- JSON -> kbin ----------
+
+    public byte[] fromJson(Reader json, String encoding, boolean compressed) throws IOException {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.ENCODE_FROM_JSON);
+        KbinCodec.Scratch scratch = KbinCodec.acquire();
+        try {
+            KbinWriter writer = scratch.writer(encoding, compressed);
+            readDocument(new JsonLexer(json), writer);
+            probe.lap(KbinStats.Phase.WRITE);
+            byte[] out = writer.toByteArray();
+            probe.lap(KbinStats.Phase.OUTPUT);
+            endEncode(probe, writer, encoding, compressed);
+            return out;
+        } finally {
+            KbinCodec.release(scratch);
+        }
+    }
+
+    /**
+     * Encode UTF-8 JSON read from {@code json} and write the kbin to {@code out}. Neither stream is
+     * closed; memory use is the encoded document, not the JSON.
+     *
+     * @return number of bytes written
+     */
+    public long fromJson(InputStream json, OutputStream out, String encoding, boolean compressed) throws IOException {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.ENCODE_FROM_JSON);
+        KbinCodec.Scratch scratch = KbinCodec.acquire();
+        try {
+            KbinWriter writer = scratch.writer(encoding, compressed);
+            readDocument(new JsonLexer(new InputStreamReader(json, StandardCharsets.UTF_8)), writer);
+            probe.lap(KbinStats.Phase.WRITE);
+            long written = writer.writeTo(out);
+            probe.lap(KbinStats.Phase.OUTPUT);
+            endEncode(probe, writer, encoding, compressed);
+            return written;
+        } finally {
+            KbinCodec.release(scratch);
+        }
+    }
+
+    private static void endEncode(KbinProbe probe, KbinWriter writer, String encoding, boolean compressed) {
+        probe.format(encoding, compressed);
+        probe.sections(writer.getLength(), writer.getNodeSectionSize(), writer.getDataSize());
+        probe.nodes(writer.getNodeCount(), writer.getMaxDepth());
+        probe.end();
+    }
+
+    private void readDocument(JsonLexer in, KbinWriter writer) throws IOException {
+        readNode(in, writer);
+        if (in.peek() != -1) {
+            throw in.error("Unexpected content after the root node");
+        }
+    }
+
+    private void readNode(JsonLexer in, KbinWriter writer) throws IOException {
+        in.expect('{');
+        String name = null;
+        String type = null;
+        String value = null;
+        // a numeric value read after its type, already in the type's array form
+        Object values = null;
+        int count = -1;
+        boolean started = false;
+        if (!in.consume('}')) {
+            do {
+                String key = in.string();
+                in.expect(':');
+                switch (key) {
+                    case "name":
+                    case "type":
+                    case "count":
+                    case "value":
+                        if (started) {
+                            throw in.error("\"" + key + "\" must come before \"attrs\" and \"children\"");
+                        }
+                        if (key.equals("name")) {
+                            name = in.string();
+                        } else if (key.equals("type")) {
+                            type = in.string();
+                        } else if (key.equals("count")) {
+                            count = in.count();
+                        } else {
+                            TextCodec text = numberCodec(type);
+                            if (text != null) {
+                                values = in.values(text);
+                            } else {
+                                value = in.valueText();
+                            }
+                        }
+                        break;
+                    case "attrs":
+                        if (!started) {
+                            startNode(in, writer, name, type, count, value, values);
+                            started = true;
+                        }
+                        in.expect('{');
+                        if (!in.consume('}')) {
+                            do {
+                                String attr = in.string();
+                                in.expect(':');
+                                writer.attr(attr, in.string());
+                            } while (in.consume(','));
+                            in.expect('}');
+                        }
+                        break;
+                    case "children":
+                        if (!started) {
+                            startNode(in, writer, name, type, count, value, values);
+                            started = true;
+                        }
+                        in.expect('[');
+                        if (!in.consume(']')) {
+                            do {
+                                readNode(in, writer);
+                            } while (in.consume(','));
+                            in.expect(']');
+                        }
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            } while (in.consume(','));
+            in.expect('}');
+        }
+        if (!started) {
+            startNode(in, writer, name, type, count, value, values);
+        }
+        writer.endNode();
+    }
+
+    private void startNode(JsonLexer in, KbinWriter writer, String name, String type, int count, String value, Object values) {
+        if (name == null) {
+            throw in.error("Node without a \"name\"");
+        }
+        if (values != null) {
+            int length = Array.getLength(values);
+            if (count >= 0 && length != count * FormatIds.format(FormatIds.XML_TYPES.get(type)).count) {
+                throw in.error("\"count\" " + count + " does not match " + length + " values");
+            }
+            writer.startNodeValues(name, type, count >= 0, values);
+            return;
+        }
+        if (type == null) {
+            type = value == null ? "void" : "str";
+        }
+        if (base64Binary && value != null && Integer.valueOf(FormatIds.BINARY).equals(FormatIds.XML_TYPES.get(type))) {
+            value = Hex.encode(Base64.getDecoder().decode(value));
+        }
+        writer.startNode(name, type, count, value);
+    }
+
+    // codec of a numeric node type, null for str, bin, void, unknown types or no type yet
+    private static TextCodec numberCodec(String type) {
+        Integer id = type == null ? null : FormatIds.XML_TYPES.get(type);
+        FormatIds.XmlFormat format = id == null ? null : FormatIds.format(id);
+        return format == null ? null : format.text;
+    }
+
+    /**
+     * Pull tokenizer over just the JSON this format needs. Numeric values are parsed from their lexeme
+     * straight into the node type's array, so u64 and float text round-trip exactly.
+     */
+    private static final class JsonLexer {
+        private final Reader in;
+        private final char[] buf = new char[8192];
+        private int pos;
+        private int limit;
+        private long offset;
+        private final StringBuilder sb = new StringBuilder();
+
+        JsonLexer(Reader in) {
+            this.in = in;
+        }
+
+        private int read() throws IOException {
+            if (pos == limit) {
+                offset += limit;
+                limit = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buf[pos++];
+        }
+
+        // next non-whitespace character without consuming it, -1 at the end
+        int peek() throws IOException {
+            while (true) {
+                int c = read();
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    if (c != -1) {
+                        pos--;
+                    }
+                    return c;
+                }
+            }
+        }
+
+        boolean consume(char c) throws IOException {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) throws IOException {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        String string() throws IOException {
+            expect('"');
+            sb.setLength(0);
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw error("Unterminated string");
+                }
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append((char) c);
+                    continue;
+                }
+                c = read();
+                switch (c) {
+                    case '"': case '\\': case '/': sb.append((char) c); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u': {
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw error("Bad \\u escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        sb.append((char) code);
+                        break;
+                    }
+                    default:
+                        throw error("Bad escape");
+                }
+            }
+        }
+
+        String number() throws IOException {
+            lexeme();
+            return sb.toString();
+        }
+
+        // the number's characters into sb
+        private void lexeme() throws IOException {
+            int c = peek();
+            if (c != '-' && (c < '0' || c > '9')) {
+                throw error("Expected a number");
+            }
+            sb.setLength(0);
+            while (true) {
+                c = read();
+                if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                    sb.append((char) c);
+                } else {
+                    if (c != -1) {
+                        pos--;
+                    }
+                    return;
+                }
+            }
+        }
+
+        int count() throws IOException {
+            String number = number();
+            try {
+                return Integer.parseInt(number);
+            } catch (NumberFormatException e) {
+                throw error("Bad count " + number);
+            }
+        }
+
+        private void literal(String word) throws IOException {
+            for (int i = 0; i < word.length(); i++) {
+                if (read() != word.charAt(i)) {
+                    throw error("Expected " + word);
+                }
+            }
+        }
+
+        // a node value in XML text form: scalars as is, arrays space-separated, null for no value
+        String valueText() throws IOException {
+            if (consume('[')) {
+                StringBuilder text = new StringBuilder();
+                if (!consume(']')) {
+                    do {
+                        if (text.length() > 0) {
+                            text.append(' ');
+                        }
+                        String token = scalar();
+                        if (token == null) {
+                            throw error("null in a value array");
+                        }
+                        text.append(token);
+                    } while (consume(','));
+                    expect(']');
+                }
+                return text.toString();
+            }
+            return scalar();
+        }
+
+        /**
+         * A numeric node value, a single element or an array of them, parsed into {@code text}'s array
+         * type. Elements are numbers, numeric strings (ip4 addresses, NaN) or booleans; a single string
+         * may also hold the space-separated XML text of several elements.
+         */
+        Object values(TextCodec text) throws IOException {
+            if (peek() == '"') {
+                string();
+                try {
+                    return text.parse(sb);
+                } catch (IllegalArgumentException e) {
+                    throw error("Bad value " + sb);
+                }
+            }
+            if (!consume('[')) {
+                Object values = text.newArray(1);
+                element(text, values, 0);
+                return values;
+            }
+            Object values = text.newArray(8);
+            int n = 0;
+            if (!consume(']')) {
+                do {
+                    if (n == Array.getLength(values)) {
+                        values = resize(text, values, n * 2, n);
+                    }
+                    element(text, values, n++);
+                } while (consume(','));
+                expect(']');
+            }
+            return n == Array.getLength(values) ? values : resize(text, values, n, n);
+        }
+
+        private static Object resize(TextCodec text, Object values, int length, int used) {
+            Object resized = text.newArray(length);
+            System.arraycopy(values, 0, resized, 0, used);
+            return resized;
+        }
+
+        private void element(TextCodec text, Object values, int index) throws IOException {
+            int c = peek();
+            if (c == '"') {
+                string();
+            } else if (c == 't') {
+                literal("true");
+                sb.setLength(0);
+                sb.append('1');
+            } else if (c == 'f') {
+                literal("false");
+                sb.setLength(0);
+                sb.append('0');
+            } else if (c == 'n') {
+                throw error("null in a numeric value");
+            } else {
+                lexeme();
+            }
+            try {
+                text.parseInto(values, index, sb, 0, sb.length());
+            } catch (IllegalArgumentException e) {
+                throw error("Bad value " + sb);
+            }
+        }
+
+        private String scalar() throws IOException {
+            int c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == 't') {
+                literal("true");
+                return "1";
+            }
+            if (c == 'f') {
+                literal("false");
+                return "0";
+            }
+            if (c == 'n') {
+                literal("null");
+                return null;
+            }
+            return number();
+        }
+
+        void skipValue() throws IOException {
+            int c = peek();
+            if (c == '{') {
+                pos++;
+                if (!consume('}')) {
+                    do {
+                        string();
+                        expect(':');
+                        skipValue();
+                    } while (consume(','));
+                    expect('}');
+                }
+            } else if (c == '[') {
+                pos++;
+                if (!consume(']')) {
+                    do {
+                        skipValue();
+                    } while (consume(','));
+                    expect(']');
+                }
+            } else {
+                scalar();
+            }
+        }
+
+        KbinXml.KBinException error(String message) {
+            return new KbinXml.KBinException(message + " at JSON offset " + (offset + pos));
+        }
+    }
+}
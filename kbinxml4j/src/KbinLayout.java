@@ -0,0 +1,128 @@
+import SimpleMappingModel.FormatIds;
+import SimpleMappingModel.Hex;
+import SimpleMappingModel.TextCodec;
+
+import java.nio.charset.Charset;
+
+/**
+ * Sizing pass for {@link KbinWriter}: takes the same calls ({@link #startNode}, {@link #attr},
+ * {@link #endNode}) and computes the exact node- and data-section lengths the writer would produce,
+ * without encoding any values. Strings and names are measured in the target encoding; numeric text is
+ * only tokenized, not parsed, so malformed values are reported by the writer, not here.
+ */
+class KbinLayout {
+    private final Charset charset;
+    private final KbinNameCache names;
+
+    private int nodeSize;
+    private int dataSize;
+    // same cursors as KbinWriter.packedSlot
+    private int dataByteOffset;
+    private int dataWordOffset;
+
+    KbinLayout(String encoding, boolean compressed) {
+        this.charset = KbinWriter.charsetFor(encoding);
+        // the writer's cache: measuring here warms it for the write that follows
+        this.names = KbinNameCache.shared(charset, compressed);
+    }
+
+    /**
+     * Counterpart of {@link KbinWriter#startNode(String, String, int, String)}.
+     */
+    void startNode(String name, String type, int count, String text) {
+        Integer nodeId = FormatIds.XML_TYPES.get(type);
+        if (nodeId == null) {
+            throw new KbinXml.KBinException("Unknown node type: " + type);
+        }
+        nodeSize += 1 + nameSize(name);
+        if (nodeId == FormatIds.VOID) {
+            return;
+        }
+        FormatIds.XmlFormat fmt = FormatIds.format(nodeId);
+        if (fmt == null) throw new KbinXml.KBinException("Missing format for nodeId " + nodeId);
+        if (text == null) text = "";
+
+        if ("bin".equals(fmt.name)) {
+            sized(Hex.decodedLength(text));
+        } else if ("str".equals(fmt.name)) {
+            string(text);
+        } else if (count >= 0) {
+            sized(TextCodec.countTokens(text) * fmt.elementSize);
+        } else if (!packed(fmt.size)) {
+            dataSize = align(dataSize + fmt.size);
+        }
+    }
+
+    void attr(String key, String value) {
+        string(value);
+        nodeSize += 1 + nameSize(key);
+    }
+
+    void endNode() {
+        nodeSize += 1;
+    }
+
+    /**
+     * @return length of the node section as stored in the header: all nodes plus endSection, aligned to 4
+     */
+    int getNodeSize() {
+        return align(nodeSize + 1);
+    }
+
+    /**
+     * @return length of the data section, excluding its own length field
+     */
+    int getDataSize() {
+        return dataSize;
+    }
+
+    /**
+     * @return length of the whole document: header, node section, data length field and data section
+     */
+    int getTotalSize() {
+        return 8 + getNodeSize() + 4 + dataSize;
+    }
+
+    private int nameSize(String name) {
+        return names.encode(name).length;
+    }
+
+    // NUL-terminated string, as KbinWriter.appendString
+    private void string(String value) {
+        sized(value.getBytes(charset).length + 1);
+    }
+
+    // length-prefixed bytes, as KbinWriter.appendSized
+    private void sized(int length) {
+        dataSize = align(dataSize + 4 + length);
+    }
+
+    // KbinWriter.packedSlot; returns whether the value went into a shared byte/word slot
+    private boolean packed(int size) {
+        if (dataByteOffset % 4 == 0) {
+            dataByteOffset = dataSize;
+        }
+        if (dataWordOffset % 4 == 0) {
+            dataWordOffset = dataSize;
+        }
+        if (size == 1) {
+            if (dataByteOffset % 4 == 0) {
+                dataSize += 4;
+            }
+            dataByteOffset += 1;
+            return true;
+        }
+        if (size == 2) {
+            if (dataWordOffset % 4 == 0) {
+                dataSize += 4;
+            }
+            dataWordOffset += 2;
+            return true;
+        }
+        return false;
+    }
+
+    private static int align(int size) {
+        return (size + 3) & ~3;
+    }
+}
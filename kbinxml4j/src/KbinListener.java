@@ -0,0 +1,13 @@
+/**
+ * Receives the statistics of each conversion. Install one per instance with
+ * {@link KbinXml#setListener}, per codec with {@link KbinCodec#withListener}, or process-wide with
+ * {@link KbinXml#setDefaultListener}.
+ * <p>
+ * With no listener installed, nothing is timed or allocated for statistics. With one, each phase
+ * boundary costs a {@link System#nanoTime()} call. The listener runs on the converting thread after a
+ * successful call, so it must be thread-safe and quick.
+ */
+@FunctionalInterface
+public interface KbinListener {
+    void onComplete(KbinStats stats);
+}
@@ -0,0 +1,110 @@
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared, thread-safe cache of node and attribute names in their node-section form: the length byte
+ * followed by the sixbit-packed or charset-encoded name, ready to be copied into the node buffer as is.
+ * There is one cache per name encoding, see {@link #shared(Charset, boolean)}, used by every
+ * {@link KbinWriter} and {@link KbinXml} encode.
+ * <p>
+ * The cache holds at most {@link #getMaxEntries()} names. When a new name would exceed that, the cache
+ * is cleared and refills from the names in use, so a burst of one-off names cannot pin memory or crowd
+ * out the steady vocabulary for long. {@link #getHits()}, {@link #getMisses()} and {@link #getClears()}
+ * show how well it works for real traffic.
+ */
+public final class KbinNameCache {
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private static final KbinNameCache SIXBIT = new KbinNameCache(null, DEFAULT_MAX_ENTRIES);
+    private static final ConcurrentHashMap<Charset, KbinNameCache> ENCODED = new ConcurrentHashMap<>();
+
+    // null for sixbit
+    private final Charset charset;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, byte[]> names = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder clears = new LongAdder();
+
+    private KbinNameCache(Charset charset, int maxEntries) {
+        this.charset = charset;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param charset    name encoding of uncompressed documents, ignored when {@code compressed}
+     * @param compressed whether names are sixbit-packed
+     * @return the cache shared by all encoders writing names this way
+     */
+    public static KbinNameCache shared(Charset charset, boolean compressed) {
+        if (compressed) {
+            return SIXBIT;
+        }
+        return ENCODED.computeIfAbsent(charset, c -> new KbinNameCache(c, DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * @return the name as written to the node section, length byte included; callers must not modify it
+     * @throws IllegalArgumentException when a sixbit name is too long or has characters sixbit can't hold
+     */
+    byte[] encode(String name) {
+        byte[] encoded = names.get(name);
+        if (encoded != null) {
+            hits.increment();
+            return encoded;
+        }
+        misses.increment();
+        encoded = charset == null ? sixbit(name) : encoded(name);
+        if (names.size() >= maxEntries) {
+            names.clear();
+            clears.increment();
+        }
+        names.put(name, encoded);
+        return encoded;
+    }
+
+    private static byte[] sixbit(String name) {
+        KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+        Sixbit.packSixBit(name, buf);
+        return buf.toByteArray();
+    }
+
+    private byte[] encoded(String name) {
+        byte[] bytes = name.getBytes(charset);
+        byte[] encoded = new byte[1 + bytes.length];
+        encoded[0] = (byte) (((bytes.length - 1) & 0xFF) | 64);
+        System.arraycopy(bytes, 0, encoded, 1, bytes.length);
+        return encoded;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return how often the cache was full and started over
+     */
+    public long getClears() {
+        return clears.sum();
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public String toString() {
+        return "KbinNameCache{" + (charset == null ? "sixbit" : charset.name())
+                + ", size=" + size() + "/" + maxEntries
+                + ", hits=" + getHits() + ", misses=" + getMisses() + ", clears=" + getClears() + "}";
+    }
+}
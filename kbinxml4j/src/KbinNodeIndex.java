@@ -0,0 +1,304 @@
+import SimpleMappingModel.FormatIds;
+
+import java.io.*;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Index of every node and attribute in a kbin document: its path, type, count and the resolved
+ * position of its value in the data section (after the byte/word packing described in
+ * {@link KbinReader}). Built with one pass of {@link KbinReader}; can be saved as a
+ * sidecar file so later lookups decode only the requested values straight from the original bytes.
+ * <p>
+ * Paths are slash separated from the root, e.g. {@code /music/entry/title}; attributes add
+ * {@code /@name}. Repeated siblings share a path and are returned in document order. Uncompressed
+ * names may contain any character: a {@code /} or {@code \} in a name, and an {@code @} starting a node
+ * name, are escaped with a backslash, so node {@code a/b} is {@code /root/a\/b}.
+ */
+public class KbinNodeIndex {
+    private static final int MAGIC = 0x4B424958; // "KBIX"
+    private static final int VERSION = 2;
+    private static final int ATTR = FormatIds.ATTR;
+
+    public static final class Entry {
+        public final String path;
+        public final String name;
+        public final int nodeType;
+        public final boolean array;
+        public final int count;
+        public final int valueCount;
+        // -1 for nodes without a value
+        public final int valueOffset;
+        public final int valueSize;
+        public final int depth;
+
+        Entry(String path, String name, int nodeType, boolean array, int count, int valueCount, int valueOffset, int valueSize, int depth) {
+            this.path = path;
+            this.name = name;
+            this.nodeType = nodeType;
+            this.array = array;
+            this.count = count;
+            this.valueCount = valueCount;
+            this.valueOffset = valueOffset;
+            this.valueSize = valueSize;
+            this.depth = depth;
+        }
+
+        public boolean isAttribute() {
+            return nodeType == ATTR;
+        }
+
+        public String getTypeName() {
+            FormatIds.XmlFormat format = FormatIds.format(nodeType);
+            return format == null ? null : format.name;
+        }
+
+        @Override
+        public String toString() {
+            return path + " (" + getTypeName() + (array ? ", count " + count : "") + " @" + valueOffset + ")";
+        }
+    }
+
+    private final int documentLength;
+    // CRC32 of the whole document: value offsets depend on the node section and on the
+    // length-prefixed strings and arrays of the data section
+    private final long documentCrc;
+    // last input that passed matches(), so repeated open() calls on it are not hashed again
+    private volatile WeakReference<Object> verified = new WeakReference<>(null);
+    private final List<Entry> entries;
+    private final Map<String, List<Entry>> byPath = new HashMap<>();
+
+    private KbinNodeIndex(int documentLength, long documentCrc, List<Entry> entries) {
+        this.documentLength = documentLength;
+        this.documentCrc = documentCrc;
+        this.entries = Collections.unmodifiableList(entries);
+        for (Entry e : entries) {
+            byPath.computeIfAbsent(e.path, k -> new ArrayList<>(1)).add(e);
+        }
+    }
+
+    // ---------- building ----------
+
+    public static KbinNodeIndex build(byte[] input) {
+        return build(KBinXmlByteBuffer.wrap(input));
+    }
+
+    public static KbinNodeIndex build(KBinXmlByteBuffer input) {
+        KbinReader reader = new KbinReader(input);
+        List<Entry> entries = new ArrayList<>();
+        String[] paths = new String[16];
+        int depth = 0;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == KbinReader.START_NODE) {
+                String parent = depth == 0 ? "" : paths[depth - 1];
+                if (depth == paths.length) {
+                    paths = Arrays.copyOf(paths, depth * 2);
+                }
+                String path = parent + "/" + escape(reader.getName(), true);
+                paths[depth++] = path;
+                entries.add(new Entry(path, reader.getName(), reader.getNodeType(), reader.isArray(), reader.getCount(),
+                        reader.getValueCount(), reader.hasValue() ? reader.getValueOffset() : -1, reader.getValueSize(), depth));
+            } else if (event == KbinReader.ATTRIBUTE) {
+                if (depth == 0) continue;
+                entries.add(new Entry(paths[depth - 1] + "/@" + escape(reader.getName(), false), reader.getName(), ATTR, false, 1,
+                        reader.getValueSize(), reader.getValueOffset(), reader.getValueSize(), depth));
+            } else if (event == KbinReader.END_NODE) {
+                paths[--depth] = null;
+            }
+        }
+        return new KbinNodeIndex(input.length(), documentCrc(input), entries);
+    }
+
+    // ---------- lookups ----------
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public List<Entry> find(String path) {
+        return byPath.getOrDefault(path, Collections.emptyList());
+    }
+
+    public Entry first(String path) {
+        List<Entry> found = find(path);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * @return whether this index was built from a document with the same length and CRC32 as the given input
+     */
+    public boolean matches(KBinXmlByteBuffer input) {
+        return input.length() == documentLength && documentCrc(input) == documentCrc;
+    }
+
+    public boolean matches(byte[] input) {
+        return matches(KBinXmlByteBuffer.wrap(input));
+    }
+
+    public KbinReader open(byte[] input, Entry entry) {
+        KBinXmlByteBuffer buf = KBinXmlByteBuffer.wrap(input);
+        verify(input, buf);
+        return positionAt(buf, entry);
+    }
+
+    /**
+     * Decode a single entry from the original document. The returned reader sits on the entry's
+     * VALUE (or ATTRIBUTE) event; use its typed getters, it cannot advance.
+     * <p>
+     * The input is checked with {@link #matches} the first time it is passed; passing the same buffer
+     * (or array) again skips the check, so don't modify it in between.
+     *
+     * @throws KbinXml.KBinException when the input is not the document this index was built from
+     */
+    public KbinReader open(KBinXmlByteBuffer input, Entry entry) {
+        verify(input, input);
+        return positionAt(input, entry);
+    }
+
+    private void verify(Object key, KBinXmlByteBuffer input) {
+        if (verified.get() == key) {
+            return;
+        }
+        if (input.length() != documentLength) {
+            throw new KbinXml.KBinException("Index was built for a document of " + documentLength + " bytes, got " + input.length());
+        }
+        if (documentCrc(input) != documentCrc) {
+            throw new KbinXml.KBinException("Index was built for a different document (CRC32 mismatch)");
+        }
+        verified = new WeakReference<>(key);
+    }
+
+    private static KbinReader positionAt(KBinXmlByteBuffer input, Entry entry) {
+        KbinReader reader = new KbinReader(input);
+        reader.positionAt(entry.name, entry.nodeType, entry.array, entry.count, entry.valueCount, entry.valueOffset, entry.valueSize);
+        return reader;
+    }
+
+    // ---------- sidecar persistence ----------
+
+    public void save(Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            save(out);
+        }
+    }
+
+    public void save(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(documentLength);
+        out.writeLong(documentCrc);
+
+        // paths repeat heavily, so they are stored once and referenced by index
+        Map<String, Integer> pathIds = new LinkedHashMap<>();
+        for (Entry e : entries) {
+            pathIds.putIfAbsent(e.path, pathIds.size());
+        }
+        out.writeInt(pathIds.size());
+        for (String path : pathIds.keySet()) {
+            out.writeUTF(path);
+        }
+
+        out.writeInt(entries.size());
+        for (Entry e : entries) {
+            out.writeInt(pathIds.get(e.path));
+            // not derivable from the path once names are escaped
+            out.writeUTF(e.name);
+            out.writeByte(e.nodeType);
+            out.writeBoolean(e.array);
+            out.writeInt(e.count);
+            out.writeInt(e.valueCount);
+            out.writeInt(e.valueOffset);
+            out.writeInt(e.valueSize);
+            out.writeShort(e.depth);
+        }
+        out.flush();
+    }
+
+    public static KbinNodeIndex load(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return load(in);
+        }
+    }
+
+    public static KbinNodeIndex load(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a kbin index file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported kbin index version " + version);
+        }
+        int documentLength = in.readInt();
+        long crc = in.readLong();
+
+        String[] paths = new String[in.readInt()];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = in.readUTF();
+        }
+
+        int size = in.readInt();
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String path = paths[in.readInt()];
+            String name = in.readUTF();
+            int nodeType = in.readUnsignedByte();
+            boolean array = in.readBoolean();
+            int count = in.readInt();
+            int valueCount = in.readInt();
+            int valueOffset = in.readInt();
+            int valueSize = in.readInt();
+            int depth = in.readShort();
+            entries.add(new Entry(path, name, nodeType, array, count, valueCount, valueOffset, valueSize, depth));
+        }
+        return new KbinNodeIndex(documentLength, crc, entries);
+    }
+
+    // ---------- helpers ----------
+
+    private static long documentCrc(KBinXmlByteBuffer input) {
+        // in chunks, so a memory-mapped document is not copied to the heap
+        KBinXmlByteBuffer view = input.duplicate();
+        view.setOffset(0);
+        byte[] chunk = new byte[Math.min(input.length(), 64 * 1024)];
+        CRC32 crc = new CRC32();
+        for (int remaining = input.length(); remaining > 0; ) {
+            int n = Math.min(remaining, chunk.length);
+            view.getBytes(chunk, 0, n);
+            crc.update(chunk, 0, n);
+            remaining -= n;
+        }
+        return crc.getValue();
+    }
+
+    // path segment for a name: '\' and '/' are escaped, and '@' when it starts a node name
+    private static String escape(String name, boolean node) {
+        boolean plain = !(node && name.startsWith("@"));
+        for (int i = 0; plain && i < name.length(); i++) {
+            char c = name.charAt(i);
+            plain = c != '/' && c != '\\';
+        }
+        if (plain) {
+            return name;
+        }
+        StringBuilder sb = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '/' || c == '\\' || (c == '@' && node && i == 0)) {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
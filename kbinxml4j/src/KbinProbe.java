@@ -0,0 +1,110 @@
+/**
+ * Instrumentation of one conversion call: always a JFR event, and when a listener is installed also
+ * {@link KbinStats} with phase timings. Without a listener {@link #lap} is a null check and no clock
+ * is read.
+ */
+final class KbinProbe {
+    private final KbinListener listener;
+    private final KbinStats stats;
+    private final KbinEvents.Conversion event;
+    private final long start;
+    private long mark;
+
+    private String encoding;
+    private boolean compressed;
+    private int documentSize = -1;
+    private int nodeSectionSize = -1;
+    private int dataSectionSize = -1;
+    private int nodeCount;
+    private int maxDepth;
+
+    KbinProbe(KbinListener listener, KbinStats.Operation operation) {
+        this.listener = listener;
+        this.stats = listener == null ? null : new KbinStats(operation);
+        switch (operation) {
+            case DECODE:
+                event = new KbinEvents.Decode();
+                break;
+            case ENCODE:
+                event = new KbinEvents.Encode();
+                break;
+            case TO_TEXT:
+                event = new KbinEvents.ToText();
+                break;
+            case FROM_TEXT:
+                event = new KbinEvents.FromText();
+                break;
+            case DECODE_TO_TEXT:
+                event = new KbinEvents.DecodeToText();
+                break;
+            case ENCODE_FROM_TEXT:
+                event = new KbinEvents.EncodeFromText();
+                break;
+            case DECODE_TO_JSON:
+                event = new KbinEvents.DecodeToJson();
+                break;
+            case ENCODE_FROM_JSON:
+                event = new KbinEvents.EncodeFromJson();
+                break;
+            case DECODE_TO_NODE:
+                event = new KbinEvents.DecodeToNode();
+                break;
+            default:
+                event = new KbinEvents.EncodeFromNode();
+                break;
+        }
+        event.begin();
+        start = mark = stats == null ? 0 : System.nanoTime();
+    }
+
+    // time since the previous lap (or the start) is charged to phase
+    void lap(KbinStats.Phase phase) {
+        if (stats != null) {
+            long now = System.nanoTime();
+            stats.add(phase, now - mark);
+            mark = now;
+        }
+    }
+
+    void format(String encoding, boolean compressed) {
+        this.encoding = encoding;
+        this.compressed = compressed;
+    }
+
+    void sections(int documentSize, int nodeSectionSize, int dataSectionSize) {
+        this.documentSize = documentSize;
+        this.nodeSectionSize = nodeSectionSize;
+        this.dataSectionSize = dataSectionSize;
+    }
+
+    void nodes(int nodeCount, int maxDepth) {
+        this.nodeCount = nodeCount;
+        this.maxDepth = maxDepth;
+    }
+
+    // call once the conversion succeeded
+    void end() {
+        event.end();
+        if (event.shouldCommit()) {
+            event.encoding = encoding;
+            event.compressed = compressed;
+            event.documentSize = documentSize;
+            event.nodeSectionSize = nodeSectionSize;
+            event.dataSectionSize = dataSectionSize;
+            event.nodeCount = nodeCount;
+            event.maxDepth = maxDepth;
+            event.commit();
+        }
+        if (stats != null) {
+            stats.totalNanos = System.nanoTime() - start;
+            stats.encoding = encoding;
+            stats.compressed = compressed;
+            stats.documentSize = documentSize;
+            stats.nodeSectionSize = nodeSectionSize;
+            stats.dataSectionSize = dataSectionSize;
+            stats.nodeCount = nodeCount;
+            stats.maxDepth = maxDepth;
+            listener.onComplete(stats);
+        }
+    }
+}
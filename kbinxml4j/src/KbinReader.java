@@ -0,0 +1,657 @@
+import SimpleMappingModel.FormatIds;
+import SimpleMappingModel.Hex;
+import SimpleMappingModel.TextCodec;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull parser over a binary kbin document. Walks the node section once and resolves each value's
+ * position in the data section, but only decodes a value when one of the getters asks for it. Memory
+ * use is proportional to depth.
+ * <p>
+ * Values are laid out with kbin's byte/word packing: 1-byte and 2-byte values fill shared 4-byte words
+ * (one word for bytes, one for 16-bit values, each started at the data cursor when the previous one is
+ * full), everything else is appended at the data cursor and padded to 4 bytes.
+ * <p>
+ * Event order per node follows the binary layout: {@link #START_NODE}, then {@link #VALUE} for typed
+ * nodes, then one {@link #ATTRIBUTE} per attribute, then the children, then {@link #END_NODE}.
+ */
+public class KbinReader {
+    public static final int START_NODE = 1;
+    public static final int ATTRIBUTE = 2;
+    public static final int VALUE = 3;
+    public static final int END_NODE = 4;
+    public static final int END_DOCUMENT = 5;
+
+    private static final int NODE_START = FormatIds.NODE_START;
+    private static final int NODE_END = FormatIds.NODE_END;
+    private static final int END_SECTION = FormatIds.END_SECTION;
+    private static final int ATTR = FormatIds.ATTR;
+    private static final int BINARY = FormatIds.BINARY;
+    private static final int STRING = FormatIds.STRING;
+
+    private final KBinXmlByteBuffer nodeBuf;
+    private final KBinXmlByteBuffer dataBuf;
+    private final KBinXmlByteBuffer dataByteBuf;
+    private final KBinXmlByteBuffer dataWordBuf;
+    // cursor used by the getters so decoding a value never disturbs the section cursors
+    private final KBinXmlByteBuffer valueBuf;
+
+    private final boolean compressed;
+    private final String encoding;
+    // name cache and reused charset decoder
+    private final KbinStringDecoder strings;
+    private final int dataSize;
+    private final int nodeSectionSize;
+
+    // reused by getText()
+    private final StringBuilder textBuf = new StringBuilder();
+    private String[] nameStack = new String[16];
+    private int depth;
+
+    private int event;
+    // set for readers positioned from a KbinNodeIndex entry; those only serve the getters
+    private boolean detached;
+    private boolean pendingValue;
+    private String name;
+    private int nodeType;
+    private FormatIds.XmlFormat format;
+    private String attrValue;
+
+    // value layout of the current node
+    private boolean array;
+    private int arrayCount;
+    private int valueCount;
+    private int valueOffset;
+    private int valueSize;
+
+    private KbinTracer tracer;
+
+    public KbinReader(byte[] input) {
+        this(KBinXmlByteBuffer.wrap(input));
+    }
+
+    // memory-maps the file instead of reading it onto the heap
+    public KbinReader(Path file) throws IOException {
+        this(KBinXmlByteBuffer.map(file));
+    }
+
+    /**
+     * @param input buffer whose logical offset 0 is the start of the kbin header; it is not modified
+     */
+    public KbinReader(KBinXmlByteBuffer input) {
+        this.nodeBuf = input.duplicate();
+        this.nodeBuf.setOffset(0);
+        this.nodeBuf.setEnd(input.length());
+
+        if (this.nodeBuf.getU8() != KbinXml.SIGNATURE)
+            throw new KbinXml.KBinException("Invalid kbin signature");
+
+        int compress = this.nodeBuf.getU8();
+        if (!(compress == KbinXml.SIG_COMPRESSED || compress == KbinXml.SIG_UNCOMPRESSED))
+            throw new KbinXml.KBinException("Invalid kbin compression flag: " + compress);
+        this.compressed = compress == KbinXml.SIG_COMPRESSED;
+
+        int encodingKey = this.nodeBuf.getU8();
+        if (this.nodeBuf.getU8() != (0xFF ^ encodingKey))
+            throw new KbinXml.KBinException("Invalid kbin encoding check byte");
+        this.encoding = KbinXml.encoding_strings.getOrDefault(encodingKey, KbinXml.XML_ENCODING);
+        this.strings = new KbinStringDecoder(Charset.forName(this.encoding), this.compressed);
+
+        this.nodeSectionSize = this.nodeBuf.getU32();
+        int nodeEnd = nodeSectionSize + 8;
+        this.nodeBuf.setEnd(nodeEnd);
+
+        this.dataBuf = input.duplicate();
+        this.dataBuf.setOffset(nodeEnd);
+        this.dataSize = this.dataBuf.getU32();
+
+        this.dataByteBuf = input.duplicate();
+        this.dataByteBuf.setOffset(nodeEnd);
+        this.dataWordBuf = input.duplicate();
+        this.dataWordBuf.setOffset(nodeEnd);
+        this.valueBuf = input.duplicate();
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public int getDataSize() {
+        return dataSize;
+    }
+
+    /**
+     * Report every node-section record read from now on to {@code tracer}; null turns tracing off.
+     */
+    public void setTracer(KbinTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * @return node section length as stored in the header
+     */
+    public int getNodeSectionSize() {
+        return nodeSectionSize;
+    }
+
+    // ---------- cursor ----------
+
+    public boolean hasNext() {
+        return event != END_DOCUMENT;
+    }
+
+    public int next() {
+        if (event == END_DOCUMENT) {
+            throw new NoSuchElementException("End of kbin document reached");
+        }
+        if (detached) {
+            throw new IllegalStateException("Reader positioned from an index entry cannot advance");
+        }
+        if (pendingValue) {
+            pendingValue = false;
+            return event = VALUE;
+        }
+        attrValue = null;
+
+        while (this.nodeBuf.hasData()) {
+            skipPadding();
+
+            int offset = this.nodeBuf.getOffset();
+            int type = this.nodeBuf.getU8();
+            boolean isArray = (type & 64) != 0;
+            type &= ~64;
+
+            FormatIds.XmlFormat nodeFormat = FormatIds.format(type);
+
+            String nodeName = "";
+            if (type != NODE_END && type != END_SECTION) {
+                nodeName = readName();
+            }
+
+            if (type == ATTR) {
+                this.name = nodeName;
+                this.attrValue = readAttrValue();
+                if (tracer != null) {
+                    tracer.record(offset, type, isArray, nodeName, valueOffset, valueSize);
+                }
+                return event = ATTRIBUTE;
+            } else if (type == NODE_END || type == END_SECTION) {
+                if (tracer != null) {
+                    tracer.record(offset, type, isArray, null, -1, 0);
+                }
+            }
+
+            if (type == NODE_END) {
+                if (depth == 0) {
+                    continue;
+                }
+                this.name = nameStack[--depth];
+                nameStack[depth] = null;
+                this.format = null;
+                return event = END_NODE;
+            } else if (type == END_SECTION) {
+                break;
+            } else if (nodeFormat == null) {
+                throw new UnsupportedOperationException("Implement node " + type);
+            }
+
+            startNode(nodeName, type, nodeFormat, isArray);
+            if (tracer != null) {
+                tracer.record(offset, type, isArray, nodeName, valueOffset, valueSize);
+            }
+            return event = START_NODE;
+        }
+
+        this.name = null;
+        this.format = null;
+        return event = END_DOCUMENT;
+    }
+
+    /**
+     * From a {@link #START_NODE} or {@link #VALUE} event, skip the rest of the current node including its
+     * attributes and children. Data-section cursors are still advanced, but no value is decoded.
+     * The reader is left on the node's {@link #END_NODE} event.
+     */
+    public void skipNode() {
+        if (event != START_NODE && event != VALUE) {
+            throw new IllegalStateException("skipNode() requires a START_NODE or VALUE event");
+        }
+        int target = depth - 1;
+        while (true) {
+            int e = next();
+            if ((e == END_NODE && depth == target) || e == END_DOCUMENT) {
+                return;
+            }
+        }
+    }
+
+    public int getEventType() {
+        return event;
+    }
+
+    /**
+     * @return node name for START_NODE/VALUE/END_NODE, attribute name for ATTRIBUTE
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return nesting depth; the root node is at depth 1 while it is open
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getNodeType() {
+        return nodeType;
+    }
+
+    /**
+     * @return the kbin type name written as {@code __type}, e.g. "s32" or "str"
+     */
+    public String getTypeName() {
+        return format == null ? null : format.name;
+    }
+
+    /**
+     * @return whether the node carries an explicit {@code __count}
+     */
+    public boolean isArray() {
+        return array;
+    }
+
+    /**
+     * @return the {@code __count} of an array node, 1 otherwise
+     */
+    public int getCount() {
+        return arrayCount;
+    }
+
+    /**
+     * @return number of primitive elements in the value (bytes for str/bin)
+     */
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * @return offset of the current value (or attribute string) from the start of the document
+     */
+    public int getValueOffset() {
+        return valueOffset;
+    }
+
+    /**
+     * @return size in bytes of the current value (or attribute string, including its NUL)
+     */
+    public int getValueSize() {
+        return valueSize;
+    }
+
+    public boolean hasValue() {
+        return (event == START_NODE || event == VALUE) && format != null && nodeType != NODE_START;
+    }
+
+    // ---------- typed getters ----------
+
+    public int getInt() {
+        seekValue();
+        switch (format.kind) {
+            case 'b':
+                return valueBuf.getS8();
+            case 'B':
+                return valueBuf.getU8();
+            case 'h':
+                return valueBuf.getS16();
+            case 'H':
+                return valueBuf.getU16();
+            case 'i':
+            case 'I':
+                return valueBuf.getS32();
+            default:
+                throw new IllegalStateException("Node of type " + format.name + " has no int value");
+        }
+    }
+
+    public long getLong() {
+        seekValue();
+        switch (format.kind) {
+            case 'I':
+                return Integer.toUnsignedLong(valueBuf.getS32());
+            case 'q':
+            case 'Q':
+                return valueBuf.getS64();
+            default:
+                return getInt();
+        }
+    }
+
+    public int[] getIntArray() {
+        seekValue();
+        switch (format.kind) {
+            case 'i':
+            case 'I':
+                return valueBuf.getS32Array(valueCount);
+            case 'H':
+                return valueBuf.getU16Array(valueCount);
+            case 'b': {
+                int[] result = new int[valueCount];
+                for (int i = 0; i < valueCount; i++) {
+                    result[i] = valueBuf.getS8();
+                }
+                return result;
+            }
+            case 'B': {
+                int[] result = new int[valueCount];
+                for (int i = 0; i < valueCount; i++) {
+                    result[i] = valueBuf.getU8();
+                }
+                return result;
+            }
+            case 'h': {
+                int[] result = new int[valueCount];
+                for (int i = 0; i < valueCount; i++) {
+                    result[i] = valueBuf.getS16();
+                }
+                return result;
+            }
+            default:
+                throw new IllegalStateException("Node of type " + format.name + " has no int value");
+        }
+    }
+
+    public long[] getLongArray() {
+        seekValue();
+        switch (format.kind) {
+            case 'q':
+            case 'Q':
+                return valueBuf.getS64Array(valueCount);
+            case 'I':
+                return valueBuf.getU32Array(valueCount);
+            default: {
+                int[] ints = getIntArray();
+                long[] result = new long[ints.length];
+                for (int i = 0; i < ints.length; i++) {
+                    result[i] = ints[i];
+                }
+                return result;
+            }
+        }
+    }
+
+    public short[] getShortArray() {
+        seekValue();
+        if (format.kind != 'h' && format.kind != 'H') {
+            throw new IllegalStateException("Node of type " + format.name + " has no short value");
+        }
+        return valueBuf.getS16Array(valueCount);
+    }
+
+    public float[] getFloatArray() {
+        seekValue();
+        if (format.kind != 'f') {
+            throw new IllegalStateException("Node of type " + format.name + " has no float value");
+        }
+        return valueBuf.getF32Array(valueCount);
+    }
+
+    public double[] getDoubleArray() {
+        seekValue();
+        if (format.kind != 'd') {
+            throw new IllegalStateException("Node of type " + format.name + " has no double value");
+        }
+        return valueBuf.getF64Array(valueCount);
+    }
+
+    /**
+     * @return raw data-section bytes of the value (for str this includes the trailing NUL)
+     */
+    public byte[] getBytes() {
+        seekValue();
+        return valueBuf.getBytes(valueSize);
+    }
+
+    /**
+     * @return attribute value on ATTRIBUTE, decoded string for str nodes, text form otherwise
+     */
+    public String getString() {
+        if (event == ATTRIBUTE) {
+            return attrValue;
+        }
+        if (nodeType == STRING && hasValue()) {
+            seekValue();
+            return strings.string(valueBuf, valueSize);
+        }
+        return getText();
+    }
+
+    /**
+     * @return the value as an array/boxed object, same shape as {@link KBinXmlByteBuffer#get(String, Integer)}
+     */
+    public Object getValue() {
+        seekValue();
+        return valueBuf.get(format.type, valueCount);
+    }
+
+    /**
+     * @return the value in its XML text form, exactly as {@link KbinXml#fromBinary} writes it
+     */
+    public String getText() {
+        if (event == ATTRIBUTE) {
+            return attrValue;
+        }
+        if (nodeType == BINARY) {
+            // hex never has trailing NULs to strip
+            seekValue();
+            return Hex.encode(valueBuf.getBytes(valueSize));
+        }
+        seekValue();
+        if (nodeType == STRING) {
+            String stringVal = strings.string(valueBuf, valueSize);
+            int end = stringVal.length();
+            while (end > 0 && stringVal.charAt(end - 1) == '\0') end--;
+            return stringVal.substring(0, end);
+        }
+        textBuf.setLength(0);
+        formatValues(format.text, valueCount);
+        return textBuf.toString();
+    }
+
+    // reads count elements from valueBuf and appends them to textBuf, space separated
+    private void formatValues(TextCodec text, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) textBuf.append(' ');
+            switch (format.kind) {
+                case 'f':
+                    TextCodec.appendFixed6(valueBuf.getF32(), textBuf);
+                    break;
+                case 'd':
+                    TextCodec.appendFixed6(valueBuf.getF64(), textBuf);
+                    break;
+                case 'b':
+                case 'B':
+                    text.appendInteger(valueBuf.getS8(), textBuf);
+                    break;
+                case 'h':
+                case 'H':
+                    text.appendInteger(valueBuf.getS16(), textBuf);
+                    break;
+                case 'i':
+                case 'I':
+                    text.appendInteger(valueBuf.getS32(), textBuf);
+                    break;
+                default:
+                    text.appendInteger(valueBuf.getS64(), textBuf);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Position this reader directly on a node value or attribute whose layout was recorded earlier
+     * (see {@link KbinNodeIndex}), without walking the node section. The reader can't advance afterwards.
+     */
+    void positionAt(String name, int type, boolean isArray, int count, int elements, int offset, int size) {
+        this.detached = true;
+        this.pendingValue = false;
+        this.name = name;
+        this.nodeType = type;
+        this.format = FormatIds.format(type);
+        this.array = isArray;
+        this.arrayCount = count;
+        this.valueCount = elements;
+        this.valueOffset = offset;
+        this.valueSize = size;
+        if (type == ATTR) {
+            this.valueBuf.setOffset(offset);
+            this.attrValue = strings.string(this.valueBuf, size);
+            this.event = ATTRIBUTE;
+        } else {
+            this.attrValue = null;
+            this.event = type == NODE_START ? START_NODE : VALUE;
+        }
+    }
+
+    /**
+     * Whether {@link #next()} only touches the first {@code available} bytes of the document. Used by
+     * {@link KbinFeedDecoder}, whose buffer holds the complete node section but only part of the data
+     * section; values themselves are checked against {@link #getValueOffset()}/{@link #getValueSize()}.
+     */
+    boolean canAdvance(int available) {
+        if (pendingValue || event == END_DOCUMENT || detached) {
+            return true;
+        }
+        skipPadding();
+        if (!this.nodeBuf.hasData()) {
+            return true;
+        }
+        int type = this.nodeBuf.peekU8();
+        boolean isArray = (type & 64) != 0;
+        type &= ~64;
+
+        int pos = this.dataBuf.getOffset();
+        if (type == ATTR) {
+            return pos + 4 <= available && pos + 4 + this.dataBuf.peekS32() <= available;
+        }
+        FormatIds.XmlFormat nodeFormat = FormatIds.format(type);
+        if (type == NODE_START || type == NODE_END || type == END_SECTION || nodeFormat == null) {
+            return true;
+        }
+        // arrays and variable-sized values are prefixed with their byte length
+        return !(isArray || nodeFormat.count == -1) || pos + 4 <= available;
+    }
+
+    // ---------- internals ----------
+
+    private String readName() {
+        return strings.name(this.nodeBuf);
+    }
+
+    private String readAttrValue() {
+        int size = this.dataBuf.getS32();
+        this.valueOffset = this.dataBuf.getOffset();
+        this.valueSize = size;
+        String value = strings.string(this.dataBuf, size);
+        this.dataBuf.realignReads(4);
+        return value;
+    }
+
+    // zero bytes between node records are padding
+    private void skipPadding() {
+        while (this.nodeBuf.hasData() && this.nodeBuf.peekU8() == 0) {
+            if (tracer != null) {
+                tracer.record(this.nodeBuf.getOffset(), 0, false, null, -1, 0);
+            }
+            this.nodeBuf.getU8();
+        }
+    }
+
+    private void startNode(String nodeName, int type, FormatIds.XmlFormat nodeFormat, boolean isArray) {
+        if (depth == nameStack.length) {
+            nameStack = Arrays.copyOf(nameStack, depth * 2);
+        }
+        nameStack[depth++] = nodeName;
+
+        this.name = nodeName;
+        this.nodeType = type;
+        this.format = nodeFormat;
+        this.array = false;
+        this.arrayCount = 1;
+        this.valueCount = 0;
+        this.valueSize = 0;
+        this.valueOffset = -1;
+
+        if (type == NODE_START) {
+            return;
+        }
+
+        int elementSize = nodeFormat.elementSize;
+        int varCount = nodeFormat.count;
+        boolean packed = !isArray;
+        if (varCount == -1) {
+            varCount = this.dataBuf.getU32();
+            packed = false;
+        } else if (isArray) {
+            int raw = this.dataBuf.getU32();
+            this.arrayCount = raw / (elementSize * Math.max(1, varCount));
+            this.array = true;
+        }
+        this.valueCount = this.arrayCount * varCount;
+        this.valueSize = this.valueCount * elementSize;
+
+        if (packed) {
+            this.valueOffset = grabAligned(this.valueSize);
+        } else {
+            this.valueOffset = this.dataBuf.getOffset();
+            this.dataBuf.skip(this.valueSize);
+            this.dataBuf.realignReads(4);
+        }
+        this.pendingValue = true;
+    }
+
+    // byte/word packing (see the class comment), the same cursor movement as KbinWriter.packedSlot;
+    // returns where the value starts
+    private int grabAligned(int size) {
+        if (this.dataByteBuf.getOffset() % 4 == 0) {
+            this.dataByteBuf.setOffset(this.dataBuf.getOffset());
+        }
+        if (this.dataWordBuf.getOffset() % 4 == 0) {
+            this.dataWordBuf.setOffset(this.dataBuf.getOffset());
+        }
+        int pos;
+        if (size == 1) {
+            pos = this.dataByteBuf.getOffset();
+            this.dataByteBuf.skip(size);
+        } else if (size == 2) {
+            pos = this.dataWordBuf.getOffset();
+            this.dataWordBuf.skip(size);
+        } else {
+            pos = this.dataBuf.getOffset();
+            this.dataBuf.skip(size);
+            this.dataBuf.realignReads(4);
+        }
+        int trailing = Math.max(this.dataByteBuf.getOffset(), this.dataWordBuf.getOffset());
+        if (this.dataBuf.getOffset() < trailing) {
+            this.dataBuf.setOffset(trailing);
+            this.dataBuf.realignReads(4);
+        }
+        return pos;
+    }
+
+    private void seekValue() {
+        if (!hasValue()) {
+            throw new IllegalStateException("No value at the current event");
+        }
+        valueBuf.setOffset(valueOffset);
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.Locale;
+
+/**
+ * What one conversion did and where its time went. Sizes are in bytes. Timings are in nanoseconds and
+ * cover only the phases that apply to the operation; the rest are 0.
+ */
+public final class KbinStats {
+    public enum Operation {
+        // kbin -> DOM
+        DECODE,
+        // DOM -> kbin
+        ENCODE,
+        // DOM -> XML text
+        TO_TEXT,
+        // XML text -> DOM
+        FROM_TEXT,
+        // kbin -> XML text, streamed without a DOM
+        DECODE_TO_TEXT,
+        // XML text -> kbin, streamed without a DOM
+        ENCODE_FROM_TEXT,
+        // kbin -> JSON
+        DECODE_TO_JSON,
+        // JSON -> kbin
+        ENCODE_FROM_JSON,
+        // kbin -> XrpcNode tree
+        DECODE_TO_NODE,
+        // XrpcNode tree -> kbin
+        ENCODE_FROM_NODE
+    }
+
+    public enum Phase {
+        // reading kbin: signature, encoding and section lengths
+        HEADER,
+        // reading kbin: node stream, i.e. types, names and attribute values
+        NODES,
+        // reading kbin: node value reads from the data section
+        DATA,
+        // decode: building the DOM or XrpcNode tree
+        DOM,
+        // XML or JSON text: serializing the DOM, parsing text, or writing each node's text when streaming
+        TEXT,
+        // encode: the sizing pass over the DOM
+        LAYOUT,
+        // writing kbin: walking the DOM, XrpcNode tree, XML or JSON and writing both sections
+        WRITE,
+        // handing the kbin sections or the finished text to a stream, channel or array
+        OUTPUT
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Operation operation;
+    private final long[] nanos = new long[PHASES.length];
+    long totalNanos;
+    String encoding;
+    boolean compressed;
+    int documentSize = -1;
+    int nodeSectionSize = -1;
+    int dataSectionSize = -1;
+    int nodeCount;
+    int maxDepth;
+
+    KbinStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    void add(Phase phase, long elapsed) {
+        nanos[phase.ordinal()] += elapsed;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * @return length of the kbin document, or -1 for {@code TO_TEXT}/{@code FROM_TEXT}, which have no kbin side
+     */
+    public int getDocumentSize() {
+        return documentSize;
+    }
+
+    /**
+     * @return node section length as stored in the header, or -1 for {@code TO_TEXT}/{@code FROM_TEXT}
+     */
+    public int getNodeSectionSize() {
+        return nodeSectionSize;
+    }
+
+    /**
+     * @return data section length, or -1 for {@code TO_TEXT}/{@code FROM_TEXT}
+     */
+    public int getDataSectionSize() {
+        return dataSectionSize;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return nesting depth of the deepest node; the root is at depth 1
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(operation).append(" total=").append(totalNanos).append("ns");
+        for (Phase phase : PHASES) {
+            if (nanos[phase.ordinal()] != 0) {
+                sb.append(' ').append(phase.name().toLowerCase(Locale.ROOT)).append('=').append(nanos[phase.ordinal()]).append("ns");
+            }
+        }
+        if (documentSize >= 0) {
+            sb.append(" size=").append(documentSize).append(" nodeSection=").append(nodeSectionSize)
+                    .append(" dataSection=").append(dataSectionSize);
+        }
+        return sb.append(" nodes=").append(nodeCount).append(" maxDepth=").append(maxDepth).toString();
+    }
+}
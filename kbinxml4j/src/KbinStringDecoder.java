@@ -0,0 +1,107 @@
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * String decoding for one kbin decode. Node and attribute names go through a bounded cache keyed on
+ * their raw node-section bytes (sixbit-packed or encoded), so a name repeated throughout a document is
+ * decoded once and always returns the same String instance. Values are decoded by one reused
+ * {@link CharsetDecoder}; pure-ASCII bytes skip it, since every kbin encoding is an ASCII superset.
+ * Not thread-safe.
+ */
+final class KbinStringDecoder {
+    // direct-mapped, power of two: a name hashing to a taken slot evicts the previous one
+    private static final int NAME_SLOTS = 512;
+
+    private final boolean compressed;
+    private final Charset charset;
+    private final CharsetDecoder decoder;
+
+    private final byte[][] nameKeys = new byte[NAME_SLOTS][];
+    private final String[] names = new String[NAME_SLOTS];
+    // length byte plus at most 192 packed or encoded bytes
+    private final byte[] rawName = new byte[1 + Sixbit.MAX_LENGTH];
+    private final char[] nameChars = new char[Sixbit.MAX_LENGTH];
+
+    private byte[] bytes = new byte[64];
+    private CharBuffer chars = CharBuffer.allocate(64);
+
+    KbinStringDecoder(Charset charset, boolean compressed) {
+        this.compressed = compressed;
+        this.charset = charset;
+        // same substitution as new String(bytes, charset)
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Read a node name at the current offset of {@code nodeBuf}.
+     */
+    String name(KBinXmlByteBuffer nodeBuf) {
+        int head = nodeBuf.getU8();
+        int length = compressed ? (head * 6 + 7) / 8 : (head & ~64) + 1;
+        rawName[0] = (byte) head;
+        nodeBuf.getBytes(rawName, 1, length);
+        int rawLength = 1 + length;
+
+        int hash = 0;
+        for (int i = 0; i < rawLength; i++) {
+            hash = 31 * hash + rawName[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (NAME_SLOTS - 1);
+        byte[] key = nameKeys[slot];
+        if (key != null && Arrays.equals(key, 0, key.length, rawName, 0, rawLength)) {
+            return names[slot];
+        }
+
+        String name = compressed
+                ? new String(nameChars, 0, Sixbit.unpackSixbit(rawName, 0, nameChars))
+                : decode(rawName, 1, length);
+        nameKeys[slot] = Arrays.copyOf(rawName, rawLength);
+        names[slot] = name;
+        return name;
+    }
+
+    /**
+     * Read {@code size} bytes of a NUL-terminated string at the current offset of {@code buf}.
+     */
+    String string(KBinXmlByteBuffer buf, int size) {
+        if (size == 0) {
+            return "";
+        }
+        if (bytes.length < size) {
+            bytes = new byte[Math.max(size, bytes.length * 2)];
+        }
+        buf.getBytes(bytes, 0, size);
+        return decode(bytes, 0, size - 1);
+    }
+
+    String decode(byte[] src, int from, int length) {
+        int end = from + length;
+        int i = from;
+        while (i < end && src[i] >= 0) {
+            i++;
+        }
+        if (i == end) {
+            return new String(src, from, length, StandardCharsets.ISO_8859_1);
+        }
+
+        int maxChars = (int) Math.ceil(length * (double) decoder.maxCharsPerByte());
+        if (chars.capacity() < maxChars) {
+            chars = CharBuffer.allocate(Math.max(maxChars, chars.capacity() * 2));
+        }
+        chars.clear();
+        decoder.reset();
+        CoderResult result = decoder.decode(ByteBuffer.wrap(src, from, length), chars, true);
+        if (result.isOverflow() || decoder.flush(chars).isOverflow()) {
+            return new String(src, from, length, charset);
+        }
+        return new String(chars.array(), 0, chars.position());
+    }
+}
@@ -0,0 +1,67 @@
+import SimpleMappingModel.FormatIds;
+
+import java.io.PrintStream;
+import java.util.function.Consumer;
+
+/**
+ * Receives the node stream of a decode, one call per node-section record, with the document offsets
+ * of the record and of its value. Enable it per reader with {@link KbinReader#setTracer} or per
+ * document with {@link KbinXml#setTracer}.
+ * <p>
+ * With no tracer set, each record costs a null check of a field that the JIT profiles as never set, so
+ * the tracing branch is compiled out. No strings are built unless a tracer asks for them.
+ */
+@FunctionalInterface
+public interface KbinTracer {
+    /**
+     * @param offset     document offset of the record's type byte
+     * @param type       node type id without the array flag (see {@link FormatIds}), 0 for a padding byte
+     * @param isArray    whether the array flag was set
+     * @param name       node or attribute name; null for padding, nodeEnd and endSection
+     * @param dataOffset document offset of the value in the data section, or -1 when the record has none
+     * @param dataSize   length of that value in bytes
+     */
+    void record(int offset, int type, boolean isArray, String name, int dataOffset, int dataSize);
+
+    /**
+     * @return a tracer printing one line per record to {@code out}
+     */
+    static KbinTracer printingTo(PrintStream out) {
+        return lines(out::println);
+    }
+
+    /**
+     * @return a tracer handing one formatted line per record to {@code sink}, e.g.
+     * {@code "0x0010 s32[] hist data=0x0104+64"}
+     */
+    static KbinTracer lines(Consumer<String> sink) {
+        return (offset, type, isArray, name, dataOffset, dataSize) ->
+                sink.accept(format(offset, type, isArray, name, dataOffset, dataSize));
+    }
+
+    static String format(int offset, int type, boolean isArray, String name, int dataOffset, int dataSize) {
+        StringBuilder sb = new StringBuilder(48);
+        sb.append(String.format("0x%04x ", offset));
+        if (type == 0) {
+            sb.append("padding");
+        } else if (type == FormatIds.NODE_END) {
+            // the end markers are stored with the array bit set, it means nothing there
+            sb.append("nodeEnd");
+        } else if (type == FormatIds.END_SECTION) {
+            sb.append("endSection");
+        } else {
+            FormatIds.XmlFormat format = FormatIds.format(type);
+            sb.append(format == null ? "unknown(" + type + ")" : format.name);
+            if (isArray) {
+                sb.append("[]");
+            }
+        }
+        if (name != null) {
+            sb.append(' ').append(name);
+        }
+        if (dataOffset >= 0) {
+            sb.append(String.format(" data=0x%04x+%d", dataOffset, dataSize));
+        }
+        return sb.toString();
+    }
+}
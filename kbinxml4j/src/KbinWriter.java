@@ -0,0 +1,669 @@
+import SimpleMappingModel.FormatIds;
+import SimpleMappingModel.Hex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Push writer producing a binary kbin document without an intermediate tree. Nodes are written
+ * straight into the node section and values into the data section, using the byte/word packing
+ * described in {@link KbinReader}.
+ * <p>
+ * The typed leaf writers ({@link #s32}, {@link #str}, {@link #u8Array}, ...) emit a complete node;
+ * {@link #attr} called directly after one attaches the attribute to that leaf, otherwise to the node
+ * opened last by {@link #startNode}. Attributes are written in call order ({@link KbinXml#toBinary}
+ * sorts them by name).
+ */
+public class KbinWriter {
+    private static final int VOID = FormatIds.VOID;
+    private static final int S8 = FormatIds.S8;
+    private static final int U8 = FormatIds.U8;
+    private static final int S16 = FormatIds.S16;
+    private static final int U16 = FormatIds.U16;
+    private static final int S32 = FormatIds.S32;
+    private static final int U32 = FormatIds.U32;
+    private static final int S64 = FormatIds.S64;
+    private static final int U64 = FormatIds.U64;
+    private static final int BIN = FormatIds.BINARY;
+    private static final int STR = FormatIds.STRING;
+    private static final int BOOL = FormatIds.BOOL;
+    private static final int ATTR = FormatIds.ATTR;
+    private static final int NODE_END = FormatIds.NODE_END;
+    private static final int END_SECTION = FormatIds.END_SECTION;
+    private static final int ARRAY_FLAG = FormatIds.ARRAY_FLAG;
+
+    private final String encoding;
+    private final Charset charset;
+    private final KbinNameCache names;
+    private final boolean compressed;
+
+    private final KBinXmlByteBuffer nodeBuf;
+    private final KBinXmlByteBuffer dataBuf;
+    // write cursors for packed u8/u16 values inside dataBuf
+    private int dataByteOffset;
+    private int dataWordOffset;
+
+    private int depth;
+    private int maxDepth;
+    private int nodeCount;
+    private int nodeSectionSize;
+    private boolean leafOpen;
+    private boolean finished;
+    // 8-byte header, built once the sections are closed
+    private byte[] header;
+    // set for writers created by inPlace(): the destination and the section lengths it was laid out for
+    private ByteBuffer target;
+    private int targetStart;
+    private KbinLayout layout;
+
+    public KbinWriter() {
+        this(KbinXml.BIN_ENCODING, false);
+    }
+
+    public KbinWriter(String encoding, boolean compressed) {
+        this(encoding, compressed, new KBinXmlByteBuffer(), new KBinXmlByteBuffer());
+    }
+
+    // writes into caller-owned scratch buffers, which are cleared first (see KbinCodec)
+    KbinWriter(String encoding, boolean compressed, KBinXmlByteBuffer nodeBuf, KBinXmlByteBuffer dataBuf) {
+        nodeBuf.clear();
+        dataBuf.clear();
+        this.nodeBuf = nodeBuf;
+        this.dataBuf = dataBuf;
+        this.encoding = encoding;
+        this.compressed = compressed;
+        this.charset = charsetFor(encoding);
+        this.names = KbinNameCache.shared(charset, compressed);
+    }
+
+    /**
+     * A writer that encodes straight into {@code dst} at its position, for a document already measured by
+     * {@code layout}: the header goes first, then the node and data sections in place, with no
+     * intermediate buffers. Finish it with {@link #finishInPlace()}.
+     *
+     * @throws BufferOverflowException when {@code dst} has less than {@link KbinLayout#getTotalSize()} remaining
+     */
+    static KbinWriter inPlace(ByteBuffer dst, String encoding, boolean compressed, KbinLayout layout) {
+        if (dst.remaining() < layout.getTotalSize()) {
+            throw new BufferOverflowException();
+        }
+        int start = dst.position();
+        int nodeStart = start + 8;
+        int dataStart = nodeStart + layout.getNodeSize() + 4;
+        KbinWriter writer = new KbinWriter(encoding, compressed,
+                KBinXmlByteBuffer.writable(dst, nodeStart, layout.getNodeSize() + 4),
+                KBinXmlByteBuffer.writable(dst, dataStart, layout.getDataSize()));
+        writer.target = dst;
+        writer.targetStart = start;
+        writer.layout = layout;
+        return writer;
+    }
+
+    static Charset charsetFor(String encoding) {
+        try {
+            return Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            return Charset.defaultCharset();
+        }
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    // ---------- structure ----------
+
+    /**
+     * Open a void node; close it with {@link #endNode()}.
+     */
+    public KbinWriter startNode(String name) {
+        beginNode(VOID, false, name);
+        return this;
+    }
+
+    /**
+     * Open a node whose value is given in XML text form, encoded exactly as {@link KbinXml#toBinary}
+     * encodes an element with the same {@code __type}/{@code __count} attributes. Close it with {@link #endNode()}.
+     *
+     * @param type  {@code __type} name, e.g. "s32", "3u8", "str"; "void" for no value
+     * @param count {@code __count}, or -1 when the node is not an array
+     * @param text  element text
+     */
+    public KbinWriter startNode(String name, String type, int count, String text) {
+        Integer nodeId = FormatIds.XML_TYPES.get(type);
+        if (nodeId == null) {
+            throw new KbinXml.KBinException("Unknown node type: " + type);
+        }
+        boolean isArray = count >= 0;
+        beginNode(nodeId, isArray, name);
+        if (nodeId != VOID) {
+            FormatIds.XmlFormat fmt = FormatIds.format(nodeId);
+            if (fmt == null) throw new KbinXml.KBinException("Missing format for nodeId " + nodeId);
+            appendTextValue(name, fmt, isArray, Math.max(count, 0), text);
+        }
+        return this;
+    }
+
+    /**
+     * Open a node whose value is given as a primitive array matching the element type of {@code type}:
+     * byte[] for s8/u8/bool/bin, short[] for s16/u16, int[] for s32/u32/ip4/time, long[] for s64/u64,
+     * float[], double[], or a String (null for empty) for str. Unsigned values are passed as their
+     * two's-complement bits. A non-array value has exactly the type's element count (3 for 3s32), an
+     * array a multiple of it. Close it with {@link #endNode()}.
+     *
+     * @param isArray whether to write the node with {@code __count}
+     * @throws KbinXml.KBinException when {@code values} is not the value type of {@code type} or has the
+     *                               wrong length; nothing is written then
+     */
+    public KbinWriter startNodeValues(String name, String type, boolean isArray, Object values) {
+        Integer nodeId = FormatIds.XML_TYPES.get(type);
+        if (nodeId == null) {
+            throw new KbinXml.KBinException("Unknown node type: " + type);
+        }
+        FormatIds.XmlFormat fmt = FormatIds.format(nodeId);
+        if (nodeId != VOID) {
+            if (nodeId != BIN && nodeId != STR && fmt.text == null) {
+                throw new KbinXml.KBinException(String.format("Node \"%s\" of type %s can't hold a value", name, type));
+            }
+            Class<?> expected = nodeId == BIN ? byte[].class : nodeId == STR ? String.class : fmt.text.getArrayType();
+            if (values == null ? nodeId != STR : values.getClass() != expected) {
+                throw new KbinXml.KBinException(String.format("Node \"%s\" of type %s needs a %s value, got %s", name, type,
+                        expected.getSimpleName(), values == null ? "null" : values.getClass().getSimpleName()));
+            }
+            if (nodeId != BIN && nodeId != STR) {
+                checkValueCount(name, fmt, isArray, Array.getLength(values));
+            }
+        }
+        beginNode(nodeId, isArray, name);
+        if (nodeId == VOID) {
+            return this;
+        }
+        if (nodeId == STR) {
+            appendString(values == null ? "" : (String) values);
+            return this;
+        }
+        appendValueArray(fmt, isArray, values);
+        return this;
+    }
+
+    public KbinWriter attr(String key, String value) {
+        requireOpen();
+        appendString(value);
+        nodeBuf.appendU8(ATTR);
+        appendName(key);
+        return this;
+    }
+
+    public KbinWriter endNode() {
+        closeLeaf();
+        if (depth == 0) {
+            throw new IllegalStateException("endNode() without a matching startNode()");
+        }
+        // always has isArray bit set on nodeEnd
+        nodeBuf.appendU8(NODE_END | ARRAY_FLAG);
+        depth--;
+        return this;
+    }
+
+    // ---------- typed leaf nodes ----------
+
+    public KbinWriter s8(String name, byte value) {
+        beginLeaf(S8, false, name);
+        dataBuf.setS8(value, packedSlot(1));
+        return this;
+    }
+
+    public KbinWriter u8(String name, int value) {
+        beginLeaf(U8, false, name);
+        dataBuf.setU8(value, packedSlot(1));
+        return this;
+    }
+
+    public KbinWriter bool(String name, boolean value) {
+        beginLeaf(BOOL, false, name);
+        dataBuf.setU8(value ? 1 : 0, packedSlot(1));
+        return this;
+    }
+
+    public KbinWriter s16(String name, short value) {
+        beginLeaf(S16, false, name);
+        dataBuf.setS16(value, packedSlot(2));
+        return this;
+    }
+
+    public KbinWriter u16(String name, int value) {
+        beginLeaf(U16, false, name);
+        dataBuf.setU16(value, packedSlot(2));
+        return this;
+    }
+
+    public KbinWriter s32(String name, int value) {
+        beginLeaf(S32, false, name);
+        packedSlot(4);
+        dataBuf.appendS32(value);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    public KbinWriter u32(String name, int value) {
+        beginLeaf(U32, false, name);
+        packedSlot(4);
+        dataBuf.appendU32(value);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    public KbinWriter s64(String name, long value) {
+        beginLeaf(S64, false, name);
+        packedSlot(8);
+        dataBuf.appendS64(value);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    public KbinWriter u64(String name, long value) {
+        beginLeaf(U64, false, name);
+        packedSlot(8);
+        dataBuf.appendU64(value);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    public KbinWriter str(String name, String value) {
+        beginLeaf(STR, false, name);
+        appendString(value == null ? "" : value);
+        return this;
+    }
+
+    public KbinWriter bin(String name, byte[] value) {
+        beginLeaf(BIN, false, name);
+        appendSized(value, 0, value.length);
+        return this;
+    }
+
+    // ---------- typed array leaf nodes (written with __count) ----------
+
+    public KbinWriter s8Array(String name, byte[] values) {
+        beginLeaf(S8, true, name);
+        appendSized(values, 0, values.length);
+        return this;
+    }
+
+    public KbinWriter u8Array(String name, byte[] values) {
+        beginLeaf(U8, true, name);
+        appendSized(values, 0, values.length);
+        return this;
+    }
+
+    public KbinWriter s16Array(String name, short[] values) {
+        beginLeaf(S16, true, name);
+        dataBuf.appendU32(values.length * 2);
+        dataBuf.appendS16Array(values);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    public KbinWriter u16Array(String name, short[] values) {
+        beginLeaf(U16, true, name);
+        dataBuf.appendU32(values.length * 2);
+        dataBuf.appendS16Array(values);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    public KbinWriter s32Array(String name, int[] values) {
+        beginLeaf(S32, true, name);
+        dataBuf.appendU32(values.length * 4);
+        dataBuf.appendS32Array(values);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    public KbinWriter u32Array(String name, int[] values) {
+        beginLeaf(U32, true, name);
+        dataBuf.appendU32(values.length * 4);
+        dataBuf.appendS32Array(values);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    public KbinWriter s64Array(String name, long[] values) {
+        beginLeaf(S64, true, name);
+        dataBuf.appendU32(values.length * 8);
+        dataBuf.appendS64Array(values);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    public KbinWriter u64Array(String name, long[] values) {
+        beginLeaf(U64, true, name);
+        dataBuf.appendU32(values.length * 8);
+        dataBuf.appendS64Array(values);
+        dataBuf.realignWrites(4);
+        return this;
+    }
+
+    // ---------- output ----------
+
+    /**
+     * Close the document and return the encoded kbin in a new array owned by the caller; the sections are
+     * copied into it once and the writer keeps no reference. All nodes must have been closed. The writer is
+     * finished afterwards: it cannot be written to, only output again.
+     */
+    public byte[] toByteArray() {
+        finish();
+        byte[] combined = new byte[getLength()];
+        System.arraycopy(header, 0, combined, 0, header.length);
+        System.arraycopy(nodeBuf.getData(), 0, combined, header.length, nodeBuf.length());
+        System.arraycopy(dataBuf.getData(), 0, combined, header.length + nodeBuf.length(), dataBuf.length());
+        return combined;
+    }
+
+    /**
+     * Close the document and write it to {@code channel} as header, node section and data section, straight
+     * from the writer's buffers; the sections are never concatenated. A {@link GatheringByteChannel} gets a
+     * single gathering write per attempt. May be called again to write the same bytes elsewhere.
+     *
+     * @return number of bytes written
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        finish();
+        ByteBuffer[] sections = {
+                ByteBuffer.wrap(header),
+                ByteBuffer.wrap(nodeBuf.getData(), 0, nodeBuf.length()),
+                ByteBuffer.wrap(dataBuf.getData(), 0, dataBuf.length())
+        };
+        long length = getLength();
+        if (channel instanceof GatheringByteChannel gathering) {
+            long written = 0;
+            while (written < length) {
+                written += gathering.write(sections);
+            }
+        } else {
+            for (ByteBuffer section : sections) {
+                while (section.hasRemaining()) {
+                    channel.write(section);
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Close the document and stream it to {@code out} section by section, without concatenating them.
+     * {@code out} is neither flushed nor closed. May be called again to write the same bytes elsewhere.
+     *
+     * @return number of bytes written
+     */
+    public long writeTo(OutputStream out) throws IOException {
+        finish();
+        out.write(header);
+        out.write(nodeBuf.getData(), 0, nodeBuf.length());
+        out.write(dataBuf.getData(), 0, dataBuf.length());
+        return getLength();
+    }
+
+    /**
+     * @return length of the encoded document; only valid once it is closed
+     */
+    int getLength() {
+        return 8 + nodeSectionSize + 4 + dataBuf.length();
+    }
+
+    /**
+     * @return node section length as stored in the header; only valid once the document is closed
+     */
+    int getNodeSectionSize() {
+        return nodeSectionSize;
+    }
+
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Close the document of a writer created by {@link #inPlace}: writes the header and section lengths,
+     * and advances the destination's position past the document.
+     *
+     * @return number of bytes written
+     */
+    int finishInPlace() {
+        if (target == null) {
+            throw new IllegalStateException("Writer does not encode in place");
+        }
+        closeSections();
+        int nodeLength = nodeBuf.length();
+        if (nodeLength != layout.getNodeSize() || dataBuf.length() != layout.getDataSize()) {
+            throw new KbinXml.KBinException("Encoded sections (" + nodeLength + "/" + dataBuf.length()
+                    + " bytes) differ from the measured layout (" + layout.getNodeSize() + "/" + layout.getDataSize() + ")");
+        }
+        nodeBuf.appendU32(dataBuf.length());
+        writeHeader(KBinXmlByteBuffer.writable(target, targetStart, 8), nodeLength);
+        target.position(targetStart + layout.getTotalSize());
+        return layout.getTotalSize();
+    }
+
+    /**
+     * @return current length of the data section
+     */
+    public int getDataSize() {
+        return dataBuf.length();
+    }
+
+    // ---------- internals ----------
+
+    // closes the sections of a buffered writer and builds the header; no-op once done
+    private void finish() {
+        if (target != null) {
+            throw new IllegalStateException("Writer encodes in place; use finishInPlace()");
+        }
+        if (header == null) {
+            closeSections();
+            int nodeLength = nodeBuf.length();
+            nodeBuf.appendU32(dataBuf.length());
+            byte[] bytes = new byte[8];
+            writeHeader(KBinXmlByteBuffer.writable(ByteBuffer.wrap(bytes), 0, 8), nodeLength);
+            header = bytes;
+        }
+    }
+
+    private void closeSections() {
+        if (finished) {
+            throw new IllegalStateException("Document already finished");
+        }
+        closeLeaf();
+        if (depth != 0) {
+            throw new IllegalStateException(depth + " node(s) still open");
+        }
+        // endSection with isArray bit
+        nodeBuf.appendU8(END_SECTION | ARRAY_FLAG);
+        nodeBuf.realignWrites(4);
+        nodeSectionSize = nodeBuf.length();
+        finished = true;
+    }
+
+    private void writeHeader(KBinXmlByteBuffer header, int nodeLength) {
+        int encodingVal = KbinXml.encoding_vals.getOrDefault(encoding, 0);
+        header.appendU8(KbinXml.SIGNATURE);
+        header.appendU8(compressed ? KbinXml.SIG_COMPRESSED : KbinXml.SIG_UNCOMPRESSED);
+        header.appendU8(encodingVal & 0xFF);
+        header.appendU8((0xFF ^ encodingVal) & 0xFF);
+        header.appendU32(nodeLength);
+    }
+
+    private void beginNode(int nodeId, boolean isArray, String name) {
+        closeLeaf();
+        if (finished) {
+            throw new IllegalStateException("Document already finished");
+        }
+        nodeBuf.appendU8((nodeId | (isArray ? ARRAY_FLAG : 0)) & 0xFF);
+        appendName(name);
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+        nodeCount++;
+    }
+
+    private void beginLeaf(int nodeId, boolean isArray, String name) {
+        beginNode(nodeId, isArray, name);
+        leafOpen = true;
+    }
+
+    private void closeLeaf() {
+        if (leafOpen) {
+            leafOpen = false;
+            endNode();
+        }
+    }
+
+    private void requireOpen() {
+        if (depth == 0 || finished) {
+            throw new IllegalStateException("No open node");
+        }
+    }
+
+    private void appendName(String name) {
+        nodeBuf.appendBytes(names.encode(name));
+    }
+
+    // length-prefixed bytes, padded to 4
+    private void appendSized(byte[] data, int from, int length) {
+        dataBuf.appendU32(length);
+        dataBuf.appendBytes(data, from, length);
+        dataBuf.realignWrites(4);
+    }
+
+    // a value holds exactly the type's element count, an array a whole number of them
+    private static void checkValueCount(String name, FormatIds.XmlFormat fmt, boolean isArray, int length) {
+        if (fmt.count > 0 && (isArray ? length % fmt.count != 0 : length != fmt.count)) {
+            throw new KbinXml.KBinException(String.format("Node \"%s\" of type %s needs %s%d values, got %d", name, fmt.name,
+                    isArray ? "a multiple of " : "", fmt.count, length));
+        }
+    }
+
+    // the length has been checked by checkValueCount
+    private void appendValueArray(FormatIds.XmlFormat fmt, boolean isArray, Object values) {
+        int elementSize = fmt.elementSize;
+        int length = Array.getLength(values);
+        if (isArray || fmt.count == -1) {
+            dataBuf.appendU32(length * elementSize);
+            appendValues(values, 0, length);
+            dataBuf.realignWrites(4);
+            return;
+        }
+
+        int pos = packedSlot(elementSize * fmt.count);
+        if (pos >= 0) {
+            // 1 or 2 bytes: a single s8/u8/s16/u16/bool or a 2s8/2u8/2b
+            for (int i = 0; i < fmt.count; i++) {
+                if (values instanceof short[] shorts) {
+                    dataBuf.setS16(shorts[i], pos);
+                } else {
+                    dataBuf.setS8(((byte[]) values)[i], pos + i);
+                }
+            }
+        } else {
+            appendValues(values, 0, length);
+            dataBuf.realignWrites(4);
+        }
+    }
+
+    private void appendValues(Object values, int from, int length) {
+        if (values instanceof byte[] bytes) {
+            dataBuf.appendBytes(bytes, from, length);
+        } else if (values instanceof short[] shorts) {
+            dataBuf.appendS16Array(from == 0 && length == shorts.length ? shorts : Arrays.copyOfRange(shorts, from, from + length));
+        } else if (values instanceof int[] ints) {
+            dataBuf.appendS32Array(from == 0 && length == ints.length ? ints : Arrays.copyOfRange(ints, from, from + length));
+        } else if (values instanceof long[] longs) {
+            dataBuf.appendS64Array(from == 0 && length == longs.length ? longs : Arrays.copyOfRange(longs, from, from + length));
+        } else if (values instanceof float[] floats) {
+            for (int i = from; i < from + length; i++) {
+                dataBuf.appendS32(Float.floatToRawIntBits(floats[i]));
+            }
+        } else if (values instanceof double[] doubles) {
+            for (int i = from; i < from + length; i++) {
+                dataBuf.appendS64(Double.doubleToRawLongBits(doubles[i]));
+            }
+        } else {
+            throw new KbinXml.KBinException("Unsupported value array: " + (values == null ? "null" : values.getClass().getSimpleName()));
+        }
+    }
+
+    // length-prefixed, NUL-terminated string, padded to 4
+    private void appendString(String value) {
+        byte[] enc = value.getBytes(charset);
+        dataBuf.appendU32(enc.length + 1);
+        dataBuf.appendBytes(enc);
+        dataBuf.appendU8(0);
+        dataBuf.realignWrites(4);
+    }
+
+    /**
+     * Byte/word packing, the same cursor movement as KbinReader's. For 1- and 2-byte values returns the
+     * offset the value must be written at (a fresh zeroed word is reserved when needed); for larger values
+     * returns -1 and the caller appends to dataBuf and realigns.
+     */
+    private int packedSlot(int size) {
+        if (dataByteOffset % 4 == 0) {
+            dataByteOffset = dataBuf.getOffset();
+        }
+        if (dataWordOffset % 4 == 0) {
+            dataWordOffset = dataBuf.getOffset();
+        }
+        int pos;
+        if (size == 1) {
+            if (dataByteOffset % 4 == 0) {
+                dataBuf.appendU32(0);
+            }
+            pos = dataByteOffset;
+            dataByteOffset += 1;
+        } else if (size == 2) {
+            if (dataWordOffset % 4 == 0) {
+                dataBuf.appendU32(0);
+            }
+            pos = dataWordOffset;
+            dataWordOffset += 2;
+        } else {
+            pos = -1;
+        }
+        return pos;
+    }
+
+    private void appendTextValue(String name, FormatIds.XmlFormat fmt, boolean isArray, int count, String val) {
+        if (val == null) val = "";
+
+        if ("bin".equals(fmt.name)) {
+            // hex string to bytes
+            byte[] dataBytes = Hex.decode(val);
+            appendSized(dataBytes, 0, dataBytes.length);
+            return;
+        }
+        if ("str".equals(fmt.name)) {
+            appendString(val);
+            return;
+        }
+
+        Object values = fmt.text.parse(val);
+        int length = Array.getLength(values);
+        if (count != 0 && fmt.count > 0 && length / fmt.count != count) {
+            throw new IllegalArgumentException("Array length does not match __count attribute");
+        }
+        checkValueCount(name, fmt, isArray, length);
+        appendValueArray(fmt, isArray, values);
+    }
+}
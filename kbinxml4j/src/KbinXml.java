@@ -1,20 +1,28 @@
+import SimpleMappingModel.FormatIds;
+import SimpleMappingModel.XmlTextWriter;
 import org.w3c.dom.*;
 
 import javax.xml.parsers.*;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import java.io.*;
-import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class KbinXml {
-    // debug flags
+    // either one prints the node stream of fromBinary/streamText to System.out for instances without a
+    // tracer of their own; use setTracer / KbinReader.setTracer instead
+    @Deprecated
     public static boolean DEBUG_OFFSETS = false;
-    public static boolean DEBUG = true;
+    @Deprecated
+    public static boolean DEBUG = false;
 
     public static final int SIGNATURE = 0xA0;
     public static final int SIG_COMPRESSED = 0x42;
@@ -46,10 +54,6 @@ public class KbinXml {
         encoding_vals = Collections.unmodifiableMap(vals);
     }
 
-    private static void debugPrint(String s) {
-        if (DEBUG) System.out.println(s);
-    }
-
     public static class KBinException extends RuntimeException {
         public KBinException(String msg) {
             super(msg);
@@ -68,10 +72,11 @@ public class KbinXml {
     private boolean compressed;
     private Integer dataSize;
 
-    private KBinXmlByteBuffer nodeBuf;
-    private KBinXmlByteBuffer dataBuf;
-    private KBinXmlByteBuffer dataByteBuf;
-    private KBinXmlByteBuffer dataWordBuf;
+    // metrics listener for every instance that does not set its own
+    private static volatile KbinListener defaultListener;
+    private KbinListener listener = defaultListener;
+    // node stream tracing for fromBinary, off unless set
+    private KbinTracer tracer;
 
     // helper message for user
     private static String convertIllegalHelp = "set convert_illegal_things=True in the KBinXML constructor";
@@ -82,7 +87,8 @@ public class KbinXml {
      * Construct from raw bytes (either binary kbin or xml text bytes) or from an existing DOM Element/Document.
      * The Python code accepted etree._Element / etree._ElementTree or bytes.
      *
-     * @param input                either byte[] (file content) or org.w3c.dom.Document or org.w3c.dom.Element
+     * @param input                either byte[] (file content), a KBinXmlByteBuffer view, a java.nio.file.Path / java.io.File
+     *                             (memory-mapped, see {@link KBinXmlByteBuffer#map}) or org.w3c.dom.Document or org.w3c.dom.Element
      * @param convertIllegalThings same semantics as Python
      */
     public KbinXml(Object input, boolean convertIllegalThings) {
@@ -95,9 +101,7 @@ public class KbinXml {
                 Document doc = el.getOwnerDocument();
                 if (doc == null) {
                     // New document
-                    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-                    DocumentBuilder db = dbf.newDocumentBuilder();
-                    doc = db.newDocument();
+                    doc = newDocument();
                     Node imported = doc.importNode(el, true);
                     doc.appendChild(imported);
                 }
@@ -107,11 +111,20 @@ public class KbinXml {
                 this.xmlDoc = (Document) input;
                 this.xmlRoot = this.xmlDoc.getDocumentElement();
             } else if (input instanceof byte[]) {
-                byte[] bytes = (byte[]) input;
-                if (isBinaryXml(bytes)) {
-                    fromBinary(bytes);
+                fromBytes((byte[]) input);
+            } else if (input instanceof KBinXmlByteBuffer || input instanceof java.nio.file.Path || input instanceof File) {
+                KBinXmlByteBuffer buf;
+                if (input instanceof KBinXmlByteBuffer) {
+                    buf = (KBinXmlByteBuffer) input;
+                } else if (input instanceof File) {
+                    buf = KBinXmlByteBuffer.map(((File) input).toPath());
                 } else {
-                    fromText(bytes);
+                    buf = KBinXmlByteBuffer.map((java.nio.file.Path) input);
+                }
+                if (isBinaryXml(buf)) {
+                    fromBinary(buf);
+                } else {
+                    fromText(buf.toByteArray());
                 }
             } else {
                 throw new IllegalArgumentException("Unsupported input type for KBinXML constructor");
@@ -125,20 +138,69 @@ public class KbinXml {
         this(input, false);
     }
 
+    // empty instance for KbinCodec, filled by fromBinary / fromBytes
+    KbinXml(boolean convertIllegalThings) {
+        this.convertIllegalThings = convertIllegalThings;
+    }
+
+    // binary kbin or XML text, as the byte[] constructor
+    void fromBytes(byte[] input) {
+        if (isBinaryXml(input)) {
+            fromBinary(input);
+        } else {
+            fromText(input);
+        }
+    }
+
+    // ---------- Metrics ----------
+
+    /**
+     * Report the statistics of this instance's conversions (including the parse done by a constructor
+     * that runs after the default listener was set) to {@code listener}; null turns reporting off.
+     */
+    public void setListener(KbinListener listener) {
+        this.listener = listener;
+    }
+
+    public KbinListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Dump the node stream of this instance's next {@link #fromBinary} calls to {@code tracer}, e.g.
+     * {@code KbinTracer.printingTo(System.err)}; null turns tracing off.
+     */
+    public void setTracer(KbinTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Listener for instances created from now on that do not set their own; null turns it off.
+     */
+    public static void setDefaultListener(KbinListener listener) {
+        defaultListener = listener;
+    }
+
+    static KbinListener getDefaultListener() {
+        return defaultListener;
+    }
+
     // ---------- Text serialization / parsing ----------
 
     public String toText() {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.TO_TEXT);
+        KbinCodec.Scratch scratch = KbinCodec.acquire();
         try {
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer t = tf.newTransformer();
-            t.setOutputProperty(OutputKeys.INDENT, "yes");
-            t.setOutputProperty(OutputKeys.ENCODING, XML_ENCODING);
-            t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
             StringWriter sw = new StringWriter();
-            t.transform(new DOMSource(xmlDoc), new StreamResult(sw));
+            scratch.transformer.transform(new DOMSource(xmlDoc), new StreamResult(sw));
+            probe.lap(KbinStats.Phase.TEXT);
+            probe.format(XML_ENCODING, false);
+            probe.end();
             return sw.toString();
         } catch (Exception e) {
             throw new RuntimeException("Failed to serialize XML", e);
+        } finally {
+            KbinCodec.release(scratch);
         }
     }
 
@@ -147,28 +209,37 @@ public class KbinXml {
     }
 
     private void fromText(byte[] input) {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.FROM_TEXT);
+        // the pooled builder is namespace aware so we can handle namespaces later
+        KbinCodec.Scratch scratch = KbinCodec.acquire();
         try {
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            // keep namespace aware so we can handle namespaces later
-            dbf.setNamespaceAware(true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
             ByteArrayInputStream bais = new ByteArrayInputStream(input);
-            Document doc = db.parse(bais);
+            Document doc = scratch.builder.parse(bais);
             this.xmlDoc = doc;
             this.xmlRoot = doc.getDocumentElement();
             this.encoding = XML_ENCODING;
             this.compressed = true;
             this.dataSize = null;
+            probe.lap(KbinStats.Phase.TEXT);
+            probe.format(XML_ENCODING, false);
+            probe.end();
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse XML text input", e);
+        } finally {
+            KbinCodec.release(scratch);
         }
     }
 
     // ---------- Utility: detect binary XML ----------
 
     public static boolean isBinaryXml(byte[] input) {
-        if (input.length < 2) return false;
-        KBinXmlByteBuffer nodeBuf = new KBinXmlByteBuffer(input);
+        return isBinaryXml(KBinXmlByteBuffer.wrap(input));
+    }
+
+    public static boolean isBinaryXml(KBinXmlByteBuffer input) {
+        if (input.length() < 2) return false;
+        KBinXmlByteBuffer nodeBuf = input.duplicate();
+        nodeBuf.setOffset(0);
         int b0 = nodeBuf.getU8();
         int b1 = nodeBuf.getU8();
         return b0 == SIGNATURE && (b1 == SIG_COMPRESSED || b1 == SIG_UNCOMPRESSED);
@@ -314,126 +385,6 @@ public class KbinXml {
         return (size + 8) & ~7;
     }
 
-    // ---------- data buffer helpers ----------
-
-    // Python data_grab_auto
-    public byte[] data_grab_auto() {
-        int size = this.dataBuf.getS32();
-        byte[] ret = this.dataBuf.getBytes(size);
-        this.dataBuf.realignReads(4);
-        return ret;
-    }
-
-    public void data_append_auto(byte[] data) {
-        this.dataBuf.appendS32(data.length);
-        this.dataBuf.appendBytes(data);
-        this.dataBuf.realignWrites(4);
-    }
-
-    public String data_grab_string() {
-        byte[] data = data_grab_auto();
-        if (data.length == 0) return "";
-        // remove trailing null
-        byte[] trimmed = Arrays.copyOf(data, data.length - 1);
-        try {
-            return new String(trimmed, Charset.forName(this.encoding));
-        } catch (Exception e) {
-            if ("cp932".equalsIgnoreCase(this.encoding)) {
-                if (!this.convertIllegalThings) {
-                    throw new KBinException(String.format("Could not decode string. To force utf8 decode %s.", convertIllegalHelp), e);
-                }
-                System.err.println("KBinXML: Malformed Shift-JIS string found, attempting UTF-8 decode");
-                System.err.println("KBinXML: Raw string data: " + Arrays.toString(trimmed));
-                return new String(trimmed, Charset.forName("UTF-8"));
-            } else {
-                throw new RuntimeException(e);
-            }
-        }
-    }
-
-    public void data_append_string(String string) {
-        try {
-            byte[] b = (string.getBytes(this.encoding));
-            byte[] out = Arrays.copyOf(b, b.length + 1);
-            out[b.length] = 0;
-            data_append_auto(out);
-        } catch (UnsupportedEncodingException e) {
-            byte[] b = string.getBytes();
-            byte[] out = Arrays.copyOf(b, b.length + 1);
-            out[b.length] = 0;
-            data_append_auto(out);
-        }
-    }
-
-    // data_grab_aligned and data_append_aligned require careful offset handling to emulate Python behaviour
-    public Object data_grab_aligned(String type, int count) {
-        if (this.dataByteBuf.getOffset() % 4 == 0) {
-            this.dataByteBuf.setOffset(this.dataBuf.getOffset());
-        }
-        if (this.dataWordBuf.getOffset() % 4 == 0) {
-            this.dataWordBuf.setOffset(this.dataBuf.getOffset());
-        }
-        int size = calcSize(type) * count;
-        Object ret;
-        if (size == 1) {
-            ret = this.dataByteBuf.get(type, count);
-        } else if (size == 2) {
-            ret = this.dataWordBuf.get(type, count);
-        } else {
-            ret = this.dataBuf.get(type, count);
-            this.dataBuf.realignReads(4);
-        }
-        int trailing = Math.max(this.dataByteBuf.getOffset(), this.dataWordBuf.getOffset());
-        if (this.dataBuf.getOffset() < trailing) {
-            this.dataBuf.setOffset(trailing);
-            this.dataBuf.realignReads(4);
-        }
-        return ret;
-    }
-
-    public void data_append_aligned(Object data, String type, int count) {
-        if (this.dataByteBuf.getOffset() % 4 == 0) {
-            this.dataByteBuf.setOffset(this.dataBuf.getOffset());
-        }
-        if (this.dataWordBuf.getOffset() % 4 == 0) {
-            this.dataWordBuf.setOffset(this.dataBuf.getOffset());
-        }
-        int size = calcSize(type) * count;
-        if (size == 1) {
-            if (this.dataByteBuf.getOffset() % 4 == 0) {
-                this.dataBuf.appendU32(0);
-            }
-            this.dataByteBuf.set(data, this.dataByteBuf.getOffset(), type, count);
-        } else if (size == 2) {
-            if (this.dataWordBuf.getOffset() % 4 == 0) {
-                this.dataBuf.appendU32(0);
-            }
-            this.dataWordBuf.set(data, this.dataWordBuf.getOffset(), type, count);
-        } else {
-            this.dataBuf.append(data, type, count);
-            this.dataBuf.realignWrites(4);
-        }
-    }
-
-    // ---------- node name handling ----------
-
-    public void append_node_name(String name) {
-        if (this.compressed) {
-            Sixbit.packSixBit(name, this.nodeBuf);
-        } else {
-            try {
-                byte[] enc = name.getBytes(this.encoding);
-                // Python: nodeBuf.appendU8((len(enc) - 1) | 64)
-                this.nodeBuf.appendU8(((enc.length - 1) & 0xFF) | 64);
-                this.nodeBuf.appendBytes(enc);
-            } catch (UnsupportedEncodingException e) {
-                byte[] enc = name.getBytes();
-                this.nodeBuf.appendU8(((enc.length - 1) & 0xFF) | 64);
-                this.nodeBuf.appendBytes(enc);
-            }
-        }
-    }
-
     // ---------- namespace helper (approx) ----------
     // Python uses lxml's nsmap; here we emulate by adding xmlns attributes on an element
     private Element _add_namespace(Element node, String name, String value) {
@@ -470,166 +421,90 @@ public class KbinXml {
     }
 
     // ---------- node -> binary (serialization) ----------
-    private void _node_to_binary(Element node) {
-        String nodeType = node.getAttribute("__type");
-        if (nodeType == null || nodeType.isEmpty()) {
-            String text = node.getNodeValue();
-            if (text != null && text.trim().length() > 0) {
-                nodeType = "str";
-            } else {
-                nodeType = "void";
+    private void _node_to_binary(Element node, KbinWriter writer) {
+        String val = nodeText(node);
+        writer.startNode(node.getTagName(), nodeType(node.getAttribute("__type"), val), nodeCount(node.getAttribute("__count")), val);
+
+        for (Map.Entry<String, String> kv : sortedAttributes(node)) {
+            writer.attr(kv.getKey(), kv.getValue());
+        }
+
+        // children
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node c = children.item(i);
+            if (c.getNodeType() == Node.ELEMENT_NODE) {
+                _node_to_binary((Element) c, writer);
             }
         }
-        Integer nodeId = FormatIds.XML_TYPES.get(nodeType);
-        if (nodeId == null) {
-            throw new KBinException("Unknown node type: " + nodeType);
+
+        writer.endNode();
+    }
+
+    // sizing pre-pass: same walk as _node_to_binary, feeding the layout instead of a writer
+    private static void _node_size(Element node, KbinLayout layout) {
+        String val = nodeText(node);
+        layout.startNode(node.getTagName(), nodeType(node.getAttribute("__type"), val), nodeCount(node.getAttribute("__count")), val);
+
+        for (Map.Entry<String, String> kv : sortedAttributes(node)) {
+            layout.attr(kv.getKey(), kv.getValue());
         }
 
-        int isArray = 0;
-        String countAttr = node.getAttribute("__count");
-        int count = 0;
-        if (countAttr != null && !countAttr.isEmpty()) {
-            try {
-                count = Integer.parseInt(countAttr);
-                isArray = 64; // array flag bit
-            } catch (Exception ignored) {
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node c = children.item(i);
+            if (c.getNodeType() == Node.ELEMENT_NODE) {
+                _node_size((Element) c, layout);
             }
         }
 
-        // nodeBuf.appendU8(nodeId | isArray)
-        this.nodeBuf.appendU8((nodeId | isArray) & 0xFF);
+        layout.endNode();
+    }
 
-        String name = node.getTagName();
-        append_node_name(name);
+    private static String nodeText(Element node) {
+        String val = node.getNodeValue();
+        if (val == null && node.getFirstChild() != null)
+            val = node.getFirstChild().getNodeValue();
+        return val;
+    }
 
-        if (!"void".equals(nodeType)) {
-            @SuppressWarnings("unchecked")
-            var fmt = FormatIds.XML_FORMATS.get(nodeId);
-            if (fmt == null) throw new KBinException("Missing format for nodeId " + nodeId);
-
-            String val = node.getNodeValue();
-            if (val == null && node.getFirstChild() != null)
-                val = node.getFirstChild().getNodeValue();
-            byte[] dataBytes = null;
-            Object dataObj = null;
-
-            String fmtName = fmt.name;
-            if ("bin".equals(fmtName)) {
-                if (val == null) val = "";
-                // hex string to bytes
-                String hex = val.trim();
-                if (hex.length() % 2 == 1) hex = "0" + hex;
-                int len = hex.length() / 2;
-                dataBytes = new byte[len];
-                for (int i = 0; i < len; i++) {
-                    dataBytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
-                }
-            } else if ("str".equals(fmtName)) {
-                if (val == null) val = "";
-                try {
-                    byte[] enc = (val.getBytes(this.encoding));
-                    dataBytes = Arrays.copyOf(enc, enc.length + 1);
-                    dataBytes[enc.length] = 0;
-                } catch (UnsupportedEncodingException e) {
-                    byte[] enc = val.getBytes();
-                    dataBytes = Arrays.copyOf(enc, enc.length + 1);
-                    dataBytes[enc.length] = 0;
-                }
+    private static String nodeType(String typeAttr, String val) {
+        String nodeType = typeAttr;
+        if (nodeType == null || nodeType.isEmpty()) {
+            if (val != null && val.trim().length() > 0) {
+                nodeType = "str";
             } else {
-                // numbers / arrays: split and map with fmt.get("fromStr", int)
-                if (val == null) val = "";
-                String[] parts = val.trim().isEmpty() ? new String[0] : val.trim().split("\\s+");
-                // We'll store them as a List of Numbers or Strings depending on fmt.get("fromStr")
-                java.util.List<Object> list = new ArrayList<>();
-                @SuppressWarnings("unchecked")
-                var fromStr = fmt.fromStr;
-                for (String p : parts) {
-                    if (fromStr != null) {
-                        // Not likely; skip
-                        var d = fromStr.apply(p);
-                        list.add(d);
-                    } else {
-                        try {
-                            list.add(Integer.parseInt(p));
-                        } catch (NumberFormatException nfe) {
-                            try {
-                                list.add(Double.parseDouble(p));
-                            } catch (NumberFormatException ex) {
-                                list.add(p);
-                            }
-                        }
-                    }
-                }
-                dataObj = list;
-                if (count != 0) {
-                    int fmtCount = fmt.count;
-                    if (fmtCount > 0) {
-                        if (list.size() / fmtCount != count) {
-                            throw new IllegalArgumentException("Array length does not match __count attribute");
-                        }
-                    }
-                }
+                nodeType = "void";
             }
+        }
+        return nodeType;
+    }
 
-            // append to data buffer depending on array flags
-            Integer fmtCount = fmt.count;
-            String fmtType = (String) fmt.type;
-
-            if (isArray != 0 || fmtCount == -1) {
-                if (dataBytes != null) {
-                    this.dataBuf.appendU32(dataBytes.length);
-                    this.dataBuf.appendBytes(dataBytes);
-                } else if (dataObj != null) {
-                    // dataObj is List<Object>, use KBinXmlByteBuffer.append
-                    java.util.List<?> list = (java.util.List<?>) dataObj;
-                    this.dataBuf.appendU32(list.size() * calcSize(fmtType));
-                    this.dataBuf.append(list, fmtType, list.size());
-                }
-                this.dataBuf.realignWrites(4);
-            } else {
-                if (dataBytes != null) {
-                    // convert bytes to array data and append appropriately
-                    // Here we treat it as raw bytes; Python code would call data_append_aligned for strings: it expects to write bytes into buffer aligned
-                    // We'll call data_append_aligned with a byte[] and type "B"
-                    this.data_append_aligned(dataBytes, fmtType, fmtCount);
-                } else if (dataObj != null) {
-                    this.data_append_aligned(dataObj, fmtType, fmtCount);
-                }
+    private static int nodeCount(String countAttr) {
+        int count = -1;
+        if (countAttr != null && !countAttr.isEmpty()) {
+            try {
+                count = Integer.parseInt(countAttr);
+            } catch (Exception ignored) {
             }
         }
+        return count;
+    }
 
+    // attributes to encode, without __type/__size/__count
+    private static List<Map.Entry<String, String>> sortedAttributes(Element node) {
         // for test consistency and to be more faithful, sort the attrs
         NamedNodeMap attrs = node.getAttributes();
         List<Map.Entry<String, String>> sortedAttrs = new ArrayList<>();
         for (int i = 0; i < attrs.getLength(); i++) {
             Attr a = (Attr) attrs.item(i);
-            sortedAttrs.add(new AbstractMap.SimpleEntry<>(a.getName(), a.getValue()));
-        }
-        sortedAttrs.sort(Comparator.comparing(Map.Entry::getKey));
-
-        for (Map.Entry<String, String> kv : sortedAttrs) {
-            String key = kv.getKey();
-            String value = kv.getValue();
+            String key = a.getName();
             if (!key.equals("__type") && !key.equals("__size") && !key.equals("__count")) {
-                data_append_string(value);
-                int attrType = FormatIds.XML_TYPES.get("attr");
-                this.nodeBuf.appendU8(attrType);
-                append_node_name(key);
-            }
-        }
-
-        // children
-        NodeList children = node.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            Node c = children.item(i);
-            if (c.getNodeType() == Node.ELEMENT_NODE) {
-                _node_to_binary((Element) c);
+                sortedAttrs.add(new AbstractMap.SimpleEntry<>(key, a.getValue()));
             }
         }
-
-        // always has isArray bit set on nodeEnd
-        int nodeEndType = FormatIds.XML_TYPES.get("nodeEnd");
-        this.nodeBuf.appendU8(nodeEndType | 64);
+        sortedAttrs.sort(Comparator.comparing(Map.Entry::getKey));
+        return sortedAttrs;
     }
 
     // ---------- to_binary (serialize whole XML to kbin binary) ----------
@@ -638,117 +513,298 @@ public class KbinXml {
     }
 
     public byte[] toBinary(String encoding, boolean compressed) {
-        this.encoding = encoding;
-        this.compressed = compressed;
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.ENCODE);
+        // exact size from the sizing pass, so the result is allocated once and never copied
+        KbinLayout layout = measure(encoding, compressed);
+        probe.lap(KbinStats.Phase.LAYOUT);
+        byte[] out = new byte[layout.getTotalSize()];
+        encodeInto(ByteBuffer.wrap(out), encoding, compressed, layout, probe);
+        return out;
+    }
 
-        KBinXmlByteBuffer header = new KBinXmlByteBuffer();
-        header.appendU8(SIGNATURE);
-        if (this.compressed) {
-            header.appendU8(SIG_COMPRESSED);
-        } else {
-            header.appendU8(SIG_UNCOMPRESSED);
-        }
-        header.appendU8(encoding_vals.getOrDefault(this.encoding, 0) & 0xFF);
-        header.appendU8((0xFF ^ encoding_vals.getOrDefault(this.encoding, 0)) & 0xFF);
+    /**
+     * @return exact length of {@link #toBinary(String, boolean)}'s output, computed without encoding
+     */
+    public int getEncodedSize(String encoding, boolean compressed) {
+        return measure(encoding, compressed).getTotalSize();
+    }
 
-        this.nodeBuf = new KBinXmlByteBuffer();
-        this.dataBuf = new KBinXmlByteBuffer();
-        this.dataByteBuf = new KBinXmlByteBuffer(this.dataBuf.getData());
-        this.dataWordBuf = new KBinXmlByteBuffer(this.dataBuf.getData());
+    /**
+     * Encode into {@code dst} at its position and advance the position past the document. The header,
+     * node section and data section are written in place; nothing is buffered or copied. {@code dst} may be
+     * a heap or direct buffer and needs {@link #getEncodedSize} bytes remaining. If encoding fails, the
+     * position is unchanged but the bytes after it may have been overwritten.
+     *
+     * @return number of bytes written
+     * @throws java.nio.BufferOverflowException when {@code dst} is too small; nothing is written then
+     */
+    public int encodeInto(ByteBuffer dst, String encoding, boolean compressed) {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.ENCODE);
+        KbinLayout layout = measure(encoding, compressed);
+        probe.lap(KbinStats.Phase.LAYOUT);
+        return encodeInto(dst, encoding, compressed, layout, probe);
+    }
 
-        // recursive convert nodes
-        _node_to_binary(this.xmlRoot);
+    public int encodeInto(ByteBuffer dst) {
+        return encodeInto(dst, BIN_ENCODING, false);
+    }
 
-        // endSection with isArray bit
-        int endSection = FormatIds.XML_TYPES.get("endSection");
-        this.nodeBuf.appendU8(endSection | 64);
-        this.nodeBuf.realignWrites(4);
+    private int encodeInto(ByteBuffer dst, String encoding, boolean compressed, KbinLayout layout, KbinProbe probe) {
+        this.encoding = encoding;
+        this.compressed = compressed;
 
-        header.appendU32(this.nodeBuf.length()); // assume KBinXmlByteBuffer has length() or data length; if not adjust
-        this.dataSize = this.dataBuf.length();
-        this.nodeBuf.appendU32(this.dataSize);
+        KbinWriter writer = KbinWriter.inPlace(dst, encoding, compressed, layout);
+        _node_to_binary(this.xmlRoot, writer);
+        int written = writer.finishInPlace();
+        this.dataSize = layout.getDataSize();
+        probe.lap(KbinStats.Phase.WRITE);
+        endEncode(probe, writer);
+        return written;
+    }
 
-        // combine all bytes: header.data + nodeBuf.data + dataBuf.data
-        byte[] combined = new byte[header.getData().length + this.nodeBuf.getData().length + this.dataBuf.getData().length];
-        int pos = 0;
-        System.arraycopy(header.getData(), 0, combined, pos, header.getData().length);
-        pos += header.getData().length;
-        System.arraycopy(this.nodeBuf.getData(), 0, combined, pos, this.nodeBuf.getData().length);
-        pos += this.nodeBuf.getData().length;
-        System.arraycopy(this.dataBuf.getData(), 0, combined, pos, this.dataBuf.getData().length);
-        return combined;
+    private void endEncode(KbinProbe probe, KbinWriter writer) {
+        probe.format(encoding, compressed);
+        probe.sections(writer.getLength(), writer.getNodeSectionSize(), writer.getDataSize());
+        probe.nodes(writer.getNodeCount(), writer.getMaxDepth());
+        probe.end();
     }
 
-    // ---------- from_binary (parse bytes to DOM) ----------
-    public void fromBinary(byte[] input) {
+    /**
+     * Encode and write to {@code out} as header, node section and data section, straight from pooled
+     * section buffers; the full document is never held in one array. {@code out} is not flushed or closed.
+     *
+     * @return number of bytes written
+     */
+    public long writeTo(OutputStream out, String encoding, boolean compressed) throws IOException {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.ENCODE);
+        KbinCodec.Scratch scratch = KbinCodec.acquire();
         try {
-            // create root wrapper
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setNamespaceAware(true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document doc = db.newDocument();
-            Element wrapper = doc.createElement("root");
-            doc.appendChild(wrapper);
-            this.xmlDoc = doc;
-            this.xmlRoot = wrapper;
-
-            this.nodeBuf = new KBinXmlByteBuffer(input);
-            if (!(this.nodeBuf.getU8() == SIGNATURE))
-                throw new Exception("assert failed: this.nodeBuf.getU8() == SIGNATURE");
+            KbinWriter writer = writeSections(scratch.writer(encoding, compressed), encoding, compressed);
+            probe.lap(KbinStats.Phase.WRITE);
+            long written = writer.writeTo(out);
+            probe.lap(KbinStats.Phase.OUTPUT);
+            endEncode(probe, writer);
+            return written;
+        } finally {
+            KbinCodec.release(scratch);
+        }
+    }
 
-            int compress = this.nodeBuf.getU8();
-            if (!(compress == SIG_COMPRESSED || compress == SIG_UNCOMPRESSED))
-                throw new Exception("assert failed: compress == SIG_COMPRESSED || compress == SIG_UNCOMPRESSED");
-            this.compressed = (compress == SIG_COMPRESSED);
+    /**
+     * As {@link #writeTo(OutputStream, String, boolean)}, with a gathering write when {@code channel}
+     * is a {@link java.nio.channels.GatheringByteChannel} (file and socket channels are).
+     */
+    public long writeTo(WritableByteChannel channel, String encoding, boolean compressed) throws IOException {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.ENCODE);
+        KbinCodec.Scratch scratch = KbinCodec.acquire();
+        try {
+            KbinWriter writer = writeSections(scratch.writer(encoding, compressed), encoding, compressed);
+            probe.lap(KbinStats.Phase.WRITE);
+            long written = writer.writeTo(channel);
+            probe.lap(KbinStats.Phase.OUTPUT);
+            endEncode(probe, writer);
+            return written;
+        } finally {
+            KbinCodec.release(scratch);
+        }
+    }
 
-            int encoding_key = this.nodeBuf.getU8();
-            if (!(this.nodeBuf.getU8() == (0xFF ^ encoding_key)))
-                throw new Exception("assert failed: this.nodeBuf.getU8() == (0xFF ^ encoding_key)");
-            this.encoding = encoding_strings.getOrDefault(encoding_key, XML_ENCODING);
+    private KbinWriter writeSections(KbinWriter writer, String encoding, boolean compressed) {
+        this.encoding = encoding;
+        this.compressed = compressed;
+        _node_to_binary(this.xmlRoot, writer);
+        this.dataSize = writer.getDataSize();
+        return writer;
+    }
 
-            int nodeEnd = this.nodeBuf.getU32() + 8;
-            this.nodeBuf.setEnd(nodeEnd);
+    private KbinLayout measure(String encoding, boolean compressed) {
+        KbinLayout layout = new KbinLayout(encoding, compressed);
+        _node_size(this.xmlRoot, layout);
+        return layout;
+    }
 
-            this.dataBuf = new KBinXmlByteBuffer(input, nodeEnd);
-            this.dataSize = this.dataBuf.getU32();
+    // ---------- XML text -> binary without a DOM ----------
 
-            this.dataByteBuf = new KBinXmlByteBuffer(input, nodeEnd);
-            this.dataWordBuf = new KBinXmlByteBuffer(input, nodeEnd);
+    /**
+     * Encode XML text without building a DOM: elements are written to the node and data sections as the
+     * parser reaches them, giving the same kbin as parsing the text and calling
+     * {@link #toBinary(String, boolean)}. Apart from the encoded sections, memory use is the attributes
+     * and text of the element being read, whatever the document size. {@code xml} is not closed, and this
+     * instance's document is left alone.
+     */
+    public byte[] streamBinary(InputStream xml, String encoding, boolean compressed) {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.ENCODE_FROM_TEXT);
+        KbinCodec.Scratch scratch = KbinCodec.acquire();
+        try {
+            KbinWriter writer = streamSections(scratch, xml, encoding, compressed);
+            probe.lap(KbinStats.Phase.WRITE);
+            byte[] out = writer.toByteArray();
+            probe.lap(KbinStats.Phase.OUTPUT);
+            endEncode(probe, writer);
+            return out;
+        } finally {
+            KbinCodec.release(scratch);
+        }
+    }
 
-            boolean nodesLeft = true;
-            Element node = this.xmlRoot;
+    /**
+     * As {@link #streamBinary(InputStream, String, boolean)}, writing header, node section and data
+     * section to {@code out}, which is not flushed or closed.
+     *
+     * @return number of bytes written
+     */
+    public long streamBinary(InputStream xml, OutputStream out, String encoding, boolean compressed) throws IOException {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.ENCODE_FROM_TEXT);
+        KbinCodec.Scratch scratch = KbinCodec.acquire();
+        try {
+            KbinWriter writer = streamSections(scratch, xml, encoding, compressed);
+            probe.lap(KbinStats.Phase.WRITE);
+            long written = writer.writeTo(out);
+            probe.lap(KbinStats.Phase.OUTPUT);
+            endEncode(probe, writer);
+            return written;
+        } finally {
+            KbinCodec.release(scratch);
+        }
+    }
 
-            while (nodesLeft && this.nodeBuf.hasData()) {
-                while (this.nodeBuf.peekU8() == 0) {
-                    debugPrint("Skipping 0 node ID");
-                    this.nodeBuf.getU8();
+    private KbinWriter streamSections(KbinCodec.Scratch scratch, InputStream input, String encoding, boolean compressed) {
+        this.encoding = encoding;
+        this.compressed = compressed;
+        KbinWriter writer = scratch.writer(encoding, compressed);
+        XMLStreamReader xml = null;
+        try {
+            xml = scratch.xmlInput.createXMLStreamReader(input);
+            _text_to_binary(xml, writer);
+        } catch (XMLStreamException e) {
+            throw new KBinException("Failed to parse XML text input", e);
+        } finally {
+            if (xml != null) {
+                try {
+                    xml.close();
+                } catch (XMLStreamException ignored) {
                 }
+            }
+        }
+        this.dataSize = writer.getDataSize();
+        return writer;
+    }
 
-                int nodeType = this.nodeBuf.getU8();
-                int isArray = nodeType & 64;
-                nodeType &= ~64;
+    // same nodes as _node_to_binary on the parsed document. An element is written once its node value is
+    // known, which is the DOM's getFirstChild().getNodeValue(): the first run of text, or the first
+    // comment, CDATA section or processing instruction, or null when the first child is an element.
+    private static void _text_to_binary(XMLStreamReader xml, KbinWriter writer) throws XMLStreamException {
+        // the element read but not written yet
+        String name = null;
+        String typeAttr = null;
+        String countAttr = null;
+        List<Map.Entry<String, String>> attrs = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        boolean textFirst = false;
+
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                // the parser may split one text node into several events
+                if (name != null) {
+                    text.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                    textFirst = true;
+                }
+                continue;
+            }
 
-                var nodeFormat = FormatIds.XML_FORMATS.get(nodeType);
-                if (nodeFormat == null)
-                    nodeFormat = new FormatIds.XmlFormat(0, null, 0, new String[]{"Unknown"}, null, null);
-                debugPrint("Node type is " + nodeFormat.name + " (" + nodeType + ")");
+            if (name != null) {
+                String val;
+                if (textFirst) {
+                    val = text.toString();
+                } else if (event == XMLStreamConstants.COMMENT || event == XMLStreamConstants.CDATA) {
+                    val = xml.getText();
+                } else if (event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                    val = xml.getPIData();
+                } else {
+                    val = null;
+                }
+                writer.startNode(name, nodeType(typeAttr, val), nodeCount(countAttr), val);
+                attrs.sort(Map.Entry.comparingByKey());
+                for (Map.Entry<String, String> kv : attrs) {
+                    writer.attr(kv.getKey(), kv.getValue());
+                }
+                name = null;
+            }
 
-                String name = "";
-                if (nodeType != FormatIds.XML_TYPES.get("nodeEnd") && nodeType != FormatIds.XML_TYPES.get("endSection")) {
-                    if (this.compressed) {
-                        name = Sixbit.unpackSixbit(this.nodeBuf);
-                    } else {
-                        int length = (this.nodeBuf.getU8() & ~64) + 1;
-                        byte[] nb = this.nodeBuf.getBytes(length);
-                        name = new String(nb, Charset.forName(this.encoding));
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                name = qualifiedName(xml.getPrefix(), xml.getLocalName());
+                typeAttr = null;
+                countAttr = null;
+                attrs.clear();
+                text.setLength(0);
+                textFirst = false;
+                // the namespace-aware DOM keeps declarations as xmlns attributes
+                for (int i = 0; i < xml.getNamespaceCount(); i++) {
+                    String prefix = xml.getNamespacePrefix(i);
+                    String uri = xml.getNamespaceURI(i);
+                    attrs.add(new AbstractMap.SimpleEntry<>(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix,
+                            uri == null ? "" : uri));
+                }
+                for (int i = 0; i < xml.getAttributeCount(); i++) {
+                    String key = qualifiedName(xml.getAttributePrefix(i), xml.getAttributeLocalName(i));
+                    String value = xml.getAttributeValue(i);
+                    if (key.equals("__type")) {
+                        typeAttr = value;
+                    } else if (key.equals("__count")) {
+                        countAttr = value;
+                    } else if (!key.equals("__size")) {
+                        attrs.add(new AbstractMap.SimpleEntry<>(key, value));
                     }
-                    debugPrint(name);
                 }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                writer.endNode();
+            }
+        }
+    }
 
-                boolean skip = true;
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
 
-                if (nodeType == FormatIds.XML_TYPES.get("attr")) {
-                    String value = data_grab_string();
+    // ---------- from_binary (parse bytes to DOM) ----------
+    public void fromBinary(byte[] input) {
+        fromBinary(KBinXmlByteBuffer.wrap(input));
+    }
+
+    // decodes straight from the view (heap, direct or memory-mapped); input is not copied
+    public void fromBinary(KBinXmlByteBuffer input) {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.DECODE);
+        try {
+            KbinReader reader = new KbinReader(input);
+            reader.setTracer(tracer());
+            this.compressed = reader.isCompressed();
+            this.encoding = reader.getEncoding();
+            this.dataSize = reader.getDataSize();
+            probe.lap(KbinStats.Phase.HEADER);
+
+            // create root wrapper
+            Document doc = newDocument();
+            // names are checked with XmlTextWriter.isName, as in streamText, not with the DOM's older XML 1.0 rules
+            doc.setStrictErrorChecking(false);
+            Element wrapper = doc.createElement("root");
+            doc.appendChild(wrapper);
+            this.xmlDoc = doc;
+            this.xmlRoot = wrapper;
+            probe.lap(KbinStats.Phase.DOM);
+
+            Element node = this.xmlRoot;
+            int nodeCount = 0;
+            int maxDepth = 0;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                String name = reader.getName();
+                probe.lap(KbinStats.Phase.NODES);
+
+                if (event == KbinReader.ATTRIBUTE) {
+                    checkAttributeName(name);
+                    String value = reader.getString();
                     if (name.startsWith("xmlns:")) {
                         String[] parts = name.split(":", 2);
                         if (parts.length == 2) {
@@ -769,103 +825,33 @@ public class KbinXml {
                     } else {
                         node.setAttribute(name, value);
                     }
-                } else if (nodeType == FormatIds.XML_TYPES.get("nodeEnd")) {
+                } else if (event == KbinReader.END_NODE) {
                     if (node.getParentNode() != null && node.getParentNode().getNodeType() == Node.ELEMENT_NODE) {
                         node = (Element) node.getParentNode();
                     }
-                } else if (nodeType == FormatIds.XML_TYPES.get("endSection")) {
-                    nodesLeft = false;
-                } else if (!FormatIds.XML_FORMATS.containsKey(nodeType)) {
-                    throw new UnsupportedOperationException("Implement node " + nodeType);
-                } else {
-                    skip = false;
-                }
-
-                if (skip) continue;
-
-                // create child element under current node
-                Element child;
-                try {
-                    child = this.xmlDoc.createElement(name);
+                } else if (event == KbinReader.VALUE) {
+                    String text = reader.getText();
+                    probe.lap(KbinStats.Phase.DATA);
+                    node.setTextContent(text);
+                } else if (event == KbinReader.START_NODE) {
+                    nodeCount++;
+                    maxDepth = Math.max(maxDepth, reader.getDepth());
+                    // create child element under current node
+                    Element child = this.xmlDoc.createElement(elementName(name));
                     node.appendChild(child);
-                } catch (DOMException e) {
-                    String fixedName = "_" + name;
-                    if (this.convertIllegalThings) {
-                        child = this.xmlDoc.createElement(fixedName);
-                        node.appendChild(child);
-                    } else {
-                        throw new KBinException(String.format("Could not create node with name \"%s\". To rename it to \"%s\", %s.", name, fixedName, convertIllegalHelp), e);
-                    }
-                }
-                node = child;
-
-                if (nodeType == FormatIds.XML_TYPES.get("nodeStart")) {
-                    continue;
-                }
+                    node = child;
 
-                node.setAttribute("__type", (String) nodeFormat.name);
-
-                long varCount = nodeFormat.count;
-                long arrayCount = 1;
-                if (varCount == -1) {
-                    varCount = this.dataBuf.getU32();
-                    isArray = 1;
-                } else if (isArray != 0) {
-                    long raw = this.dataBuf.getU32();
-                    int sizeOf = calcSize(((String) nodeFormat.type).repeat(Math.max(1, (int) varCount)));
-                    arrayCount = raw / sizeOf;
-                    node.setAttribute("__count", Integer.toString((int) arrayCount));
-                }
-                long totalCount = arrayCount * varCount;
-
-                Object data;
-                if (isArray != 0) {
-                    data = this.dataBuf.get((String) nodeFormat.type, (int) totalCount);
-                    this.dataBuf.realignReads(4);
-                } else {
-                    data = this.data_grab_aligned((String) nodeFormat.type, (int) totalCount);
-                }
-
-                String stringVal;
-                if (nodeType == FormatIds.XML_TYPES.get("binary")) {
-                    node.setAttribute("__size", Integer.toString((int) totalCount));
-                    // data is expected to be byte[] or int[]; convert to hex
-                    if (data instanceof byte[]) {
-                        byte[] db2 = (byte[]) data;
-                        StringBuilder sb = new StringBuilder();
-                        for (byte b : db2) sb.append(String.format("%02x", b & 0xFF));
-                        stringVal = sb.toString();
-                    } else {
-                        stringVal = "";
-                    }
-                } else if (nodeType == FormatIds.XML_TYPES.get("string")) {
-                    // data assumed to be byte[] with trailing null
-                    if (data instanceof byte[]) {
-                        var db2 = (byte[]) data;
-                        if (db2.length > 0) {
-                            byte[] trimmed = Arrays.copyOf(db2, Math.max(0, db2.length - 1));
-                            stringVal = new String(trimmed, Charset.forName(this.encoding));
-                        } else {
-                            stringVal = "";
+                    if (reader.hasValue()) {
+                        node.setAttribute("__type", reader.getTypeName());
+                        if (reader.isArray()) {
+                            node.setAttribute("__count", Integer.toString(reader.getCount()));
+                        }
+                        if (reader.getNodeType() == FormatIds.BINARY) {
+                            node.setAttribute("__size", Integer.toString(reader.getValueCount()));
                         }
-                    } else {
-                        stringVal = "";
-                    }
-                } else {
-                    // join using toStr if available; fallback to toString
-                    @SuppressWarnings("unchecked")
-                    java.util.function.Function<Object, String> toStr = nodeFormat.toStr;
-                    if (toStr == null)
-                        toStr = (o) -> o != null ? String.valueOf(o) : "";
-                    if (data.getClass().isArray()) {
-                        var arr = CastToArray(data);
-                        stringVal = Arrays.stream(arr).map(toStr::apply).collect(Collectors.joining(" "));
-                    } else {
-                        stringVal = data == null ? "" : String.valueOf(data);
                     }
                 }
-
-                node.setTextContent(stringVal.replaceAll("\0+$", ""));
+                probe.lap(KbinStats.Phase.DOM);
             }
 
             // because we need the 'real' root (Python returns xml_doc[0])
@@ -880,25 +866,119 @@ public class KbinXml {
                     break;
                 }
             }
+            probe.lap(KbinStats.Phase.DOM);
 
+            probe.format(encoding, compressed);
+            probe.sections(8 + reader.getNodeSectionSize() + 4 + reader.getDataSize(), reader.getNodeSectionSize(), reader.getDataSize());
+            probe.nodes(nodeCount, maxDepth);
+            probe.end();
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse binary input", e);
         }
     }
 
+    // ---------- kbin -> XML text without a DOM ----------
+
+    /**
+     * Stream a kbin document straight to XML text, node by node, without building a DOM. With an
+     * indenting writer the text is the same as {@link #fromBinary} followed by {@link #toText()}. Only the
+     * header fields (encoding, compression) of this instance are updated; its document is left alone.
+     */
+    public void streamText(KBinXmlByteBuffer input, XmlTextWriter out) throws IOException {
+        KbinProbe probe = new KbinProbe(listener, KbinStats.Operation.DECODE_TO_TEXT);
+        KbinReader reader = new KbinReader(input);
+        reader.setTracer(tracer());
+        this.compressed = reader.isCompressed();
+        this.encoding = reader.getEncoding();
+        this.dataSize = reader.getDataSize();
+        probe.lap(KbinStats.Phase.HEADER);
+
+        int nodeCount = 0;
+        int maxDepth = 0;
+        // as in fromBinary only the first top-level node is kept
+        boolean rootDone = false;
+        while (!rootDone && reader.hasNext()) {
+            int event = reader.next();
+            probe.lap(KbinStats.Phase.NODES);
+            if (event == KbinReader.START_NODE) {
+                nodeCount++;
+                maxDepth = Math.max(maxDepth, reader.getDepth());
+                out.startElement(elementName(reader.getName()));
+                if (reader.hasValue()) {
+                    out.attribute("__type", reader.getTypeName());
+                    if (reader.isArray()) {
+                        out.attribute("__count", Integer.toString(reader.getCount()));
+                    }
+                    if (reader.getNodeType() == FormatIds.BINARY) {
+                        out.attribute("__size", Integer.toString(reader.getValueCount()));
+                    }
+                }
+            } else if (event == KbinReader.ATTRIBUTE) {
+                String name = reader.getName();
+                checkAttributeName(name);
+                out.attribute(name, reader.getString());
+            } else if (event == KbinReader.VALUE) {
+                String text = reader.getText();
+                probe.lap(KbinStats.Phase.DATA);
+                out.text(text);
+            } else if (event == KbinReader.END_NODE) {
+                out.endElement();
+                rootDone = reader.getDepth() == 0;
+            }
+            probe.lap(KbinStats.Phase.TEXT);
+        }
+        if (nodeCount == 0) {
+            // fromBinary leaves its empty wrapper element as the document
+            out.startElement("root");
+        }
+        out.endDocument();
+        probe.lap(KbinStats.Phase.OUTPUT);
+
+        probe.format(encoding, compressed);
+        probe.sections(8 + reader.getNodeSectionSize() + 4 + reader.getDataSize(), reader.getNodeSectionSize(), reader.getDataSize());
+        probe.nodes(nodeCount, maxDepth);
+        probe.end();
+    }
+
+    // fromBinary, streamText and KbinCodec.decodeNode check names the same way: the node is renamed with
+    // a leading '_' when allowed, attributes are never renamed
+    private String elementName(String name) {
+        return elementName(name, this.convertIllegalThings);
+    }
+
+    static String elementName(String name, boolean convertIllegalThings) {
+        if (XmlTextWriter.isName(name)) {
+            return name;
+        }
+        String fixedName = "_" + name;
+        if (convertIllegalThings && XmlTextWriter.isName(fixedName)) {
+            return fixedName;
+        }
+        throw new KBinException(String.format("Could not create node with name \"%s\". To rename it to \"%s\", %s.", name, fixedName, convertIllegalHelp));
+    }
+
+    static void checkAttributeName(String name) {
+        if (!XmlTextWriter.isName(name)) {
+            throw new KBinException(String.format("Could not create attribute with name \"%s\".", name));
+        }
+    }
+
     // ---------- Utilities ----------
 
-    private static Object[] CastToArray(Object arrayOrObject) {
-        if (arrayOrObject == null)
-            return new Object[0];
-        if (!arrayOrObject.getClass().isArray())
-            return new Object[]{arrayOrObject};
-        var length = Array.getLength(arrayOrObject);
-        var arr = new Object[length];
-        for (int i = 0; i < length; i++) {
-            arr[i] = Array.get(arrayOrObject, i);
-        }
-        return arr;
+    private KbinTracer tracer() {
+        if (tracer == null && (DEBUG || DEBUG_OFFSETS)) {
+            return KbinTracer.printingTo(System.out);
+        }
+        return tracer;
+    }
+
+    private static Document newDocument() {
+        KbinCodec.Scratch scratch = KbinCodec.acquire();
+        try {
+            return scratch.builder.newDocument();
+        } finally {
+            KbinCodec.release(scratch);
+        }
     }
 
     // iterate through Elements (preorder)
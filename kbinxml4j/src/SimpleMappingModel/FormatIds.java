@@ -0,0 +1,200 @@
+package SimpleMappingModel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+public class FormatIds {
+    // 解码/编码热路径直接使用的节点 id
+    public static final int NODE_START = 1;
+    public static final int VOID = 1;
+    public static final int S8 = 2;
+    public static final int U8 = 3;
+    public static final int S16 = 4;
+    public static final int U16 = 5;
+    public static final int S32 = 6;
+    public static final int U32 = 7;
+    public static final int S64 = 8;
+    public static final int U64 = 9;
+    public static final int BINARY = 10;
+    public static final int STRING = 11;
+    public static final int ATTR = 46;
+    public static final int BOOL = 52;
+    public static final int NODE_END = 190;
+    public static final int END_SECTION = 191;
+    // 节点类型字节中的数组标志位
+    public static final int ARRAY_FLAG = 64;
+
+    // IP地址解析和写入方法
+    public static long parseIP(String ipString) {
+        return (long) IP4_TEXT.parseValue(ipString);
+    }
+
+    public static String writeIP(Object raw) {
+        return IP4_TEXT.formatValue(raw);
+    }
+
+    public static String writeFloat(Object value) {
+        StringBuilder sb = new StringBuilder();
+        TextCodec.appendFixed6(((Number) value).doubleValue(), sb);
+        return sb.toString();
+    }
+
+    private static final TextCodec IP4_TEXT = new TextCodec("I", "ip4");
+
+    // XML格式定义类
+    public static class XmlFormat {
+        public final int id;
+        public final String type;
+        public final int count;
+        public final String[] names;
+        public final Function<String, Object> fromStr;
+        public final Function<Object, String> toStr;
+        public final String name;
+        // 元素类型字符 b/B/h/H/i/I/q/Q/f/d，供 switch 分派；void/attr 为 0
+        public final char kind;
+        // 单个元素的字节数，void/attr 为 0
+        public final int elementSize;
+        // 非数组值的总字节数，变长（str/bin）及 void/attr 为 -1
+        public final int size;
+        // 数值类型的文本编解码，void/attr/str/bin 为 null
+        public final TextCodec text;
+
+        public XmlFormat(int id, String type, int count, String[] names,
+                         Function<String, Object> fromStr, Function<Object, String> toStr) {
+            this.id = id;
+            this.type = type;
+            this.count = count;
+            this.names = names.clone();
+            this.name = names.length > 0 ? names[0] : "";
+            this.kind = type == null ? 0 : type.charAt(0);
+            this.elementSize = getTypeSize(type);
+            this.size = type == null || count == -1 ? -1 : elementSize * count;
+            this.text = type == null || count == -1 ? null : new TextCodec(type, this.name);
+            // 未指定时使用 text 的单值编解码
+            this.fromStr = fromStr == null && text != null ? text::parseValue : fromStr;
+            this.toStr = toStr == null && text != null ? text::formatValue : toStr;
+        }
+    }
+
+    // 节点 id（0..191，已去掉数组标志位）-> 格式，未定义的 id 为 null；类初始化后不再修改，可跨线程共享
+    private static final XmlFormat[] FORMATS = new XmlFormat[END_SECTION + 1];
+
+    // XML格式映射（只读）
+    public static final Map<Integer, XmlFormat> XML_FORMATS;
+    public static final Map<String, Integer> XML_TYPES;
+
+    static {
+        Map<Integer, XmlFormat> formats = new HashMap<>();
+        Map<String, Integer> types = new HashMap<>();
+
+        // 初始化XML格式映射
+        register(formats, new XmlFormat(1, null, -1, new String[]{"void"}, null, null));
+        register(formats, new XmlFormat(2, "b", 1, new String[]{"s8"}, null, null));
+        register(formats, new XmlFormat(3, "B", 1, new String[]{"u8"}, null, null));
+        register(formats, new XmlFormat(4, "h", 1, new String[]{"s16"}, null, null));
+        register(formats, new XmlFormat(5, "H", 1, new String[]{"u16"}, null, null));
+        register(formats, new XmlFormat(6, "i", 1, new String[]{"s32"}, null, null));
+        register(formats, new XmlFormat(7, "I", 1, new String[]{"u32"}, null, null));
+        register(formats, new XmlFormat(8, "q", 1, new String[]{"s64"}, null, null));
+        register(formats, new XmlFormat(9, "Q", 1, new String[]{"u64"}, null, null));
+        register(formats, new XmlFormat(10, "B", -1, new String[]{"bin", "binary"}, null, o -> String.valueOf(o)));
+        register(formats, new XmlFormat(11, "B", -1, new String[]{"str", "string"}, o -> String.valueOf(o), o -> String.valueOf(o)));
+        register(formats, new XmlFormat(12, "I", 1, new String[]{"ip4"}, null, null));
+        register(formats, new XmlFormat(13, "I", 1, new String[]{"time"}, null, null));
+        register(formats, new XmlFormat(14, "f", 1, new String[]{"float", "f"}, null, null));
+        register(formats, new XmlFormat(15, "d", 1, new String[]{"double", "d"}, null, null));
+        register(formats, new XmlFormat(16, "b", 2, new String[]{"2s8"}, null, null));
+        register(formats, new XmlFormat(17, "B", 2, new String[]{"2u8"}, null, null));
+        register(formats, new XmlFormat(18, "h", 2, new String[]{"2s16"}, null, null));
+        register(formats, new XmlFormat(19, "H", 2, new String[]{"2u16"}, null, null));
+        register(formats, new XmlFormat(20, "i", 2, new String[]{"2s32"}, null, null));
+        register(formats, new XmlFormat(21, "I", 2, new String[]{"2u32"}, null, null));
+        register(formats, new XmlFormat(22, "q", 2, new String[]{"2s64", "vs64"}, null, null));
+        register(formats, new XmlFormat(23, "Q", 2, new String[]{"2u64", "vu64"}, null, null));
+        register(formats, new XmlFormat(24, "f", 2, new String[]{"2f"}, null, null));
+        register(formats, new XmlFormat(25, "d", 2, new String[]{"2d", "vd"}, null, null));
+        register(formats, new XmlFormat(26, "b", 3, new String[]{"3s8"}, null, null));
+        register(formats, new XmlFormat(27, "B", 3, new String[]{"3u8"}, null, null));
+        register(formats, new XmlFormat(28, "h", 3, new String[]{"3s16"}, null, null));
+        register(formats, new XmlFormat(29, "H", 3, new String[]{"3u16"}, null, null));
+        register(formats, new XmlFormat(30, "i", 3, new String[]{"3s32"}, null, null));
+        register(formats, new XmlFormat(31, "I", 3, new String[]{"3u32"}, null, null));
+        register(formats, new XmlFormat(32, "q", 3, new String[]{"3s64"}, null, null));
+        register(formats, new XmlFormat(33, "Q", 3, new String[]{"3u64"}, null, null));
+        register(formats, new XmlFormat(34, "f", 3, new String[]{"3f"}, null, null));
+        register(formats, new XmlFormat(35, "d", 3, new String[]{"3d"}, null, null));
+        register(formats, new XmlFormat(36, "b", 4, new String[]{"4s8"}, null, null));
+        register(formats, new XmlFormat(37, "B", 4, new String[]{"4u8"}, null, null));
+        register(formats, new XmlFormat(38, "h", 4, new String[]{"4s16"}, null, null));
+        register(formats, new XmlFormat(39, "H", 4, new String[]{"4u16"}, null, null));
+        register(formats, new XmlFormat(40, "i", 4, new String[]{"4s32", "vs32"}, null, null));
+        register(formats, new XmlFormat(41, "I", 4, new String[]{"4u32", "vu32"}, null, null));
+        register(formats, new XmlFormat(42, "q", 4, new String[]{"4s64"}, null, null));
+        register(formats, new XmlFormat(43, "Q", 4, new String[]{"4u64"}, null, null));
+        register(formats, new XmlFormat(44, "f", 4, new String[]{"4f", "vf"}, null, null));
+        register(formats, new XmlFormat(45, "d", 4, new String[]{"4d"}, null, null));
+        register(formats, new XmlFormat(46, null, -1, new String[]{"attr"}, null, null));
+        register(formats, new XmlFormat(48, "b", 16, new String[]{"vs8"}, null, null));
+        register(formats, new XmlFormat(49, "B", 16, new String[]{"vu8"}, null, null));
+        register(formats, new XmlFormat(50, "h", 8, new String[]{"vs16"}, null, null));
+        register(formats, new XmlFormat(51, "H", 8, new String[]{"vu16"}, null, null));
+        register(formats, new XmlFormat(52, "b", 1, new String[]{"bool", "b"}, null, null));
+        register(formats, new XmlFormat(53, "b", 2, new String[]{"2b"}, null, null));
+        register(formats, new XmlFormat(54, "b", 3, new String[]{"3b"}, null, null));
+        register(formats, new XmlFormat(55, "b", 4, new String[]{"4b"}, null, null));
+        register(formats, new XmlFormat(56, "b", 16, new String[]{"vb"}, null, null));
+
+        // 构建类型名称到ID的映射
+        for (XmlFormat format : formats.values()) {
+            for (String name : format.names) {
+                types.put(name, format.id);
+            }
+        }
+
+        // 添加特殊类型
+        types.put("nodeStart", NODE_START);
+        types.put("nodeEnd", NODE_END);
+        types.put("endSection", END_SECTION);
+
+        XML_FORMATS = Map.copyOf(formats);
+        XML_TYPES = Map.copyOf(types);
+    }
+
+    private static void register(Map<Integer, XmlFormat> formats, XmlFormat format) {
+        formats.put(format.id, format);
+        FORMATS[format.id] = format;
+    }
+
+    /**
+     * @return 节点 id 对应的格式，未定义时为 null；id 需已去掉数组标志位
+     */
+    public static XmlFormat format(int id) {
+        return id >= 0 && id < FORMATS.length ? FORMATS[id] : null;
+    }
+
+    // 辅助方法：获取类型大小
+    public static int getTypeSize(String type) {
+        if (type == null) return 0;
+        switch (type) {
+            case "b":
+            case "B":
+                return 1;
+            case "h":
+            case "H":
+                return 2;
+            case "i":
+            case "I":
+                return 4;
+            case "q":
+            case "Q":
+                return 8;
+            case "f":
+                return 4;
+            case "d":
+                return 8;
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+}
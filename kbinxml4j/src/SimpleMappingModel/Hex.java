@@ -0,0 +1,90 @@
+package SimpleMappingModel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class Hex {
+    private static final byte[] DIGITS = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+    // 字节 -> 两个小写十六进制字符，PAIRS[b * 2] 为高位，PAIRS[b * 2 + 1] 为低位
+    private static final byte[] PAIRS = new byte[512];
+    // 字符 -> 半字节，非十六进制字符为 -1
+    private static final byte[] NIBBLES = new byte[128];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            PAIRS[b * 2] = DIGITS[b >>> 4];
+            PAIRS[b * 2 + 1] = DIGITS[b & 0xF];
+        }
+        Arrays.fill(NIBBLES, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            NIBBLES[Character.forDigit(i, 16)] = (byte) i;
+            NIBBLES[Character.toUpperCase(Character.forDigit(i, 16))] = (byte) i;
+        }
+    }
+
+    public static String encode(byte[] data) {
+        return encode(data, 0, data.length);
+    }
+
+    public static String encode(byte[] data, int from, int length) {
+        // 纯 ASCII，按 Latin-1 构造字符串不需要再做字符转换
+        byte[] out = new byte[length * 2];
+        for (int i = 0, j = 0; i < length; i++, j += 2) {
+            int p = (data[from + i] & 0xFF) << 1;
+            out[j] = PAIRS[p];
+            out[j + 1] = PAIRS[p + 1];
+        }
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    // 写入调用方预先分配的 dst（至少 length * 2 个字符），返回写入的字符数
+    public static int encode(byte[] data, int from, int length, char[] dst, int dstOffset) {
+        for (int i = 0; i < length; i++, dstOffset += 2) {
+            int p = (data[from + i] & 0xFF) << 1;
+            dst[dstOffset] = (char) PAIRS[p];
+            dst[dstOffset + 1] = (char) PAIRS[p + 1];
+        }
+        return length * 2;
+    }
+
+    // decode(text) 将返回的字节数，不做解码
+    public static int decodedLength(CharSequence text) {
+        int from = 0;
+        int to = text.length();
+        while (from < to && Character.isWhitespace(text.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(text.charAt(to - 1))) to--;
+        return (to - from + 1) / 2;
+    }
+
+    // 首尾空白不参与解码（无需先 trim）；字符数为奇数时视为前面补了一个 0
+    public static byte[] decode(CharSequence text) {
+        int from = 0;
+        int to = text.length();
+        while (from < to && Character.isWhitespace(text.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(text.charAt(to - 1))) to--;
+        byte[] result = new byte[(to - from + 1) / 2];
+        decode(text, from, to, result, 0);
+        return result;
+    }
+
+    // 解码 text[from, to)，结果写入调用方预先分配的 dst（至少 (to - from + 1) / 2 字节），返回写入的字节数
+    public static int decode(CharSequence text, int from, int to, byte[] dst, int dstOffset) {
+        int start = dstOffset;
+        if (((to - from) & 1) != 0) {
+            dst[dstOffset++] = (byte) nibble(text, from++);
+        }
+        for (; from < to; from += 2) {
+            dst[dstOffset++] = (byte) ((nibble(text, from) << 4) | nibble(text, from + 1));
+        }
+        return dstOffset - start;
+    }
+
+    private static int nibble(CharSequence text, int index) {
+        char c = text.charAt(index);
+        int v = c < NIBBLES.length ? NIBBLES[c] : -1;
+        if (v < 0) {
+            throw new IllegalArgumentException("Invalid hex character '" + c + "' at " + index);
+        }
+        return v;
+    }
+}
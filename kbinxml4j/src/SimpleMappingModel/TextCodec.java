@@ -0,0 +1,344 @@
+package SimpleMappingModel;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 数值类型的 XML 文本编解码。每个 {@link FormatIds.XmlFormat} 持有一个实例，按元素类型
+ * (b/B/h/H/i/I/q/Q/f/d) 直接在基本类型与文本之间转换：格式化时把逐个读出的元素或
+ * 带类型的数组写入调用方的 StringBuilder，解析时手工扫描空白分隔的 token，不做装箱、正则拆分，也不靠异常回退。
+ */
+public final class TextCodec {
+    private final char type;
+    private final int bits;
+    // ip4 以点分十进制表示
+    private final boolean ip;
+
+    TextCodec(String type, String name) {
+        this.type = type.charAt(0);
+        this.bits = FormatIds.getTypeSize(type) * 8;
+        this.ip = "ip4".equals(name);
+    }
+
+    // ---------- 格式化 ----------
+
+    // 追加一个整数元素：raw 为按元素宽度有符号读出的值（getS8/getS16/getS32/getS64），不适用于 f/d
+    public void appendInteger(long raw, StringBuilder out) {
+        switch (type) {
+            case 'b':
+                out.append((byte) raw);
+                break;
+            case 'B':
+                out.append(raw & 0xFF);
+                break;
+            case 'h':
+                out.append((short) raw);
+                break;
+            case 'H':
+                out.append(raw & 0xFFFF);
+                break;
+            case 'i':
+                out.append((int) raw);
+                break;
+            case 'I':
+                appendU32((int) raw, out);
+                break;
+            case 'Q':
+                appendU64(raw, out);
+                break;
+            default:
+                out.append(raw);
+                break;
+        }
+    }
+
+    // 以空格分隔追加 values 的全部元素；values 须为 getArrayType() 类型的数组（即 parse 的返回值）
+    public void format(Object values, StringBuilder out) {
+        if (values == null || values.getClass() != getArrayType()) {
+            throw new IllegalArgumentException("Expected " + getArrayType().getSimpleName() + ", got "
+                    + (values == null ? "null" : values.getClass().getSimpleName()));
+        }
+        int length = Array.getLength(values);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) out.append(' ');
+            if (values instanceof byte[] array) {
+                appendInteger(array[i], out);
+            } else if (values instanceof short[] array) {
+                appendInteger(array[i], out);
+            } else if (values instanceof int[] array) {
+                appendInteger(array[i], out);
+            } else if (values instanceof long[] array) {
+                appendInteger(array[i], out);
+            } else if (values instanceof float[] array) {
+                appendFixed6(array[i], out);
+            } else {
+                appendFixed6(((double[]) values)[i], out);
+            }
+        }
+    }
+
+    // 格式化单个数值（兼容 XmlFormat.toStr）
+    public String formatValue(Object value) {
+        StringBuilder out = new StringBuilder();
+        Number number = (Number) value;
+        if (type == 'f' || type == 'd') {
+            appendFixed6(number.doubleValue(), out);
+        } else {
+            appendInteger(number.longValue(), out);
+        }
+        return out.toString();
+    }
+
+    private void appendU32(int value, StringBuilder out) {
+        if (ip) {
+            out.append(value >>> 24).append('.').append((value >> 16) & 0xFF).append('.')
+                    .append((value >> 8) & 0xFF).append('.').append(value & 0xFF);
+        } else {
+            out.append(value & 0xFFFFFFFFL);
+        }
+    }
+
+    private static void appendU64(long value, StringBuilder out) {
+        if (value >= 0) {
+            out.append(value);
+        } else {
+            out.append(Long.toUnsignedString(value));
+        }
+    }
+
+    // 等价于 String.format("%.6f", value)（小数点固定为 '.'）：对最短十进制表示按 HALF_UP 保留 6 位
+    public static void appendFixed6(double value, StringBuilder out) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append(value);
+            return;
+        }
+        String s = Double.toString(value);
+        if (s.indexOf('E') >= 0) {
+            BigDecimal rounded = new BigDecimal(s).setScale(6, RoundingMode.HALF_UP);
+            if (s.charAt(0) == '-' && rounded.signum() == 0) out.append('-');
+            out.append(rounded.toPlainString());
+            return;
+        }
+        int dot = s.indexOf('.');
+        int fraction = s.length() - dot - 1;
+        if (fraction <= 6) {
+            out.append(s);
+            for (int i = fraction; i < 6; i++) out.append('0');
+            return;
+        }
+        int last = dot + 6;
+        if (s.charAt(last + 1) < '5') {
+            out.append(s, 0, last + 1);
+            return;
+        }
+        // 第 7 位小数 >= 5，向上进位；digits[0] 留给进位到最高位时补的 1
+        char[] digits = new char[last + 2];
+        s.getChars(0, last + 1, digits, 1);
+        for (int i = last + 1; i > 0; i--) {
+            char c = digits[i];
+            if (c == '9') {
+                digits[i] = '0';
+            } else if (c >= '0' && c <= '8') {
+                digits[i]++;
+                out.append(digits, 1, last + 1);
+                return;
+            } else if (c == '-') {
+                break;
+            }
+        }
+        if (digits[1] == '-') {
+            digits[0] = '-';
+            digits[1] = '1';
+        } else {
+            digits[0] = '1';
+        }
+        out.append(digits, 0, last + 2);
+    }
+
+    // ---------- 解析 ----------
+
+    /**
+     * @return 空白分隔的全部 token，按元素类型存为 byte[]/short[]/int[]/long[]/float[]/double[]
+     */
+    public Object parse(CharSequence text) {
+        int length = text.length();
+        Object result = newArray(countTokens(text));
+        int n = 0;
+        for (int i = 0; i < length; ) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) i++;
+            if (i == length) break;
+            int start = i;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) i++;
+            parseInto(result, n++, text, start, i);
+        }
+        return result;
+    }
+
+    // 空白分隔的 token 数，即 parse 返回的数组长度
+    public static int countTokens(CharSequence text) {
+        int length = text.length();
+        int count = 0;
+        for (int i = 0; i < length; ) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) i++;
+            if (i == length) break;
+            count++;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) i++;
+        }
+        return count;
+    }
+
+    // 解析单个 token（兼容 XmlFormat.fromStr），整数返回 Long，浮点返回 Double
+    public Object parseValue(String token) {
+        String t = token.trim();
+        if (type == 'f' || type == 'd') {
+            return Double.parseDouble(t);
+        }
+        return parseInteger(t, 0, t.length());
+    }
+
+    /**
+     * @return parse 返回、format 接受的数组类型：byte[]/short[]/int[]/long[]/float[]/double[]
+     */
+    public Class<?> getArrayType() {
+        switch (type) {
+            case 'b':
+            case 'B':
+                return byte[].class;
+            case 'h':
+            case 'H':
+                return short[].class;
+            case 'i':
+            case 'I':
+                return int[].class;
+            case 'q':
+            case 'Q':
+                return long[].class;
+            case 'f':
+                return float[].class;
+            default:
+                return double[].class;
+        }
+    }
+
+    // getArrayType() 类型、长度为 count 的数组，供调用方逐个 parseInto
+    public Object newArray(int count) {
+        switch (type) {
+            case 'b':
+            case 'B':
+                return new byte[count];
+            case 'h':
+            case 'H':
+                return new short[count];
+            case 'i':
+            case 'I':
+                return new int[count];
+            case 'q':
+            case 'Q':
+                return new long[count];
+            case 'f':
+                return new float[count];
+            default:
+                return new double[count];
+        }
+    }
+
+    // 解析 text 中 [from, to) 这一个 token，存入 getArrayType() 类型数组的 array[index]
+    public void parseInto(Object array, int index, CharSequence text, int from, int to) {
+        switch (type) {
+            case 'b':
+            case 'B':
+                ((byte[]) array)[index] = (byte) parseInteger(text, from, to);
+                break;
+            case 'h':
+            case 'H':
+                ((short[]) array)[index] = (short) parseInteger(text, from, to);
+                break;
+            case 'i':
+            case 'I':
+                ((int[]) array)[index] = (int) parseInteger(text, from, to);
+                break;
+            case 'q':
+            case 'Q':
+                ((long[]) array)[index] = parseInteger(text, from, to);
+                break;
+            case 'f':
+                ((float[]) array)[index] = Float.parseFloat(text.subSequence(from, to).toString());
+                break;
+            default:
+                ((double[]) array)[index] = Double.parseDouble(text.subSequence(from, to).toString());
+                break;
+        }
+    }
+
+    // 接受该宽度的有符号或无符号取值范围，返回其补码
+    private long parseInteger(CharSequence text, int from, int to) {
+        if (ip) {
+            return parseIp(text, from, to);
+        }
+        boolean negative = false;
+        int i = from;
+        if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        if (i == to) {
+            throw invalid(text, from, to);
+        }
+        // 以无符号 64 位累加，溢出即报错
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || Long.compareUnsigned(value, 0x1999999999999999L) > 0) {
+                throw invalid(text, from, to);
+            }
+            long next = value * 10 + digit;
+            if (Long.compareUnsigned(next, value) < 0) {
+                throw invalid(text, from, to);
+            }
+            value = next;
+        }
+        if (bits == 64) {
+            if (negative && Long.compareUnsigned(value, Long.MIN_VALUE) > 0) {
+                throw invalid(text, from, to);
+            }
+            return negative ? -value : value;
+        }
+        long max = negative ? 1L << (bits - 1) : (1L << bits) - 1;
+        if (Long.compareUnsigned(value, max) > 0) {
+            throw invalid(text, from, to);
+        }
+        return negative ? -value : value;
+    }
+
+    private static long parseIp(CharSequence text, int from, int to) {
+        long value = 0;
+        int parts = 0;
+        int i = from;
+        while (parts < 4) {
+            int start = i;
+            int part = 0;
+            while (i < to && i - start < 3 && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                part = part * 10 + (text.charAt(i++) - '0');
+            }
+            if (i == start || part > 255) {
+                break;
+            }
+            value = (value << 8) | part;
+            if (++parts < 4) {
+                if (i == to || text.charAt(i) != '.') {
+                    break;
+                }
+                i++;
+            }
+        }
+        if (parts != 4 || i != to) {
+            throw new IllegalArgumentException("Invalid IP address format: " + text.subSequence(from, to));
+        }
+        return value;
+    }
+
+    private static NumberFormatException invalid(CharSequence text, int from, int to) {
+        return new NumberFormatException("Invalid number: \"" + text.subSequence(from, to) + "\"");
+    }
+}
@@ -0,0 +1,351 @@
+package SimpleMappingModel;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 流式 XML 文本输出，不构建 DOM，也不经过 JAXP Transformer。
+ * 输出与 KbinXml.toText / XrpcNodeConverter.ToXmlString 使用的 Transformer（缩进 4 格）逐字节一致：
+ * 相同的 XML 声明、属性按名称排序、相同的转义与缩进规则。compact 模式不换行也不缩进。
+ * <p>
+ * 元素的属性与文本可以在第一个子元素之前以任意顺序给出（kbin 中节点值先于属性），
+ * 开始标签在第一个子元素或结束时才写出。非线程安全。
+ */
+public final class XmlTextWriter {
+    public static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+
+    private static final int INDENT = 4;
+    private static final String SPACES = " ".repeat(64);
+
+    // 转义表：null 原样输出，否则为替换文本（实体或字符引用 &#n;）
+    private static final String[] TEXT_ESCAPES = new String[0xA0];
+    private static final String[] ATTR_ESCAPES = new String[0xA0];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            TEXT_ESCAPES[c] = "&#" + c + ";";
+            ATTR_ESCAPES[c] = "&#" + c + ";";
+        }
+        // 文本中的制表符与换行原样保留，属性中则必须转义
+        TEXT_ESCAPES['\t'] = null;
+        TEXT_ESCAPES['\n'] = null;
+        // C1 控制字符只在文本中转义
+        for (int c = 0x7F; c < 0xA0; c++) {
+            TEXT_ESCAPES[c] = "&#" + c + ";";
+        }
+        TEXT_ESCAPES['&'] = ATTR_ESCAPES['&'] = "&amp;";
+        TEXT_ESCAPES['<'] = ATTR_ESCAPES['<'] = "&lt;";
+        TEXT_ESCAPES['>'] = ATTR_ESCAPES['>'] = "&gt;";
+        ATTR_ESCAPES['"'] = "&quot;";
+    }
+
+    private final Appendable out;
+    private final boolean indent;
+
+    // 每层：元素名、开始标签是否已写出、是否有子元素
+    private String[] names = new String[16];
+    private boolean[] opened = new boolean[16];
+    private boolean[] hasChildren = new boolean[16];
+    private int depth;
+
+    // 当前未写出的开始标签：属性（按名称排序）与文本
+    private String[] attrNames = new String[8];
+    private String[] attrValues = new String[8];
+    private int attrCount;
+    private final StringBuilder text = new StringBuilder();
+
+    private boolean started;
+
+    /**
+     * @param indent true 与 Transformer INDENT=yes 相同，false 为紧凑输出
+     */
+    public XmlTextWriter(Appendable out, boolean indent) {
+        this.out = out;
+        this.indent = indent;
+    }
+
+    /**
+     * 以 UTF-8 写入 out（自带缓冲），结束文档时 flush，但不关闭 out
+     */
+    public XmlTextWriter(OutputStream out, boolean indent) {
+        this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), indent);
+    }
+
+    public void startElement(String name) throws IOException {
+        if (!isName(name)) {
+            throw new IllegalArgumentException("Invalid XML element name: \"" + name + "\"");
+        }
+        if (!started) {
+            started = true;
+            out.append(DECLARATION);
+        } else if (depth == 0) {
+            throw new IllegalStateException("Document already has a root element");
+        } else {
+            int parent = depth - 1;
+            if (!opened[parent]) {
+                writeStartTag(parent);
+                out.append('>');
+                if (text.length() > 0) {
+                    writeMixedText(parent + 1);
+                }
+            }
+            hasChildren[parent] = true;
+        }
+        if (indent) {
+            newLine(depth);
+        }
+        if (depth == names.length) {
+            names = Arrays.copyOf(names, depth * 2);
+            opened = Arrays.copyOf(opened, depth * 2);
+            hasChildren = Arrays.copyOf(hasChildren, depth * 2);
+        }
+        names[depth] = name;
+        opened[depth] = false;
+        hasChildren[depth] = false;
+        depth++;
+        attrCount = 0;
+        text.setLength(0);
+    }
+
+    /**
+     * 同名属性以后者为准，与 Element.setAttribute 相同
+     */
+    public void attribute(String name, String value) {
+        if (depth == 0 || opened[depth - 1]) {
+            throw new IllegalStateException("Attributes must come before the first child element");
+        }
+        if (!isName(name)) {
+            throw new IllegalArgumentException("Invalid XML attribute name: \"" + name + "\"");
+        }
+        // 插入排序，保持按名称有序
+        int i = attrCount;
+        while (i > 0) {
+            int cmp = attrNames[i - 1].compareTo(name);
+            if (cmp == 0) {
+                attrValues[i - 1] = value;
+                return;
+            }
+            if (cmp < 0) {
+                break;
+            }
+            i--;
+        }
+        if (attrCount == attrNames.length) {
+            attrNames = Arrays.copyOf(attrNames, attrCount * 2);
+            attrValues = Arrays.copyOf(attrValues, attrCount * 2);
+        }
+        System.arraycopy(attrNames, i, attrNames, i + 1, attrCount - i);
+        System.arraycopy(attrValues, i, attrValues, i + 1, attrCount - i);
+        attrNames[i] = name;
+        attrValues[i] = value;
+        attrCount++;
+    }
+
+    /**
+     * 元素的文本内容，须在第一个子元素之前给出
+     */
+    public void text(CharSequence value) {
+        if (depth == 0 || opened[depth - 1]) {
+            throw new IllegalStateException("Text must come before the first child element");
+        }
+        text.append(value);
+    }
+
+    public void endElement() throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("No open element");
+        }
+        int level = depth - 1;
+        if (!opened[level]) {
+            writeStartTag(level);
+            if (text.length() == 0) {
+                out.append("/>");
+            } else {
+                out.append('>');
+                escape(text, 0, TEXT_ESCAPES);
+                out.append("</").append(names[level]).append('>');
+            }
+            text.setLength(0);
+        } else {
+            if (indent) {
+                newLine(level);
+            }
+            out.append("</").append(names[level]).append('>');
+        }
+        names[level] = null;
+        depth = level;
+        attrCount = 0;
+    }
+
+    /**
+     * 结束文档：写出剩余的结束标签，缩进模式下以换行结尾，并 flush 输出
+     */
+    public void endDocument() throws IOException {
+        if (!started) {
+            throw new IllegalStateException("No root element");
+        }
+        while (depth > 0) {
+            endElement();
+        }
+        if (indent) {
+            out.append(System.lineSeparator());
+        }
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    // ---------- XrpcNode ----------
+
+    /**
+     * 写出完整文档，结果与 XrpcNodeConverter.ToXmlString 相同
+     */
+    public void write(XrpcNode root) throws IOException {
+        writeNode(root);
+        endDocument();
+    }
+
+    private void writeNode(XrpcNode node) throws IOException {
+        startElement(node.getName());
+        for (Map.Entry<String, String> entry : node.getAttributeMap().entrySet()) {
+            attribute(entry.getKey(), entry.getValue());
+        }
+        if (node.hasChildren()) {
+            for (XrpcNode child : childrenOf(node)) {
+                writeNode(child);
+            }
+        } else {
+            String content = node.getContentString();
+            if (content != null) {
+                text(content);
+            }
+        }
+        endElement();
+    }
+
+    private static XrpcNode[] childrenOf(XrpcNode node) {
+        try {
+            return node.getChildren();
+        } catch (Exception e) {
+            // hasChildren 已保证内容为子节点数组
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ---------- 内部 ----------
+
+    // 与 Transformer 相同，命名空间声明（xmlns、xmlns:*）排在其他属性之前
+    private void writeStartTag(int level) throws IOException {
+        out.append('<').append(names[level]);
+        for (int i = 0; i < attrCount; i++) {
+            if (isNamespaceDeclaration(attrNames[i])) {
+                writeAttribute(i);
+            }
+        }
+        for (int i = 0; i < attrCount; i++) {
+            if (!isNamespaceDeclaration(attrNames[i])) {
+                writeAttribute(i);
+            }
+        }
+        opened[level] = true;
+    }
+
+    private void writeAttribute(int i) throws IOException {
+        out.append(' ').append(attrNames[i]).append("=\"");
+        escape(attrValues[i], 0, ATTR_ESCAPES);
+        out.append('"');
+    }
+
+    private static boolean isNamespaceDeclaration(String name) {
+        return name.startsWith("xmlns") && (name.length() == 5 || name.charAt(5) == ':');
+    }
+
+    // 文本后面还有子元素：与 Transformer 相同，文本单独缩进一行，并去掉开头的换行
+    private void writeMixedText(int level) throws IOException {
+        int start = 0;
+        if (indent) {
+            newLine(level);
+            while (start < text.length() && text.charAt(start) == '\n') {
+                start++;
+            }
+        }
+        escape(text, start, TEXT_ESCAPES);
+        text.setLength(0);
+    }
+
+    private void newLine(int level) throws IOException {
+        out.append(System.lineSeparator());
+        int spaces = level * INDENT;
+        while (spaces > SPACES.length()) {
+            out.append(SPACES);
+            spaces -= SPACES.length();
+        }
+        out.append(SPACES, 0, spaces);
+    }
+
+    // 连续的无需转义字符整段输出；增补平面字符输出为字符引用
+    private void escape(CharSequence s, int from, String[] escapes) throws IOException {
+        int length = s.length();
+        int run = from;
+        for (int i = from; i < length; i++) {
+            char c = s.charAt(i);
+            String replacement;
+            int width = 1;
+            if (c < escapes.length) {
+                replacement = escapes[c];
+                if (replacement == null) {
+                    continue;
+                }
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                replacement = "&#" + Character.toCodePoint(c, s.charAt(i + 1)) + ";";
+                width = 2;
+            } else {
+                continue;
+            }
+            out.append(s, run, i).append(replacement);
+            i += width - 1;
+            run = i + 1;
+        }
+        out.append(s, run, length);
+    }
+
+    /**
+     * 是否为合法的 XML 名称（XML 1.0 第五版，允许冒号）。JDK 的 DOM 仍按第四版的字符表检查，
+     * 因此 KbinXml.fromBinary 与 XrpcNodeConverter.ToXml 关闭 DOM 自身的检查，统一使用本方法
+     */
+    public static boolean isName(String name) {
+        int length = name.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; ) {
+            int c = name.codePointAt(i);
+            if (!(i == 0 ? isNameStart(c) : isNameStart(c) || isNamePart(c))) {
+                return false;
+            }
+            i += Character.charCount(c);
+        }
+        return true;
+    }
+
+    private static boolean isNameStart(int c) {
+        if (c < 0x80) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':';
+        }
+        return (c >= 0xC0 && c <= 0xD6) || (c >= 0xD8 && c <= 0xF6) || (c >= 0xF8 && c <= 0x2FF)
+                || (c >= 0x370 && c <= 0x37D) || (c >= 0x37F && c <= 0x1FFF) || (c >= 0x200C && c <= 0x200D)
+                || (c >= 0x2070 && c <= 0x218F) || (c >= 0x2C00 && c <= 0x2FEF) || (c >= 0x3001 && c <= 0xD7FF)
+                || (c >= 0xF900 && c <= 0xFDCF) || (c >= 0xFDF0 && c <= 0xFFFD) || (c >= 0x10000 && c <= 0xEFFFF);
+    }
+
+    private static boolean isNamePart(int c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '.' || c == 0xB7
+                || (c >= 0x300 && c <= 0x36F) || (c >= 0x203F && c <= 0x2040);
+    }
+}
@@ -2,11 +2,17 @@ package SimpleMappingModel;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 public class XrpcNode {
     private String name = "";
     private Map<String, String> attributeMap = new HashMap<>();
+    // String、XrpcNode[] 或按 kbin 元素类型存放的原始数组（byte[]/short[]/int[]/long[]/float[]/double[]）
     private Object content;
+    // 原始数组内容的文本形式，首次请求时按当时的 __type 生成
+    private String contentText;
+    // 生成 contentText 时的 __type；__type 可经 setTypeAttr 或 getAttributeMap() 修改，不同时重新生成
+    private String contentTextType;
 
     public XrpcNode() {
 
@@ -60,18 +66,111 @@ public class XrpcNode {
         if (children == null)
             throw new NullPointerException("children is null");
         content = children;
+        contentText = null;
     }
 
     public void setContentString(String str) {
         if (str == null)
             str = "";
         content = str;
+        contentText = null;
     }
 
     public String getContentString() {
+        if (hasTypedContent()) {
+            String typeName = getTypeAttr();
+            if (contentText == null || !Objects.equals(typeName, contentTextType)) {
+                contentText = formatContent(typeName, content);
+                contentTextType = typeName;
+            }
+            return contentText;
+        }
         return (String) content;
     }
 
+    // ---------- 带类型的内容 ----------
+    // setter 同时写入 __type，数组类型须与 __type 的元素类型相符；是否为数组（__count）由调用方决定，与文本内容的规则相同
+
+    // s8/u8/bool 及其多元素类型，bin
+    public void setByteContent(String typeName, byte[] values) {
+        setTypedContent(typeName, values);
+    }
+
+    // s16/u16 及其多元素类型
+    public void setShortContent(String typeName, short[] values) {
+        setTypedContent(typeName, values);
+    }
+
+    // s32/u32/ip4/time 及其多元素类型
+    public void setIntContent(String typeName, int[] values) {
+        setTypedContent(typeName, values);
+    }
+
+    // s64/u64 及其多元素类型
+    public void setLongContent(String typeName, long[] values) {
+        setTypedContent(typeName, values);
+    }
+
+    public void setFloatContent(String typeName, float[] values) {
+        setTypedContent(typeName, values);
+    }
+
+    public void setDoubleContent(String typeName, double[] values) {
+        setTypedContent(typeName, values);
+    }
+
+    public boolean hasTypedContent() {
+        return content != null && !(content instanceof String) && !(content instanceof XrpcNode[]);
+    }
+
+    /**
+     * @return 原始内容：String、XrpcNode[] 或带类型的数组
+     */
+    public Object getContent() {
+        return content;
+    }
+
+    // 以下 getter 在内容为对应类型的数组时直接返回该数组（不复制），否则按 __type 解析文本内容；
+    // 文本按 __type 对应的元素类型解析，与 getter 的数组类型不符时抛出 IllegalStateException
+
+    public byte[] getByteContent() {
+        if (content instanceof byte[] values)
+            return values;
+        if (isBinaryType(getTypeAttr()))
+            return Hex.decode(getContentString());
+        return (byte[]) parseContent(byte[].class);
+    }
+
+    public short[] getShortContent() {
+        if (content instanceof short[] values)
+            return values;
+        return (short[]) parseContent(short[].class);
+    }
+
+    public int[] getIntContent() {
+        if (content instanceof int[] values)
+            return values;
+        return (int[]) parseContent(int[].class);
+    }
+
+    public long[] getLongContent() {
+        if (content instanceof long[] values)
+            return values;
+        return (long[]) parseContent(long[].class);
+    }
+
+    public float[] getFloatContent() {
+        if (content instanceof float[] values)
+            return values;
+        return (float[]) parseContent(float[].class);
+    }
+
+    public double[] getDoubleContent() {
+        if (content instanceof double[] values)
+            return values;
+        return (double[]) parseContent(double[].class);
+    }
+
     public XrpcNode[] getChildren() throws Exception {
         if (content instanceof XrpcNode[] array)
             return array;
@@ -116,6 +215,50 @@ public class XrpcNode {
         return Integer.parseInt(getAttributeMap().getOrDefault("__size", "0"));
     }
 
+    private void setTypedContent(String typeName, Object values) {
+        if (values == null)
+            throw new NullPointerException("values is null");
+        Class<?> expected = isBinaryType(typeName) ? byte[].class : textCodec(typeName).getArrayType();
+        if (values.getClass() != expected)
+            throw new IllegalArgumentException("__type " + typeName + " holds " + expected.getSimpleName()
+                    + ", not " + values.getClass().getSimpleName());
+        setTypeAttr(typeName);
+        content = values;
+        contentText = null;
+    }
+
+    private Object parseContent(Class<?> arrayType) {
+        TextCodec text = textCodec(getTypeAttr());
+        if (text.getArrayType() != arrayType)
+            throw new IllegalStateException("__type " + getTypeAttr() + " holds " + text.getArrayType().getSimpleName()
+                    + ", not " + arrayType.getSimpleName());
+        String str = getContentString();
+        return text.parse(str == null ? "" : str);
+    }
+
+    // 与 kbin 转 XML 时的文本形式一致（同一套 Hex/TextCodec）：数值以空格分隔，bin 为十六进制，ip4 为点分十进制，浮点保留 6 位小数
+    private static String formatContent(String typeName, Object values) {
+        if (values instanceof byte[] bytes && isBinaryType(typeName))
+            return Hex.encode(bytes);
+        StringBuilder sb = new StringBuilder();
+        textCodec(typeName).format(values, sb);
+        return sb.toString();
+    }
+
+    private static boolean isBinaryType(String typeName) {
+        Integer id = typeName == null ? null : FormatIds.XML_TYPES.get(typeName);
+        return id != null && id == FormatIds.BINARY;
+    }
+
+    // __type 对应的数值文本编解码；str/bin/void 等非数值类型没有
+    private static TextCodec textCodec(String typeName) {
+        Integer id = typeName == null ? null : FormatIds.XML_TYPES.get(typeName);
+        FormatIds.XmlFormat format = id == null ? null : FormatIds.format(id);
+        if (format == null || format.text == null)
+            throw new IllegalStateException("__type " + typeName + " has no numeric content");
+        return format.text;
+    }
+
     private void buildString(StringBuilder sb) throws Exception {
         // 打印节点名和属性
         sb.append("<").append(name);
@@ -1,5 +1,6 @@
 package SimpleMappingModel;
 
+import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
@@ -7,13 +8,9 @@ import org.w3c.dom.NodeList;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import java.io.ByteArrayInputStream;
-import java.io.StringWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -73,6 +70,8 @@ public class XrpcNodeConverter {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
         Document document = builder.newDocument();
+        // 名称按 XmlTextWriter.isName 检查，与 ToXmlString 一致
+        document.setStrictErrorChecking(false);
 
         // 转换根节点
         Element rootElement = createElement(document, xrpcNode);
@@ -83,7 +82,7 @@ public class XrpcNodeConverter {
 
     // 递归转换 Node -> Element
     private static Element createElement(Document doc, XrpcNode xrpcNode) throws Exception {
-        Element element = doc.createElement(xrpcNode.getName());
+        Element element = doc.createElement(checkName(xrpcNode.getName()));
 
 
         // 判断是 children 还是 text
@@ -102,12 +101,19 @@ public class XrpcNodeConverter {
 
         // 设置属性
         for (Map.Entry<String, String> entry : xrpcNode.getAttributeMap().entrySet()) {
-            element.setAttribute(entry.getKey(), entry.getValue());
+            element.setAttribute(checkName(entry.getKey()), entry.getValue());
         }
 
         return element;
     }
 
+    private static String checkName(String name) {
+        if (!XmlTextWriter.isName(name)) {
+            throw new DOMException(DOMException.INVALID_CHARACTER_ERR, "Invalid XML name: \"" + name + "\"");
+        }
+        return name;
+    }
+
     public static XrpcNode ConvertFromXmlString(String xml) throws Exception {
         if (xml == null || xml.isEmpty()) {
             throw new IllegalArgumentException("xml string is null or empty");
@@ -126,22 +132,25 @@ public class XrpcNodeConverter {
             throw new IllegalArgumentException("node is null");
         }
 
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.newDocument();
-
-        Element rootElement = createElement(document, xrpcNode);
-        document.appendChild(rootElement);
+        // 直接流式输出，结果与经 DOM + Transformer（缩进 4 格）相同
+        StringBuilder sb = new StringBuilder();
+        new XmlTextWriter(sb, true).write(xrpcNode);
+        return sb.toString();
+    }
 
-        // 转换成字符串
-        TransformerFactory tf = TransformerFactory.newInstance();
-        Transformer transformer = tf.newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
+    // 流式写入 out；indent 为 false 时紧凑输出（无换行与缩进）
+    public static void WriteXml(XrpcNode xrpcNode, Appendable out, boolean indent) throws IOException {
+        if (xrpcNode == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+        new XmlTextWriter(out, indent).write(xrpcNode);
+    }
 
-        StringWriter writer = new StringWriter();
-        transformer.transform(new DOMSource(document), new StreamResult(writer));
-        return writer.toString();
+    // 以 UTF-8 写入 out，结束时 flush，不关闭
+    public static void WriteXml(XrpcNode xrpcNode, OutputStream out, boolean indent) throws IOException {
+        if (xrpcNode == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+        new XmlTextWriter(out, indent).write(xrpcNode);
     }
 }
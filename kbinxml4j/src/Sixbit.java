@@ -1,82 +1,94 @@
-import java.math.BigInteger;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 public class Sixbit {
     private static final String CHARMAP = "0123456789:ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
-    private static final Map<Character, Integer> BYTEMAP = new HashMap<>();
+    // 6bit 编码 -> 字符
+    private static final char[] CHARS = CHARMAP.toCharArray();
+    // 字符 -> 6bit 编码，不在字符表中的字符为 -1
+    private static final byte[] CODES = new byte[128];
+
+    // 名称长度字段只有一个字节
+    public static final int MAX_LENGTH = 0xFF;
 
     static {
-        for (int i = 0; i < CHARMAP.length(); i++) {
-            BYTEMAP.put(CHARMAP.charAt(i), i);
+        Arrays.fill(CODES, (byte) -1);
+        for (int i = 0; i < CHARS.length; i++) {
+            CODES[CHARS[i]] = (byte) i;
         }
     }
 
     public static void packSixBit(String str, KBinXmlByteBuffer byteBuf) {
-        int[] chars = new int[str.length()];
-        for (int i = 0; i < str.length(); i++) {
-            chars[i] = BYTEMAP.get(str.charAt(i));
-        }
-
-        int padding = 8 - (str.length() * 6 % 8);
-        if (padding == 8) {
-            padding = 0;
+        int length = str.length();
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Name too long for sixbit packing: " + length);
         }
+        byteBuf.appendU8(length);
 
-        var bits = BigInteger.ZERO;
-        for (int c : chars) {
-            bits = bits.shiftLeft(6);
-            bits = bits.or(BigInteger.valueOf(c));
+        // 每次移入 6 位，凑满 8 位即输出一个字节；末尾不足一字节的部分左对齐补 0
+        long bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < length; i++) {
+            bits = (bits << 6) | code(str.charAt(i));
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                byteBuf.appendU8((int) (bits >>> bitCount));
+            }
         }
-        bits = bits.shiftLeft(padding);
-
-        int totalBits = str.length() * 6 + padding;
-        int totalBytes = totalBits / 8;
-
-        byte[] data = new byte[totalBytes];
-        for (int i = totalBytes - 1; i >= 0; i--) {
-            data[i] = (byte) (bits.and(BigInteger.valueOf(0xFF)).intValue());
-            bits = bits.shiftRight(8);
+        if (bitCount > 0) {
+            byteBuf.appendU8((int) (bits << (8 - bitCount)));
         }
-
-        byteBuf.appendBytes(new byte[]{(byte) str.length()});
-
-        byteBuf.appendBytes(data);
     }
 
-    private static long bytesToBigEndian(byte[] bytes) {
-        if (bytes == null || bytes.length < 0)
-            return -1;
-
-        ByteBuffer buffer = ByteBuffer.wrap(bytes);
-        buffer.order(ByteOrder.BIG_ENDIAN);
-        return buffer.getInt();
+    public static String unpackSixbit(KBinXmlByteBuffer byteBuf) {
+        char[] result = new char[byteBuf.peekU8()];
+        unpackSixbit(byteBuf, result);
+        return new String(result);
     }
 
-    public static String unpackSixbit(KBinXmlByteBuffer byteBuf) {
+    // 解码到调用方提供的字符数组（可复用，长度不小于名称长度，MAX_LENGTH 即可容纳任意名称），返回名称长度
+    public static int unpackSixbit(KBinXmlByteBuffer byteBuf, char[] dst) {
         int length = byteBuf.getU8();
-        int lengthBits = length * 6;
-        int lengthBytes = (lengthBits + 7) / 8;
-        int padding = 8 - (lengthBits % 8);
-        if (padding == 8) {
-            padding = 0;
+        int lengthBytes = (length * 6 + 7) / 8;
+
+        long bits = 0;
+        int bitCount = 0;
+        int n = 0;
+        for (int i = 0; i < lengthBytes; i++) {
+            bits = (bits << 8) | byteBuf.getU8();
+            bitCount += 8;
+            while (bitCount >= 6 && n < length) {
+                bitCount -= 6;
+                dst[n++] = CHARS[(int) (bits >>> bitCount) & 0b111111];
+            }
         }
+        return length;
+    }
+
+    // 同上，从字节数组解码：src[from] 为名称长度，其后为打包数据
+    public static int unpackSixbit(byte[] src, int from, char[] dst) {
+        int length = src[from] & 0xFF;
+        int lengthBytes = (length * 6 + 7) / 8;
 
-        byte[] raw = byteBuf.getBytes(lengthBytes);
-        BigInteger bits = BigInteger.ZERO;
-        for (byte b : raw) {
-            bits = bits.shiftLeft(8).or(BigInteger.valueOf(b & 0xFF));
+        long bits = 0;
+        int bitCount = 0;
+        int n = 0;
+        for (int i = 1; i <= lengthBytes; i++) {
+            bits = (bits << 8) | (src[from + i] & 0xFF);
+            bitCount += 8;
+            while (bitCount >= 6 && n < length) {
+                bitCount -= 6;
+                dst[n++] = CHARS[(int) (bits >>> bitCount) & 0b111111];
+            }
         }
-        bits = bits.shiftRight(padding);
+        return length;
+    }
 
-        char[] result = new char[length];
-        for (int i = length - 1; i >= 0; i--) {
-            int ch = bits.and(BigInteger.valueOf(0b111111)).intValue();
-            result[i] = CHARMAP.charAt(ch);
-            bits = bits.shiftRight(6);
+    private static int code(char c) {
+        int code = c < CODES.length ? CODES[c] : -1;
+        if (code < 0) {
+            throw new IllegalArgumentException("Character not representable in sixbit: '" + c + "'");
         }
-        return new String(result);
+        return code;
     }
 }
@@ -0,0 +1,207 @@
+import SimpleMappingModel.FormatIds;
+import SimpleMappingModel.XrpcNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Converts between {@link XrpcNode} trees and binary kbin directly, without an intermediate
+ * org.w3c.dom tree. The result is the same as going through {@link KbinXml} and
+ * {@link SimpleMappingModel.XrpcNodeConverter}: kbin -> DOM -> XrpcNode and XrpcNode -> DOM -> kbin.
+ */
+public class XrpcNodeKbinCodec {
+    private static final int BINARY = FormatIds.BINARY;
+    private static final int STRING = FormatIds.STRING;
+
+    public static XrpcNode ConvertFromKbin(byte[] input) {
+        if (input == null) {
+            throw new IllegalArgumentException("input is null");
+        }
+        return ConvertFromKbin(new KbinReader(input));
+    }
+
+    // memory-maps the file, heap use depends only on the resulting tree
+    public static XrpcNode ConvertFromKbin(Path file) throws IOException {
+        return ConvertFromKbin(new KbinReader(KBinXmlByteBuffer.map(file)));
+    }
+
+    // names are kept as read; reported to KbinXml's default listener
+    public static XrpcNode ConvertFromKbin(KbinReader reader) {
+        return convert(reader, new KbinProbe(KbinXml.getDefaultListener(), KbinStats.Operation.DECODE_TO_NODE), false, false);
+    }
+
+    // checkNames applies KbinXml's node and attribute name checks, renaming nodes when convertIllegalThings
+    static XrpcNode convert(KbinReader reader, KbinProbe probe, boolean checkNames, boolean convertIllegalThings) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        XrpcNode root = null;
+        int nodeCount = 0;
+        int maxDepth = 0;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            probe.lap(KbinStats.Phase.NODES);
+            if (event == KbinReader.START_NODE) {
+                nodeCount++;
+                maxDepth = Math.max(maxDepth, reader.getDepth());
+                XrpcNode node = new XrpcNode();
+                node.setName(checkNames ? KbinXml.elementName(reader.getName(), convertIllegalThings) : reader.getName());
+                if (reader.hasValue()) {
+                    node.setTypeAttr(reader.getTypeName());
+                    if (reader.isArray()) {
+                        node.setCountAttr(reader.getCount());
+                    }
+                    if (reader.getNodeType() == BINARY) {
+                        node.setSizeAttr(reader.getValueCount());
+                    }
+                }
+                stack.push(new Frame(node));
+            } else if (event == KbinReader.VALUE) {
+                setContent(stack.peek().node, reader);
+                probe.lap(KbinStats.Phase.DATA);
+            } else if (event == KbinReader.ATTRIBUTE) {
+                if (checkNames) {
+                    KbinXml.checkAttributeName(reader.getName());
+                }
+                if (!stack.isEmpty()) {
+                    stack.peek().node.getAttributeMap().put(reader.getName(), reader.getString());
+                }
+            } else if (event == KbinReader.END_NODE) {
+                Frame frame = stack.pop();
+                XrpcNode node = frame.node;
+                if (!frame.children.isEmpty()) {
+                    node.setChildren(frame.children.toArray(XrpcNode[]::new));
+                } else if (node.getContentString() == null) {
+                    node.setContentString("");
+                }
+                if (!stack.isEmpty()) {
+                    stack.peek().children.add(node);
+                } else if (root == null) {
+                    root = node;
+                }
+            }
+            probe.lap(KbinStats.Phase.DOM);
+        }
+
+        if (root == null) {
+            throw new KbinXml.KBinException("kbin document has no root node");
+        }
+        probe.format(reader.getEncoding(), reader.isCompressed());
+        probe.sections(8 + reader.getNodeSectionSize() + 4 + reader.getDataSize(), reader.getNodeSectionSize(), reader.getDataSize());
+        probe.nodes(nodeCount, maxDepth);
+        probe.end();
+        return root;
+    }
+
+    // numeric values are kept as primitive arrays; their text is only built if someone asks for it
+    private static void setContent(XrpcNode node, KbinReader reader) {
+        String type = reader.getTypeName();
+        switch (FormatIds.format(reader.getNodeType()).kind) {
+            case 'b':
+            case 'B':
+                // bin and the 8-bit types are stored as-is
+                if (reader.getNodeType() != STRING) {
+                    node.setByteContent(type, reader.getBytes());
+                    return;
+                }
+                break;
+            case 'h':
+            case 'H':
+                node.setShortContent(type, reader.getShortArray());
+                return;
+            case 'i':
+            case 'I':
+                node.setIntContent(type, reader.getIntArray());
+                return;
+            case 'q':
+            case 'Q':
+                node.setLongContent(type, reader.getLongArray());
+                return;
+            case 'f':
+                node.setFloatContent(type, reader.getFloatArray());
+                return;
+            case 'd':
+                node.setDoubleContent(type, reader.getDoubleArray());
+                return;
+        }
+        // XrpcNodeConverter keeps text trimmed
+        node.setContentString(reader.getText().trim());
+    }
+
+    public static byte[] ToKbin(XrpcNode xrpcNode) {
+        return ToKbin(xrpcNode, KbinXml.BIN_ENCODING, false);
+    }
+
+    public static byte[] ToKbin(XrpcNode xrpcNode, String encoding, boolean compressed) {
+        if (xrpcNode == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+        KbinWriter writer = new KbinWriter(encoding, compressed);
+        writeNode(xrpcNode, writer);
+        return writer.toByteArray();
+    }
+
+    // failures surface as KbinXml.KBinException from the writer
+    static void writeNode(XrpcNode xrpcNode, KbinWriter writer) {
+        Map<String, String> attributes = xrpcNode.getAttributeMap();
+
+        String text = null;
+        if (!xrpcNode.hasChildren() && !xrpcNode.hasTypedContent()) {
+            text = xrpcNode.getContentString();
+            if (text != null && text.isEmpty()) {
+                text = null;
+            }
+        }
+
+        String nodeType = attributes.get("__type");
+        if (nodeType == null || nodeType.isEmpty()) {
+            nodeType = text != null && !text.trim().isEmpty() ? "str" : "void";
+        }
+
+        int count = -1;
+        String countAttr = attributes.get("__count");
+        if (countAttr != null && !countAttr.isEmpty()) {
+            try {
+                count = Integer.parseInt(countAttr);
+            } catch (Exception ignored) {
+            }
+        }
+
+        if (xrpcNode.hasTypedContent()) {
+            writer.startNodeValues(xrpcNode.getName(), nodeType, countAttr != null && !countAttr.isEmpty(), xrpcNode.getContent());
+        } else {
+            writer.startNode(xrpcNode.getName(), nodeType, count, text);
+        }
+
+        // same attribute order as KbinXml.toBinary
+        for (Map.Entry<String, String> kv : new TreeMap<>(attributes).entrySet()) {
+            String key = kv.getKey();
+            if (!key.equals("__type") && !key.equals("__size") && !key.equals("__count")) {
+                writer.attr(key, kv.getValue());
+            }
+        }
+
+        if (xrpcNode.hasChildren()) {
+            // getContent() rather than getChildren(), which declares a checked exception for non-parents
+            for (XrpcNode child : (XrpcNode[]) xrpcNode.getContent()) {
+                writeNode(child, writer);
+            }
+        }
+
+        writer.endNode();
+    }
+
+    private static final class Frame {
+        final XrpcNode node;
+        final List<XrpcNode> children = new ArrayList<>();
+
+        Frame(XrpcNode node) {
+            this.node = node;
+        }
+    }
+}
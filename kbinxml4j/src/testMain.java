@@ -21,7 +21,8 @@ public class testMain {
         boolean convertIllegal = Arrays.asList(args).contains("--convert-illegal");
 
         try {
-            byte[] input = readAllBytes(new File(filename));
+            // mapped rather than read onto the heap, large dumps decode without a full copy
+            KBinXmlByteBuffer input = KBinXmlByteBuffer.map(new File(filename).toPath());
             KbinXml xml = new KbinXml(input, convertIllegal);
             OutputStream out = System.out;
             if (KbinXml.isBinaryXml(input)) {
@@ -31,7 +32,7 @@ public class testMain {
                 var xmlText = XrpcNodeConverter.ToXmlString(node);
                 out.write(text.getBytes(Charset.forName("UTF-8")));
             } else {
-                out.write(xml.toBinary());
+                xml.writeTo(out, KbinXml.BIN_ENCODING, false);
             }
             out.flush();
         } catch (IOException e) {
@@ -40,14 +41,4 @@ public class testMain {
             System.exit(141);
         }
     }
-
-    private static byte[] readAllBytes(File f) throws IOException {
-        try (FileInputStream fis = new FileInputStream(f)) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] buf = new byte[4096];
-            int r;
-            while ((r = fis.read(buf)) != -1) baos.write(buf, 0, r);
-            return baos.toByteArray();
-        }
-    }
 }
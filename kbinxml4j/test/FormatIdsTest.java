@@ -0,0 +1,71 @@
+import SimpleMappingModel.FormatIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FormatIdsTest {
+
+    @Test
+    void tableMatchesMaps() {
+        for (int id = -1; id <= FormatIds.END_SECTION + 1; id++) {
+            assertSame(FormatIds.XML_FORMATS.get(id), FormatIds.format(id), "id " + id);
+        }
+        assertNull(FormatIds.format(47));
+        assertNull(FormatIds.format(FormatIds.S32 | FormatIds.ARRAY_FLAG));
+
+        for (Map.Entry<String, Integer> type : FormatIds.XML_TYPES.entrySet()) {
+            FormatIds.XmlFormat format = FormatIds.format(type.getValue());
+            if (format != null && !type.getKey().equals("nodeStart")) {
+                assertEquals(type.getValue().intValue(), format.id, type.getKey());
+            }
+        }
+    }
+
+    @Test
+    void constantsMatchNames() {
+        assertEquals(FormatIds.XML_TYPES.get("nodeStart"), FormatIds.NODE_START);
+        assertEquals(FormatIds.XML_TYPES.get("void"), FormatIds.VOID);
+        assertEquals(FormatIds.XML_TYPES.get("s8"), FormatIds.S8);
+        assertEquals(FormatIds.XML_TYPES.get("u8"), FormatIds.U8);
+        assertEquals(FormatIds.XML_TYPES.get("s16"), FormatIds.S16);
+        assertEquals(FormatIds.XML_TYPES.get("u16"), FormatIds.U16);
+        assertEquals(FormatIds.XML_TYPES.get("s32"), FormatIds.S32);
+        assertEquals(FormatIds.XML_TYPES.get("u32"), FormatIds.U32);
+        assertEquals(FormatIds.XML_TYPES.get("s64"), FormatIds.S64);
+        assertEquals(FormatIds.XML_TYPES.get("u64"), FormatIds.U64);
+        assertEquals(FormatIds.XML_TYPES.get("bin"), FormatIds.BINARY);
+        assertEquals(FormatIds.XML_TYPES.get("str"), FormatIds.STRING);
+        assertEquals(FormatIds.XML_TYPES.get("attr"), FormatIds.ATTR);
+        assertEquals(FormatIds.XML_TYPES.get("bool"), FormatIds.BOOL);
+        assertEquals(FormatIds.XML_TYPES.get("nodeEnd"), FormatIds.NODE_END);
+        assertEquals(FormatIds.XML_TYPES.get("endSection"), FormatIds.END_SECTION);
+    }
+
+    @Test
+    void derivedSizes() {
+        FormatIds.XmlFormat s16x3 = FormatIds.format(FormatIds.XML_TYPES.get("3s16"));
+        assertEquals('h', s16x3.kind);
+        assertEquals(2, s16x3.elementSize);
+        assertEquals(6, s16x3.size);
+
+        FormatIds.XmlFormat vu8 = FormatIds.format(FormatIds.XML_TYPES.get("vu8"));
+        assertEquals('B', vu8.kind);
+        assertEquals(16, vu8.size);
+
+        assertEquals(8, FormatIds.format(FormatIds.XML_TYPES.get("d")).size);
+        assertEquals(-1, FormatIds.format(FormatIds.STRING).size);
+        assertEquals(-1, FormatIds.format(FormatIds.VOID).size);
+        assertEquals(0, FormatIds.format(FormatIds.ATTR).kind);
+    }
+
+    @Test
+    void mapsAreReadOnly() {
+        assertThrows(UnsupportedOperationException.class, () -> FormatIds.XML_TYPES.put("x", 1));
+        assertThrows(UnsupportedOperationException.class, () -> FormatIds.XML_FORMATS.remove(FormatIds.S8));
+    }
+}
@@ -0,0 +1,55 @@
+import SimpleMappingModel.Hex;
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HexTest {
+
+    @Test
+    void matchesHexFormat() {
+        Random random = new Random(11);
+        for (int length : new int[]{0, 1, 2, 15, 256}) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            String hex = HexFormat.of().formatHex(data);
+            assertEquals(hex, Hex.encode(data));
+            assertArrayEquals(data, Hex.decode(hex));
+            assertArrayEquals(data, Hex.decode(hex.toUpperCase()));
+        }
+    }
+
+    @Test
+    void rangesAndCallerBuffers() {
+        byte[] data = {0x12, (byte) 0xAB, (byte) 0xFF, 0x00};
+        assertEquals("abff", Hex.encode(data, 1, 2));
+
+        char[] chars = new char[6];
+        assertEquals(4, Hex.encode(data, 2, 2, chars, 1));
+        assertEquals("\0ff00\0", new String(chars));
+
+        byte[] out = new byte[3];
+        assertEquals(2, Hex.decode("xx12abyy", 2, 6, out, 1));
+        assertArrayEquals(new byte[]{0, 0x12, (byte) 0xAB}, out);
+    }
+
+    @Test
+    void trimsAndPadsOddLength() {
+        assertArrayEquals(new byte[]{0x01, 0x23}, Hex.decode(" \t0123\n"));
+        assertArrayEquals(new byte[]{0x01, 0x23}, Hex.decode("123"));
+        assertArrayEquals(new byte[]{0x0F}, Hex.decode("f"));
+        assertArrayEquals(new byte[0], Hex.decode("  "));
+    }
+
+    @Test
+    void rejectsInvalidCharacters() {
+        assertThrows(IllegalArgumentException.class, () -> Hex.decode("0g"));
+        assertThrows(IllegalArgumentException.class, () -> Hex.decode("12 34"));
+        assertThrows(IllegalArgumentException.class, () -> Hex.decode("éa"));
+        assertThrows(IllegalArgumentException.class, () -> Hex.decode("-1"));
+    }
+}
@@ -0,0 +1,212 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The VarHandle accessors against {@link ByteBuffer}, in both byte orders, and the read-only views.
+ */
+class KBinXmlByteBufferTest {
+
+    @Test
+    void appendMatchesByteBuffer() {
+        Random random = new Random(1);
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            KBinXmlByteBuffer buf = new KBinXmlByteBuffer(new byte[0], order);
+            ByteBuffer expected = ByteBuffer.allocate(1000).order(order);
+            for (int n = 0; n < 20; n++) {
+                byte b = (byte) random.nextInt();
+                short s = (short) random.nextInt();
+                int i = random.nextInt();
+                long l = random.nextLong();
+                buf.appendS8(b);
+                buf.appendU8(b & 0xFF);
+                buf.appendS16(s);
+                buf.appendU16(s & 0xFFFF);
+                buf.appendS32(i);
+                buf.appendU32(i);
+                buf.appendS64(l);
+                buf.appendU64(l);
+                expected.put(b).put(b).putShort(s).putShort(s).putInt(i).putInt(i).putLong(l).putLong(l);
+            }
+            assertEquals(expected.position(), buf.length());
+            assertArrayEquals(Arrays.copyOf(expected.array(), expected.position()), buf.toByteArray());
+        }
+    }
+
+    @Test
+    void getMatchesByteBuffer() {
+        Random random = new Random(2);
+        byte[] data = new byte[64];
+        random.nextBytes(data);
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer expected = ByteBuffer.wrap(data).order(order);
+            KBinXmlByteBuffer buf = new KBinXmlByteBuffer(data, order);
+            assertEquals(expected.get(0), buf.peekS8());
+            assertEquals(expected.get(), buf.getS8());
+            assertEquals(expected.get(1) & 0xFF, buf.getU8());
+            expected.get();
+            assertEquals(expected.getShort(2), buf.peekS16());
+            assertEquals(expected.getShort(), buf.getS16());
+            assertEquals(expected.getShort() & 0xFFFF, buf.getU16());
+            assertEquals(expected.getInt(), buf.getS32());
+            assertEquals(expected.getInt(), buf.getU32());
+            assertEquals(expected.getLong(), buf.getS64());
+            assertEquals(expected.getLong(), buf.getU64());
+            assertEquals(expected.position(), buf.getOffset());
+        }
+    }
+
+    @Test
+    void setWritesInPlace() {
+        KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+        buf.appendU32(0);
+        buf.appendU32(0);
+        buf.setU8(0xAB, 1);
+        buf.setS16((short) -2, 2);
+        buf.setS32(0x01020304, 4);
+        assertArrayEquals(new byte[]{0, (byte) 0xAB, (byte) 0xFF, (byte) 0xFE, 1, 2, 3, 4}, buf.toByteArray());
+        assertEquals(8, buf.length());
+    }
+
+    @Test
+    void typedArrays() {
+        KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+        buf.append(new Short[]{1, -1}, "h", 2);
+        buf.append(List.of(-1, 7), "I", 2);
+        buf.append(new Long[]{-2L}, "q", 1);
+        buf.setOffset(0);
+        assertArrayEquals(new short[]{1, -1}, buf.getS16Array(2));
+        assertArrayEquals(new long[]{0xFFFFFFFFL, 7}, buf.getU32Array(2));
+        assertArrayEquals(new long[]{-2}, buf.getS64Array(1));
+
+        buf.setOffset(0);
+        assertArrayEquals(new int[]{1, 0xFFFF}, (int[]) buf.get("H", 2));
+        // boxed values of another width are accepted
+        KBinXmlByteBuffer boxed = new KBinXmlByteBuffer();
+        boxed.append(Long.valueOf(5), "i", null);
+        boxed.append(Integer.valueOf(-1), "b", null);
+        assertArrayEquals(new byte[]{0, 0, 0, 5, -1}, boxed.toByteArray());
+    }
+
+    @Test
+    void floatAndDouble() {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            KBinXmlByteBuffer buf = new KBinXmlByteBuffer(new byte[0], order);
+            buf.append(1.5f, "f", null);
+            buf.append(-0.25, "d", null);
+            buf.append(new Float[]{2f, Float.NaN}, "f", 2);
+            buf.append(List.of(Math.PI, Double.MAX_VALUE), "d", 2);
+            ByteBuffer expected = ByteBuffer.allocate(36).order(order)
+                    .putFloat(1.5f).putDouble(-0.25).putFloat(2f).putFloat(Float.NaN).putDouble(Math.PI).putDouble(Double.MAX_VALUE);
+            assertArrayEquals(expected.array(), buf.toByteArray());
+
+            buf.setOffset(0);
+            assertEquals(1.5f, buf.peek("f", null));
+            assertEquals(1.5f, buf.getF32());
+            assertEquals(-0.25, buf.getF64());
+            assertArrayEquals(new float[]{2f, Float.NaN}, buf.getF32Array(2));
+            assertArrayEquals(new double[]{Math.PI, Double.MAX_VALUE}, (double[]) buf.get("d", 2));
+            assertEquals(36, buf.getOffset());
+
+            buf.set(-1f, 0, "f", null);
+            buf.setOffset(0);
+            assertEquals(-1f, buf.getF32());
+            buf.setOffset(12);
+            assertArrayEquals(new float[]{2f, Float.NaN}, (float[]) buf.get("f", 2));
+            assertArrayEquals(new double[]{Math.PI}, buf.getF64Array(1));
+        }
+    }
+
+    @Test
+    void realignAndBounds() {
+        KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+        buf.appendU8(1);
+        buf.realignWrites(4);
+        assertEquals(4, buf.length());
+        buf.setOffset(1);
+        buf.realignReads(4);
+        assertEquals(4, buf.getOffset());
+        assertThrows(IndexOutOfBoundsException.class, buf::getS32);
+    }
+
+    @Test
+    void viewsShareMemory() {
+        byte[] data = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        KBinXmlByteBuffer view = KBinXmlByteBuffer.wrap(data, 2, 6);
+        assertTrue(view.isReadOnly());
+        assertEquals(6, view.length());
+        assertEquals(0x02030405, view.getS32());
+        data[6] = 0x60;
+        assertEquals(0x6007, view.getS16());
+        assertThrows(IndexOutOfBoundsException.class, view::getS8);
+        assertThrows(ReadOnlyBufferException.class, () -> view.appendU8(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> KBinXmlByteBuffer.wrap(data, 8, 3));
+    }
+
+    @Test
+    void directAndHeapByteBuffers() {
+        byte[] data = {9, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length).put(data).flip();
+        direct.position(1);
+        ByteBuffer heap = ByteBuffer.wrap(data, 1, data.length - 1);
+        for (ByteBuffer input : new ByteBuffer[]{direct, heap}) {
+            KBinXmlByteBuffer view = KBinXmlByteBuffer.wrap(input);
+            assertEquals(1, input.position());
+            assertEquals(0x0001, view.getU16());
+            assertEquals(0x0203040506070809L, view.peekS64());
+            assertArrayEquals(new byte[]{2, 3, 4}, view.getBytes(3));
+            assertArrayEquals(Arrays.copyOfRange(data, 1, data.length), view.toByteArray());
+        }
+    }
+
+    @Test
+    void sliceAndDuplicateHaveOwnCursors() {
+        byte[] data = {0, 1, 2, 3, 4, 5, 6, 7};
+        KBinXmlByteBuffer view = KBinXmlByteBuffer.wrap(data);
+        view.setOffset(2);
+
+        KBinXmlByteBuffer dup = view.duplicate();
+        assertEquals(2, dup.getOffset());
+        assertEquals(2, dup.getU8());
+        assertEquals(3, dup.getOffset());
+        assertEquals(2, view.getOffset());
+
+        KBinXmlByteBuffer slice = view.slice(4, 3);
+        assertEquals(0, slice.getOffset());
+        assertEquals(3, slice.length());
+        assertEquals(4, slice.getU8());
+        assertArrayEquals(new byte[]{4, 5, 6}, slice.toByteArray());
+        assertEquals(0x0506, slice.getS16());
+        assertThrows(IndexOutOfBoundsException.class, slice::getS8);
+        assertThrows(IndexOutOfBoundsException.class, () -> view.slice(6, 3));
+        assertEquals(2, view.getOffset());
+    }
+
+    @Test
+    void mapsFileReadOnly(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6});
+
+        KBinXmlByteBuffer mapped = KBinXmlByteBuffer.map(file);
+        assertTrue(mapped.isReadOnly());
+        assertEquals(6, mapped.length());
+        assertEquals(0x01020304, mapped.getS32());
+        assertEquals(0x0506, mapped.getU16());
+        assertArrayEquals(new byte[]{3, 4}, mapped.slice(2, 2).toByteArray());
+        assertThrows(ReadOnlyBufferException.class, () -> mapped.appendU8(0));
+    }
+}
@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KbinBatchTest {
+
+    @Test
+    void decodesInOrder() {
+        byte[] kbin = Testcases.kbin();
+        List<KbinBatch.Result<String>> results = new KbinBatch().decodeToText(List.of(kbin, new byte[]{1, 2}, kbin));
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(1, results.get(1).getIndex());
+        assertFalse(results.get(1).isSuccess());
+        assertThrows(KbinXml.KBinException.class, results.get(1)::get);
+        assertEquals(results.get(0).get(), results.get(2).get());
+
+        KbinCodec codec = new KbinCodec(Testcases.ENCODING, Testcases.COMPRESSED, false);
+        KbinBatch batch = new KbinBatch(codec, ForkJoinPool.commonPool(), 2);
+        List<KbinBatch.Result<byte[]>> encoded = batch.encodeText(List.of(Testcases.xml()));
+        assertArrayEquals(kbin, encoded.get(0).get());
+        assertArrayEquals(kbin, batch.encodeNodes(List.of(batch.decodeNodes(List.of(kbin)).get(0).get())).get(0).get());
+    }
+
+    @Test
+    void streamsWithBoundedInFlight() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            KbinBatch batch = new KbinBatch(new KbinCodec(), executor, 3);
+            AtomicInteger pulled = new AtomicInteger();
+            List<Integer> delivered = new ArrayList<>();
+            batch.<Integer, Integer>forEach(IntStream.range(0, 50).boxed().peek(i -> pulled.incrementAndGet()), i -> {
+                Thread.sleep((i * 7) % 5);
+                return i * 2;
+            }, result -> {
+                // the three in flight, plus the next input that hasNext() has already pulled
+                assertTrue(pulled.get() - delivered.size() <= 4);
+                delivered.add(result.get());
+            });
+            assertEquals(IntStream.range(0, 50).map(i -> i * 2).boxed().toList(), delivered);
+        } finally {
+            executor.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> new KbinBatch(new KbinCodec(), Runnable::run, 0));
+    }
+
+    @Test
+    void capturesErrors() {
+        List<KbinBatch.Result<Integer>> results = new KbinBatch().convertAll(List.of(1, 2, 3), i -> {
+            if (i == 2) throw new StackOverflowError();
+            if (i == 3) throw new AssertionError("3");
+            return i;
+        });
+        assertEquals(1, results.get(0).get());
+        assertInstanceOf(StackOverflowError.class, results.get(1).getError());
+        assertInstanceOf(AssertionError.class, results.get(2).getError());
+    }
+
+    @Test
+    void abortCancelsPendingItems() {
+        // runs the first task inline and holds the rest until the batch has returned
+        ArrayDeque<Runnable> held = new ArrayDeque<>();
+        AtomicBoolean first = new AtomicBoolean(true);
+        Executor executor = task -> {
+            if (first.getAndSet(false)) {
+                task.run();
+            } else {
+                held.add(task);
+            }
+        };
+        KbinBatch batch = new KbinBatch(new KbinCodec(), executor, 4);
+
+        AtomicInteger converted = new AtomicInteger();
+        CompletionException e = assertThrows(CompletionException.class, () -> batch.convertAll(List.of(1, 2, 3), i -> {
+            if (i == 1) throw new OutOfMemoryError("abort");
+            converted.incrementAndGet();
+            return i;
+        }));
+        assertInstanceOf(OutOfMemoryError.class, e.getCause());
+
+        assertEquals(2, held.size());
+        held.forEach(Runnable::run);
+        assertEquals(0, converted.get());
+    }
+}
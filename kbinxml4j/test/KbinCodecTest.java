@@ -0,0 +1,88 @@
+import SimpleMappingModel.XrpcNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KbinCodecTest {
+    private static final KbinCodec CODEC = new KbinCodec(Testcases.ENCODING, Testcases.COMPRESSED, false);
+
+    @Test
+    void matchesKbinXml() throws Exception {
+        byte[] kbin = Testcases.kbin();
+        String text = new KbinXml(kbin).toText();
+        assertEquals(text, CODEC.decodeToText(kbin));
+        assertEquals(text, CODEC.toText(CODEC.decode(kbin)));
+        assertArrayEquals(kbin, CODEC.encode(CODEC.decode(kbin)));
+        assertArrayEquals(kbin, CODEC.encode(CODEC.decode(kbin).getDocumentElement()));
+        assertArrayEquals(kbin, CODEC.encodeText(text.getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals(kbin, CODEC.encode(CODEC.parseText(text.getBytes(StandardCharsets.UTF_8))));
+
+        XrpcNode node = CODEC.decodeNode(kbin);
+        assertArrayEquals(kbin, CODEC.encodeNode(node));
+        assertArrayEquals(XrpcNodeKbinCodec.ToKbin(node, Testcases.ENCODING, Testcases.COMPRESSED), CODEC.encodeNode(node));
+        assertThrows(IllegalArgumentException.class, () -> CODEC.encodeNode(null));
+    }
+
+    @Test
+    void encodeNodeFailuresAreKBinExceptions() {
+        XrpcNode bad = new XrpcNode("r", "s32", "abc");
+        XrpcNode child = new XrpcNode("r", "void", new XrpcNode[]{new XrpcNode("c", "3u8", "1 2")});
+        assertThrows(KbinXml.KBinException.class, () -> CODEC.encodeNode(bad));
+        assertThrows(KbinXml.KBinException.class, () -> CODEC.encodeNode(child));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(KbinXml.KBinException.class, () -> CODEC.encodeNodeTo(bad, out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void decodeNodeChecksNamesLikeDecode() throws Exception {
+        byte[] kbin = new KbinWriter(Testcases.ENCODING, false).startNode("r").s32("1a", 5).endNode().toByteArray();
+        KbinCodec strict = new KbinCodec(Testcases.ENCODING, false, false);
+        KbinCodec converting = new KbinCodec(Testcases.ENCODING, false, true);
+        assertThrows(RuntimeException.class, () -> strict.decode(kbin));
+        assertThrows(KbinXml.KBinException.class, () -> strict.decodeNode(kbin));
+        assertEquals("_1a", converting.decode(kbin).getDocumentElement().getFirstChild().getNodeName());
+        assertEquals("_1a", converting.decodeNode(kbin).getChildren()[0].getName());
+
+        byte[] attr = new KbinWriter(Testcases.ENCODING, false).startNode("r").attr("1x", "v").endNode().toByteArray();
+        assertThrows(KbinXml.KBinException.class, () -> converting.decodeNode(attr));
+        assertEquals("1x", XrpcNodeKbinCodec.ConvertFromKbin(attr).getAttributeMap().keySet().iterator().next());
+    }
+
+    @Test
+    void concurrentCallsMatchSingleThreaded() throws Exception {
+        byte[] sample = new KbinXml(Testcases.sample()).toBinary(Testcases.ENCODING, Testcases.COMPRESSED);
+        byte[][] inputs = {Testcases.kbin(), sample};
+        String[] texts = {CODEC.decodeToText(inputs[0]), CODEC.decodeToText(inputs[1])};
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int n = 0; n < 400; n++) {
+                int i = n % 2;
+                results.add(pool.submit(() -> {
+                    assertEquals(texts[i], CODEC.decodeToText(inputs[i]));
+                    assertArrayEquals(inputs[i], CODEC.encodeText(texts[i].getBytes(StandardCharsets.UTF_8)));
+                    assertArrayEquals(inputs[i], CODEC.encodeNode(CODEC.decodeNode(inputs[i])));
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import SimpleMappingModel.XrpcNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Every encode path has to reproduce testcases_out.kbin byte for byte.
+ */
+class KbinEncodeTest {
+    private final byte[] expected = Testcases.kbin();
+    private final KbinCodec codec = new KbinCodec(Testcases.ENCODING, Testcases.COMPRESSED, false);
+
+    @Test
+    void toBinaryFromText() {
+        assertArrayEquals(expected, new KbinXml(Testcases.xml()).toBinary(Testcases.ENCODING, Testcases.COMPRESSED));
+        assertArrayEquals(expected, new KbinXml(Testcases.outXml()).toBinary(Testcases.ENCODING, Testcases.COMPRESSED));
+    }
+
+    @Test
+    void toBinaryFromBinary() {
+        KbinXml xml = new KbinXml(expected);
+        assertArrayEquals(expected, xml.toBinary(Testcases.ENCODING, Testcases.COMPRESSED));
+        assertEquals(expected.length, xml.getEncodedSize(Testcases.ENCODING, Testcases.COMPRESSED));
+    }
+
+    @Test
+    void encodeText() throws Exception {
+        assertArrayEquals(expected, codec.encodeText(Testcases.xml()));
+        assertArrayEquals(expected, codec.encodeText(Testcases.outXml()));
+        assertArrayEquals(expected, codec.encodeText(expected));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = codec.encodeText(new ByteArrayInputStream(Testcases.xml()), out);
+        assertEquals(expected.length, written);
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    void streamedTextMatchesDom() {
+        // split text, leading comment/CDATA/PI values, namespaces and attributes out of order
+        String[] documents = {
+                Testcases.SAMPLE,
+                "<r xmlns:p=\"urn:p\" z=\"1\" p:a=\"2\"><a __type=\"str\">x&amp;y<![CDATA[<z>]]>w</a>"
+                        + "<b><!--c--><c __type=\"s32\">5</c></b><d><?pi data?>t</d><e __type=\"u8\"> 7 </e></r>",
+                "<r><a __type=\"2s16\" __count=\"2\">1\n2\t3 4</a><b __type=\"str\"><![CDATA[cd]]></b><v/></r>",
+        };
+        for (String document : documents) {
+            byte[] xml = document.getBytes(StandardCharsets.UTF_8);
+            for (boolean compressed : new boolean[]{true, false}) {
+                KbinCodec streaming = new KbinCodec(Testcases.ENCODING, compressed, false);
+                assertArrayEquals(new KbinXml(xml).toBinary(Testcases.ENCODING, compressed), streaming.encodeText(xml), document);
+            }
+        }
+    }
+
+    @Test
+    void encodedSizeMatchesOutput() {
+        KbinXml xml = new KbinXml(Testcases.sample());
+        for (String encoding : new String[]{Testcases.ENCODING, "UTF-8"}) {
+            for (boolean compressed : new boolean[]{true, false}) {
+                assertEquals(xml.toBinary(encoding, compressed).length, xml.getEncodedSize(encoding, compressed));
+            }
+        }
+        assertEquals(expected.length, codec.encodedSize(new KbinXml(expected).getDocument()));
+    }
+
+    @Test
+    void encodeInto() {
+        KbinXml xml = new KbinXml(Testcases.xml());
+
+        ByteBuffer heap = ByteBuffer.allocate(expected.length + 16);
+        heap.position(7);
+        assertEquals(expected.length, xml.encodeInto(heap, Testcases.ENCODING, Testcases.COMPRESSED));
+        assertEquals(7 + expected.length, heap.position());
+        assertArrayEquals(expected, slice(heap, 7, expected.length));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+        assertEquals(expected.length, codec.encodeInto(xml.getDocument(), direct));
+        assertEquals(0, direct.remaining());
+        assertArrayEquals(expected, slice(direct, 0, expected.length));
+    }
+
+    @Test
+    void encodeIntoTooSmallBuffer() {
+        KbinXml xml = new KbinXml(Testcases.xml());
+        ByteBuffer small = ByteBuffer.allocate(expected.length - 1);
+        assertThrows(BufferOverflowException.class, () -> xml.encodeInto(small, Testcases.ENCODING, Testcases.COMPRESSED));
+        assertEquals(0, small.position());
+        assertArrayEquals(new byte[small.capacity()], small.array());
+    }
+
+    @Test
+    void writeToStreamAndChannel() throws Exception {
+        KbinXml xml = new KbinXml(Testcases.xml());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expected.length, xml.writeTo(out, Testcases.ENCODING, Testcases.COMPRESSED));
+        assertArrayEquals(expected, out.toByteArray());
+
+        out.reset();
+        assertEquals(expected.length, xml.writeTo(Channels.newChannel(out), Testcases.ENCODING, Testcases.COMPRESSED));
+        assertArrayEquals(expected, out.toByteArray());
+
+        out.reset();
+        assertEquals(expected.length, codec.encodeTo(xml.getDocument(), out));
+        assertArrayEquals(expected, out.toByteArray());
+
+        out.reset();
+        assertEquals(expected.length, codec.encodeTo(xml.getDocument(), Channels.newChannel(out)));
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    void encodeNodeTo() throws Exception {
+        XrpcNode node = codec.decodeNode(expected);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expected.length, codec.encodeNodeTo(node, out));
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    void writerWriteTo() throws Exception {
+        KbinWriter writer = new KbinWriter(Testcases.ENCODING, Testcases.COMPRESSED);
+        writer.startNode("r").s32("a", 1).str("b", "text").endNode();
+        byte[] bytes = writer.toByteArray();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(bytes.length, writer.writeTo(out));
+        assertArrayEquals(bytes, out.toByteArray());
+
+        out.reset();
+        assertEquals(bytes.length, writer.writeTo(Channels.newChannel(out)));
+        assertArrayEquals(bytes, out.toByteArray());
+    }
+
+    @Test
+    void writerArrayIsNotShared() {
+        KbinWriter writer = new KbinWriter(Testcases.ENCODING, Testcases.COMPRESSED);
+        writer.startNode("r").s32("a", 1).endNode();
+        byte[] first = writer.toByteArray();
+        first[first.length - 1] ^= 1;
+        assertEquals(first.length, writer.toByteArray().length);
+        assertEquals(first[first.length - 1] ^ 1, writer.toByteArray()[first.length - 1]);
+    }
+
+    private static byte[] slice(ByteBuffer buf, int from, int length) {
+        byte[] out = new byte[length];
+        buf.duplicate().position(from).get(out);
+        return out;
+    }
+}
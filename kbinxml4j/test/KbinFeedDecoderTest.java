@@ -0,0 +1,147 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KbinFeedDecoderTest {
+
+    @Test
+    void chunksGiveReaderEvents() {
+        for (byte[] kbin : new byte[][]{Testcases.kbin(), sampleKbin()}) {
+            List<String> expected = readerEvents(kbin);
+            for (int chunkSize : new int[]{1, 3, 7, 13, 1000, kbin.length}) {
+                assertEquals(expected, feedEvents(kbin, chunkSize), "chunk size " + chunkSize);
+            }
+        }
+    }
+
+    @Test
+    void needsInputUntilNodeSectionIsComplete() {
+        byte[] kbin = sampleKbin();
+        int nodeEnd = ByteBuffer.wrap(kbin).getInt(4) + 8;
+        KbinFeedDecoder decoder = new KbinFeedDecoder();
+
+        decoder.feed(kbin, 0, nodeEnd);
+        assertEquals(KbinFeedDecoder.NEED_INPUT, decoder.next());
+        assertEquals(-1, decoder.getExpectedLength());
+        assertThrows(IllegalStateException.class, decoder::getReader);
+
+        // data size known, no values yet: the void root is reported, its attributes are held back
+        decoder.feed(kbin, nodeEnd, 4);
+        assertEquals(kbin.length, decoder.getExpectedLength());
+        assertEquals(KbinReader.START_NODE, decoder.next());
+        assertEquals("root", decoder.getReader().getName());
+        assertEquals(KbinFeedDecoder.NEED_INPUT, decoder.next());
+        assertFalse(decoder.isComplete());
+
+        decoder.feed(kbin, nodeEnd + 4, kbin.length - nodeEnd - 4);
+        assertTrue(decoder.isComplete());
+        assertEquals(KbinReader.ATTRIBUTE, decoder.next());
+        assertEquals("a", decoder.getReader().getName());
+        assertEquals("1", decoder.getReader().getString());
+    }
+
+    @Test
+    void leavesTrailingBytesInChunk() {
+        byte[] kbin = sampleKbin();
+        ByteBuffer chunk = ByteBuffer.allocate(kbin.length + 3);
+        chunk.put(kbin).put(new byte[]{1, 2, 3}).flip();
+
+        KbinFeedDecoder decoder = new KbinFeedDecoder();
+        assertEquals(kbin.length, decoder.feed(chunk));
+        assertEquals(3, chunk.remaining());
+        assertEquals(1, chunk.get());
+        assertTrue(decoder.isComplete());
+        assertEquals(0, decoder.feed(ByteBuffer.wrap(new byte[]{4})));
+        assertEquals(readerEvents(kbin), drain(decoder, new ArrayList<>()));
+    }
+
+    @Test
+    void rejectsBadSignature() {
+        byte[] kbin = sampleKbin();
+        byte[] bad = Arrays.copyOf(kbin, kbin.length);
+        bad[0] = 0x42;
+        KbinFeedDecoder decoder = new KbinFeedDecoder();
+        assertEquals(7, decoder.feed(bad, 0, 7));
+        assertThrows(KbinXml.KBinException.class, () -> decoder.feed(bad, 7, 1));
+    }
+
+    @Test
+    void rejectsDocumentAboveMaximum() {
+        byte[] kbin = sampleKbin();
+        int nodeEnd = ByteBuffer.wrap(kbin).getInt(4) + 8;
+
+        // node section too large: rejected with the header
+        KbinFeedDecoder small = new KbinFeedDecoder(nodeEnd + 3);
+        assertThrows(KbinXml.KBinException.class, () -> small.feed(kbin, 0, 8));
+
+        // data section too large: rejected with the data size field
+        KbinFeedDecoder tight = new KbinFeedDecoder(kbin.length - 1);
+        assertEquals(nodeEnd, tight.feed(kbin, 0, nodeEnd));
+        assertThrows(KbinXml.KBinException.class, () -> tight.feed(kbin, nodeEnd, 4));
+
+        KbinFeedDecoder exact = new KbinFeedDecoder(kbin.length);
+        assertEquals(kbin.length, exact.feed(kbin, 0, kbin.length));
+        assertTrue(exact.isComplete());
+
+        byte[] huge = Arrays.copyOf(kbin, 8);
+        ByteBuffer.wrap(huge).putInt(4, 0x7FFFFFF0);
+        assertThrows(KbinXml.KBinException.class, () -> new KbinFeedDecoder().feed(huge, 0, 8));
+        assertThrows(IllegalArgumentException.class, () -> new KbinFeedDecoder(11));
+    }
+
+    private static byte[] sampleKbin() {
+        return new KbinXml(Testcases.sample()).toBinary(Testcases.ENCODING, Testcases.COMPRESSED);
+    }
+
+    private static List<String> readerEvents(byte[] kbin) {
+        List<String> events = new ArrayList<>();
+        KbinReader reader = new KbinReader(kbin);
+        while (reader.hasNext()) {
+            int event = reader.next();
+            events.add(describe(reader, event));
+        }
+        return events;
+    }
+
+    private static List<String> feedEvents(byte[] kbin, int chunkSize) {
+        List<String> events = new ArrayList<>();
+        KbinFeedDecoder decoder = new KbinFeedDecoder();
+        for (int pos = 0; pos < kbin.length; pos += chunkSize) {
+            decoder.feed(kbin, pos, Math.min(chunkSize, kbin.length - pos));
+            drain(decoder, events);
+        }
+        assertTrue(decoder.isComplete());
+        assertFalse(decoder.hasNext());
+        return events;
+    }
+
+    private static List<String> drain(KbinFeedDecoder decoder, List<String> events) {
+        int event;
+        while (decoder.hasNext() && (event = decoder.next()) != KbinFeedDecoder.NEED_INPUT) {
+            events.add(describe(decoder.getReader(), event));
+        }
+        return events;
+    }
+
+    // raw value bytes rather than text, so float values compare too
+    private static String describe(KbinReader reader, int event) {
+        switch (event) {
+            case KbinReader.START_NODE:
+            case KbinReader.VALUE:
+                return event + " " + reader.getName() + " " + reader.getTypeName()
+                        + (reader.hasValue() ? " " + Arrays.toString(reader.getBytes()) : "");
+            case KbinReader.ATTRIBUTE:
+                return event + " @" + reader.getName() + "=" + reader.getString();
+            default:
+                return String.valueOf(event);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KbinJsonTest {
+    private static final String SMALL_XML = "<r a=\"1\"><u __type=\"u64\">18446744073709551615</u>"
+            + "<ip __type=\"ip4\">1.2.3.4</ip><f __type=\"2f\">1.5 -0.25</f><n __type=\"float\">NaN</n>"
+            + "<b __type=\"bin\">00ff</b><s __type=\"str\">x\"y</s><c __type=\"s16\" __count=\"2\">1 2</c><v/></r>";
+    private static final String SMALL_JSON = "{\"name\":\"r\",\"attrs\":{\"a\":\"1\"},\"children\":["
+            + "{\"name\":\"u\",\"type\":\"u64\",\"value\":18446744073709551615},"
+            + "{\"name\":\"ip\",\"type\":\"ip4\",\"value\":\"1.2.3.4\"},"
+            + "{\"name\":\"f\",\"type\":\"2f\",\"value\":[1.500000,-0.250000]},"
+            + "{\"name\":\"n\",\"type\":\"float\",\"value\":\"NaN\"},"
+            + "{\"name\":\"b\",\"type\":\"bin\",\"value\":\"00ff\"},"
+            + "{\"name\":\"s\",\"type\":\"str\",\"value\":\"x\\\"y\"},"
+            + "{\"name\":\"c\",\"type\":\"s16\",\"count\":2,\"value\":[1,2]},"
+            + "{\"name\":\"v\"}]}";
+
+    @Test
+    void writesOneObjectPerNode() throws IOException {
+        byte[] kbin = small();
+        assertEquals(SMALL_JSON, new KbinJson().toJson(kbin));
+        assertEquals(SMALL_JSON.replace("\"00ff\"", "\"AP8=\""), new KbinJson(true).toJson(kbin));
+        assertArrayEquals(kbin, new KbinJson().fromJson(new StringReader(SMALL_JSON), "UTF-8", false));
+    }
+
+    @Test
+    void roundTrips() throws IOException {
+        byte[] sample = new KbinXml(Testcases.sample()).toBinary(Testcases.ENCODING, Testcases.COMPRESSED);
+        for (byte[] kbin : new byte[][]{Testcases.kbin(), sample}) {
+            for (boolean base64 : new boolean[]{false, true}) {
+                KbinJson json = new KbinJson(base64);
+                String text = json.toJson(kbin);
+                assertArrayEquals(kbin, json.fromJson(new StringReader(text), Testcases.ENCODING, Testcases.COMPRESSED));
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                json.fromJson(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), out,
+                        Testcases.ENCODING, Testcases.COMPRESSED);
+                assertArrayEquals(kbin, out.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    void codecUsesItsSettings() throws IOException {
+        KbinCodec codec = new KbinCodec(Testcases.ENCODING, Testcases.COMPRESSED, false);
+        byte[] kbin = Testcases.kbin();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        codec.decodeToJson(kbin, json);
+        assertEquals(new KbinJson().toJson(kbin), json.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(kbin.length, codec.encodeJson(new ByteArrayInputStream(json.toByteArray()), out));
+        assertArrayEquals(kbin, out.toByteArray());
+    }
+
+    @Test
+    void readsValuesOfEveryForm() throws IOException {
+        String xml = "<r><a __type=\"bool\">1</a><b __type=\"2s32\">1 -2</b><c __type=\"3u8\" __count=\"2\">0 1 2 3 4 255</c>"
+                + "<d __type=\"f\" __count=\"2\">NaN 0.500000</d><e __type=\"u64\">18446744073709551615</e>"
+                + "<g __type=\"ip4\">10.0.0.1</g><h __type=\"double\">-1.250000</h></r>";
+        String json = "{\"name\":\"r\",\"children\":["
+                + "{\"name\":\"a\",\"type\":\"bool\",\"value\":true},"
+                + "{\"name\":\"b\",\"type\":\"2s32\",\"value\":\"1 -2\"},"
+                + "{\"name\":\"c\",\"type\":\"3u8\",\"count\":2,\"value\":[0,1,2,3,4,255]},"
+                + "{\"name\":\"d\",\"type\":\"f\",\"count\":2,\"value\":[\"NaN\",0.5]},"
+                + "{\"name\":\"e\",\"type\":\"u64\",\"value\":18446744073709551615},"
+                + "{\"name\":\"g\",\"type\":\"ip4\",\"value\":\"10.0.0.1\"},"
+                // value before type is read as text
+                + "{\"name\":\"h\",\"value\":-1.25,\"type\":\"double\"}]}";
+        byte[] expected = new KbinXml(xml.getBytes(StandardCharsets.UTF_8)).toBinary("UTF-8", false);
+        assertArrayEquals(expected, new KbinJson().fromJson(new StringReader(json), "UTF-8", false));
+
+        KbinJson reader = new KbinJson();
+        for (String bad : new String[]{"[1,2,3]", "[1,\"x\"]", "[1,null]", "256", "\"1 2 x\""}) {
+            String doc = "{\"name\":\"r\",\"type\":\"u8\",\"count\":2,\"value\":" + bad + "}";
+            assertThrows(KbinXml.KBinException.class, () -> reader.fromJson(new StringReader(doc), "UTF-8", false), bad);
+        }
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        KbinJson json = new KbinJson();
+        for (String bad : new String[]{"", "[]", "{\"name\":\"r\"", "{\"name\":\"r\",\"type\":\"s32\",\"value\":1x}",
+                "{\"name\":\"r\",\"children\":[{\"name\":\"a\",\"type\":\"nope\",\"value\":1}]}"}) {
+            assertThrows(KbinXml.KBinException.class, () -> json.fromJson(new StringReader(bad), "UTF-8", false), bad);
+        }
+    }
+
+    private static byte[] small() {
+        return new KbinXml(SMALL_XML.getBytes(StandardCharsets.UTF_8)).toBinary("UTF-8", false);
+    }
+}
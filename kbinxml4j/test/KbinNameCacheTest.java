@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KbinNameCacheTest {
+
+    @Test
+    void countsHitsAndMisses() {
+        // a charset no other test writes names in, so the counts are this test's own
+        KbinNameCache cache = KbinNameCache.shared(StandardCharsets.UTF_16LE, false);
+        assertSame(cache, KbinNameCache.shared(StandardCharsets.UTF_16LE, false));
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        byte[] first = cache.encode("counted");
+        assertSame(first, cache.encode("counted"));
+        cache.encode("counted");
+        cache.encode("other");
+        assertEquals(misses + 2, cache.getMisses());
+        assertEquals(hits + 2, cache.getHits());
+        assertArrayEquals(node("counted", StandardCharsets.UTF_16LE), first);
+    }
+
+    @Test
+    void clearsWhenFull() {
+        KbinNameCache cache = KbinNameCache.shared(StandardCharsets.UTF_16BE, false);
+        long clears = cache.getClears();
+        byte[] kept = cache.encode("n0");
+        for (int i = 1; i <= cache.getMaxEntries(); i++) {
+            cache.encode("n" + i);
+        }
+        assertEquals(clears + 1, cache.getClears());
+        assertEquals(1, cache.size());
+        // evicted, so it is encoded again into a new array with the same bytes
+        byte[] again = cache.encode("n0");
+        assertNotSame(kept, again);
+        assertArrayEquals(kept, again);
+    }
+
+    @Test
+    void sixbitMatchesPackSixBit() {
+        KbinNameCache cache = KbinNameCache.shared(null, true);
+        assertSame(cache, KbinNameCache.shared(StandardCharsets.UTF_8, true));
+        KBinXmlByteBuffer expected = new KBinXmlByteBuffer();
+        Sixbit.packSixBit("entry_1", expected);
+        assertArrayEquals(expected.toByteArray(), cache.encode("entry_1"));
+
+        long misses = cache.getMisses();
+        assertThrows(IllegalArgumentException.class, () -> cache.encode("カード"));
+        assertThrows(IllegalArgumentException.class, () -> cache.encode("カード"));
+        assertEquals(misses + 2, cache.getMisses());
+    }
+
+    @Test
+    void writerUsesSharedCache() {
+        Charset latin1 = StandardCharsets.ISO_8859_1;
+        KbinNameCache cache = KbinNameCache.shared(latin1, false);
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        byte[] kbin = new KbinWriter(latin1.name(), false)
+                .startNode("cached_root").s32("cached_leaf", 1).s32("cached_leaf", 2).endNode().toByteArray();
+        assertEquals(misses + 2, cache.getMisses());
+        assertEquals(hits + 1, cache.getHits());
+
+        KbinReader reader = new KbinReader(kbin);
+        reader.next();
+        assertEquals("cached_root", reader.getName());
+    }
+
+    private static byte[] node(String name, Charset charset) {
+        byte[] bytes = name.getBytes(charset);
+        byte[] out = new byte[bytes.length + 1];
+        out[0] = (byte) ((bytes.length - 1) | 64);
+        System.arraycopy(bytes, 0, out, 1, bytes.length);
+        return out;
+    }
+}
@@ -0,0 +1,135 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KbinNodeIndexTest {
+
+    @Test
+    void opensTestcases() {
+        byte[] kbin = Testcases.kbin();
+        KbinNodeIndex index = KbinNodeIndex.build(kbin);
+        assertTrue(index.matches(kbin));
+        assertOpensLikeReader(kbin, index);
+    }
+
+    @Test
+    void opensSample() {
+        byte[] kbin = sampleKbin();
+        KbinNodeIndex index = KbinNodeIndex.build(kbin);
+        assertOpensLikeReader(kbin, index);
+
+        assertEquals("-70000", index.open(kbin, index.first("/root/s32")).getText());
+        assertEquals("y", index.open(kbin, index.first("/root/nest/inner/@x")).getString());
+        assertNull(index.first("/root/missing"));
+    }
+
+    @Test
+    void saveAndLoad() throws Exception {
+        byte[] kbin = sampleKbin();
+        KbinNodeIndex index = KbinNodeIndex.build(kbin);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.save(out);
+
+        KbinNodeIndex loaded = KbinNodeIndex.load(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(loaded.matches(kbin));
+        assertEquals(index.size(), loaded.size());
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(index.getEntries().get(i).toString(), loaded.getEntries().get(i).toString());
+            assertEquals(index.getEntries().get(i).name, loaded.getEntries().get(i).name);
+        }
+        assertOpensLikeReader(kbin, loaded);
+    }
+
+    @Test
+    void rejectsOtherDocument() {
+        KbinNodeIndex index = KbinNodeIndex.build(sampleKbin());
+        byte[] other = Testcases.kbin();
+        KbinNodeIndex.Entry entry = index.first("/root/s32");
+        assertThrows(KbinXml.KBinException.class, () -> index.open(other, entry));
+        assertThrows(IllegalStateException.class, () -> index.open(sampleKbin(), entry).next());
+    }
+
+    @Test
+    void rejectsDocumentWithSameNodes() {
+        // same node section and length, the two strings swapped in the data section
+        byte[] built = document("x", "abcdefgh");
+        byte[] swapped = document("abcdefgh", "x");
+        assertEquals(built.length, swapped.length);
+
+        KbinNodeIndex index = KbinNodeIndex.build(built);
+        assertFalse(index.matches(swapped));
+        assertThrows(KbinXml.KBinException.class, () -> index.open(swapped, index.first("/r/b")));
+        assertEquals("abcdefgh", index.open(built, index.first("/r/b")).getText());
+    }
+
+    @Test
+    void saveAndLoadKeepNames() throws Exception {
+        byte[] kbin = document("x", "abcdefgh");
+        KbinNodeIndex index = KbinNodeIndex.build(kbin);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.save(out);
+
+        KbinNodeIndex loaded = KbinNodeIndex.load(new ByteArrayInputStream(out.toByteArray()));
+        KbinNodeIndex.Entry entry = loaded.first("/r/c\\/d");
+        assertEquals("c/d", entry.name);
+        assertEquals("slash", loaded.open(kbin, entry).getText());
+        assertEquals(index.size(), loaded.size());
+        assertEquals("@a", loaded.first("/r/\\@a").name);
+    }
+
+    private static byte[] sampleKbin() {
+        return new KbinXml(Testcases.sample()).toBinary(Testcases.ENCODING, Testcases.COMPRESSED);
+    }
+
+    // uncompressed, so the names "c/d" and "@a" are allowed
+    private static byte[] document(String a, String b) {
+        return new KbinWriter(Testcases.ENCODING, false).startNode("r")
+                .startNode("a", "str", -1, a).endNode()
+                .startNode("b", "str", -1, b).endNode()
+                .startNode("c/d", "str", -1, "slash").endNode()
+                .startNode("@a", "void", -1, null).endNode()
+                .endNode().toByteArray();
+    }
+
+    /**
+     * Walks the document with a KbinReader alongside the index entries and checks that opening each
+     * entry gives the same name, type and value bytes as the full decode, so a wrong resolved offset fails.
+     */
+    private static void assertOpensLikeReader(byte[] kbin, KbinNodeIndex index) {
+        List<KbinNodeIndex.Entry> entries = index.getEntries();
+        KbinReader reader = new KbinReader(kbin);
+        int i = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event != KbinReader.START_NODE && event != KbinReader.ATTRIBUTE) {
+                continue;
+            }
+            KbinNodeIndex.Entry entry = entries.get(i++);
+            assertEquals(reader.getName(), entry.name, entry.path);
+            if (event == KbinReader.ATTRIBUTE) {
+                assertTrue(entry.isAttribute(), entry.path);
+                assertEquals(reader.getString(), index.open(kbin, entry).getString(), entry.path);
+                continue;
+            }
+            assertEquals(reader.getTypeName(), entry.getTypeName(), entry.path);
+            assertEquals(reader.getCount(), entry.count, entry.path);
+            if (!reader.hasValue()) {
+                assertEquals(-1, entry.valueOffset, entry.path);
+                continue;
+            }
+            KbinReader opened = index.open(kbin, entry);
+            assertEquals(reader.getTypeName(), opened.getTypeName(), entry.path);
+            assertArrayEquals(reader.getBytes(), opened.getBytes(), entry.path);
+        }
+        assertEquals(entries.size(), i);
+    }
+}
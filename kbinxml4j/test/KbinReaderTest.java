@@ -0,0 +1,170 @@
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The pull parser against testcases_out.xml, the text the Python library decodes testcases_out.kbin to.
+ */
+class KbinReaderTest {
+
+    @Test
+    void eventsMatchReferenceText() throws Exception {
+        KbinReader reader = new KbinReader(Testcases.kbin());
+        assertEquals(Testcases.ENCODING, reader.getEncoding().toLowerCase());
+        assertEquals(Testcases.COMPRESSED, reader.isCompressed());
+
+        Tree root = null;
+        List<Tree> open = new ArrayList<>();
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case KbinReader.START_NODE:
+                    Tree node = new Tree(reader.getName());
+                    if (open.isEmpty()) {
+                        root = node;
+                    } else {
+                        open.get(open.size() - 1).children.add(node);
+                    }
+                    open.add(node);
+                    assertEquals(open.size(), reader.getDepth());
+                    break;
+                case KbinReader.VALUE:
+                    Tree leaf = open.get(open.size() - 1);
+                    leaf.attributes.put("__type", reader.getTypeName());
+                    if (reader.isArray()) {
+                        leaf.attributes.put("__count", String.valueOf(reader.getCount()));
+                    }
+                    leaf.text = reader.getText();
+                    break;
+                case KbinReader.ATTRIBUTE:
+                    open.get(open.size() - 1).attributes.put(reader.getName(), reader.getString());
+                    break;
+                case KbinReader.END_NODE:
+                    open.remove(open.size() - 1);
+                    break;
+                default:
+                    break;
+            }
+        }
+        assertEquals(reference(), root);
+    }
+
+    @Test
+    void typedGetters() {
+        KbinReader reader = new KbinReader(Testcases.kbin());
+        assertEquals(KbinReader.START_NODE, reader.next());
+        assertEquals("test", reader.getName());
+
+        assertEquals(KbinReader.START_NODE, reader.next());
+        assertEquals(KbinReader.VALUE, reader.next());
+        assertEquals("ip4", reader.getTypeName());
+        assertEquals(2, reader.getCount());
+        assertArrayEquals(new long[]{0x7F000001L, 0xC0A80001L}, reader.getLongArray());
+        assertEquals(KbinReader.END_NODE, reader.next());
+
+        assertEquals(KbinReader.START_NODE, reader.next());
+        assertEquals(KbinReader.VALUE, reader.next());
+        assertEquals("Hello, world!", reader.getString());
+        assertEquals(KbinReader.ATTRIBUTE, reader.next());
+        assertEquals("attr", reader.getName());
+        assertEquals("test", reader.getString());
+    }
+
+    @Test
+    void skipNodeSkipsSubtree() {
+        KbinReader reader = new KbinReader(Testcases.kbin());
+        reader.next();
+        int children = 0;
+        while (reader.next() == KbinReader.START_NODE) {
+            reader.skipNode();
+            assertEquals(KbinReader.END_NODE, reader.getEventType());
+            assertEquals(1, reader.getDepth());
+            children++;
+        }
+        assertEquals(KbinReader.END_NODE, reader.getEventType());
+        assertEquals(reference().children.size(), children);
+    }
+
+    @Test
+    void rejectsBadHeader() {
+        byte[] kbin = Testcases.kbin();
+        byte[] signature = kbin.clone();
+        signature[0] = 0x42;
+        assertThrows(KbinXml.KBinException.class, () -> new KbinReader(signature));
+        byte[] check = kbin.clone();
+        check[3] ^= 1;
+        assertThrows(KbinXml.KBinException.class, () -> new KbinReader(check));
+        assertFalse(new KbinReader(kbin).getDataSize() <= 0);
+    }
+
+    private static Tree reference() {
+        try {
+            Element root = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new ByteArrayInputStream(Testcases.outXml())).getDocumentElement();
+            return Tree.of(root);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // element name, attributes (including __type/__count), value text and children
+    private static final class Tree {
+        final String name;
+        final Map<String, String> attributes = new TreeMap<>();
+        final List<Tree> children = new ArrayList<>();
+        String text;
+
+        Tree(String name) {
+            this.name = name;
+        }
+
+        static Tree of(Element element) {
+            Tree tree = new Tree(element.getTagName());
+            NamedNodeMap attrs = element.getAttributes();
+            for (int i = 0; i < attrs.getLength(); i++) {
+                if (!attrs.item(i).getNodeName().equals("__size")) {
+                    tree.attributes.put(attrs.item(i).getNodeName(), attrs.item(i).getNodeValue());
+                }
+            }
+            for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child instanceof Element) {
+                    tree.children.add(of((Element) child));
+                }
+            }
+            if (element.hasAttribute("__type")) {
+                tree.text = element.getTextContent();
+            }
+            return tree;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Tree && toString().equals(o.toString());
+        }
+
+        @Override
+        public int hashCode() {
+            return toString().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("<").append(name).append(' ').append(attributes).append('>');
+            if (text != null) sb.append(text);
+            for (Tree child : children) sb.append('\n').append(child);
+            return sb.append("</").append(name).append('>').toString();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import SimpleMappingModel.XrpcNode;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KbinStatsTest {
+    private final byte[] kbin = Testcases.kbin();
+    private final List<KbinStats> reported = new ArrayList<>();
+    private final KbinCodec codec = new KbinCodec(Testcases.ENCODING, Testcases.COMPRESSED, false).withListener(reported::add);
+
+    @Test
+    void decodeReportsDocumentShape() {
+        codec.decode(kbin);
+        KbinStats stats = single(KbinStats.Operation.DECODE);
+
+        KbinReader reader = new KbinReader(kbin);
+        assertEquals(Testcases.ENCODING, stats.getEncoding().toLowerCase());
+        assertEquals(Testcases.COMPRESSED, stats.isCompressed());
+        assertEquals(kbin.length, stats.getDocumentSize());
+        assertEquals(reader.getNodeSectionSize(), stats.getNodeSectionSize());
+        assertEquals(reader.getDataSize(), stats.getDataSectionSize());
+        assertEquals(kbin.length, 8 + stats.getNodeSectionSize() + 4 + stats.getDataSectionSize());
+
+        int nodes = 0;
+        int depth = 0;
+        int maxDepth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == KbinReader.START_NODE) {
+                nodes++;
+                maxDepth = Math.max(maxDepth, ++depth);
+            } else if (event == KbinReader.END_NODE) {
+                depth--;
+            }
+        }
+        assertEquals(nodes, stats.getNodeCount());
+        assertEquals(maxDepth, stats.getMaxDepth());
+
+        assertTrue(stats.getTotalNanos() > 0);
+        assertEquals(0, stats.getNanos(KbinStats.Phase.LAYOUT));
+        assertEquals(0, stats.getNanos(KbinStats.Phase.WRITE));
+        assertEquals(0, stats.getNanos(KbinStats.Phase.OUTPUT));
+    }
+
+    @Test
+    void encodeReportsSameShapeAsDecode() throws Exception {
+        Document document = codec.decode(kbin);
+        KbinStats decoded = single(KbinStats.Operation.DECODE);
+
+        codec.encode(document);
+        KbinStats encoded = single(KbinStats.Operation.ENCODE);
+        assertEquals(decoded.getDocumentSize(), encoded.getDocumentSize());
+        assertEquals(decoded.getNodeSectionSize(), encoded.getNodeSectionSize());
+        assertEquals(decoded.getDataSectionSize(), encoded.getDataSectionSize());
+        assertEquals(decoded.getNodeCount(), encoded.getNodeCount());
+        assertEquals(decoded.getMaxDepth(), encoded.getMaxDepth());
+        assertEquals(0, encoded.getNanos(KbinStats.Phase.HEADER));
+        assertEquals(0, encoded.getNanos(KbinStats.Phase.DOM));
+
+        codec.encodeTo(document, new ByteArrayOutputStream());
+        assertEquals(kbin.length, single(KbinStats.Operation.ENCODE).getDocumentSize());
+    }
+
+    @Test
+    void textConversionsHaveNoSections() {
+        Document document = codec.decode(kbin);
+        reported.clear();
+        String text = codec.toText(document);
+        KbinStats toText = single(KbinStats.Operation.TO_TEXT);
+        assertEquals(-1, toText.getDocumentSize());
+        assertEquals(-1, toText.getNodeSectionSize());
+
+        codec.parseText(text.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        assertEquals(-1, single(KbinStats.Operation.FROM_TEXT).getDataSectionSize());
+    }
+
+    @Test
+    void streamingPathsReportTheirOwnOperations() throws Exception {
+        String text = codec.decodeToText(kbin);
+        KbinStats decoded = single(KbinStats.Operation.DECODE_TO_TEXT);
+        assertEquals(kbin.length, decoded.getDocumentSize());
+
+        byte[] encoded = codec.encodeText(text.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        assertEquals(encoded.length, single(KbinStats.Operation.ENCODE_FROM_TEXT).getDocumentSize());
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        codec.decodeToJson(kbin, json);
+        assertEquals(kbin.length, single(KbinStats.Operation.DECODE_TO_JSON).getDocumentSize());
+
+        codec.encodeJson(new java.io.ByteArrayInputStream(json.toByteArray()), new ByteArrayOutputStream());
+        single(KbinStats.Operation.ENCODE_FROM_JSON);
+    }
+
+    @Test
+    void nodeConversionsReportTheirOwnOperations() {
+        codec.decode(kbin);
+        KbinStats dom = single(KbinStats.Operation.DECODE);
+
+        XrpcNode node = codec.decodeNode(kbin);
+        KbinStats decoded = single(KbinStats.Operation.DECODE_TO_NODE);
+        assertEquals(kbin.length, decoded.getDocumentSize());
+        assertEquals(dom.getNodeCount(), decoded.getNodeCount());
+        assertEquals(dom.getMaxDepth(), decoded.getMaxDepth());
+
+        byte[] encoded = codec.encodeNode(node);
+        KbinStats stats = single(KbinStats.Operation.ENCODE_FROM_NODE);
+        assertEquals(encoded.length, stats.getDocumentSize());
+        assertEquals(dom.getNodeCount(), stats.getNodeCount());
+    }
+
+    @Test
+    void listenerScope() {
+        List<KbinStats> global = new ArrayList<>();
+        KbinXml.setDefaultListener(global::add);
+        try {
+            new KbinXml(kbin);
+            assertEquals(1, global.size());
+
+            KbinXml xml = new KbinXml(kbin);
+            xml.setListener(reported::add);
+            xml.toBinary(Testcases.ENCODING, Testcases.COMPRESSED);
+            assertEquals(2, global.size());
+            single(KbinStats.Operation.ENCODE);
+        } finally {
+            KbinXml.setDefaultListener(null);
+        }
+        new KbinXml(kbin);
+        assertEquals(2, global.size());
+        assertTrue(reported.isEmpty());
+    }
+
+    @Test
+    void toStringIgnoresDefaultLocale() {
+        codec.encode(codec.decode(kbin));
+        reported.remove(0);
+        KbinStats stats = single(KbinStats.Operation.ENCODE);
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        String text;
+        try {
+            text = stats.toString();
+        } finally {
+            Locale.setDefault(locale);
+        }
+        assertTrue(text.contains(" write="), text);
+        assertTrue(text.contains(" layout="), text);
+    }
+
+    // the only report since the last call, which must be for operation
+    private KbinStats single(KbinStats.Operation operation) {
+        assertEquals(1, reported.size(), reported::toString);
+        KbinStats stats = reported.remove(0);
+        assertEquals(operation, stats.getOperation());
+        return stats;
+    }
+}
@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import SimpleMappingModel.XmlTextWriter;
+import SimpleMappingModel.XrpcNode;
+import SimpleMappingModel.XrpcNodeConverter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The DOM-free text path against decoding to a DOM and serializing it.
+ */
+class KbinStreamTextTest {
+    private static final String MIXED = "<?xml version=\"1.0\"?>"
+            + "<root a=\"1\" b=\"&lt;&amp;&gt;&quot;\">"
+            + "<s8 __type=\"s8\">-5</s8><u8 __type=\"u8\">250</u8><s16 __type=\"s16\">-300</s16>"
+            + "<u16 __type=\"u16\">65535</u16><s32 __type=\"s32\">-70000</s32><u32 __type=\"u32\">4294967295</u32>"
+            + "<s64 __type=\"s64\">-1</s64><u64 __type=\"u64\">18446744073709551615</u64>"
+            + "<ip __type=\"ip4\">10.0.0.1</ip><t __type=\"time\">1234</t><b __type=\"bool\">1</b>"
+            + "<f __type=\"float\">1.5</f><d __type=\"double\">-0.0000005</d>"
+            + "<v __type=\"3s16\">1 -2 3</v><arr __type=\"u8\" __count=\"5\">1 2 3 4 255</arr>"
+            + "<fa __type=\"2f\" __count=\"2\">0.1 0.2 0.3 0.4</fa>"
+            + "<bin __type=\"bin\">00ff10</bin><empty __type=\"bin\"></empty>"
+            + "<str __type=\"str\">カード &lt;x&gt;</str><nostr __type=\"str\"/>"
+            + "<nest><inner x=\"y\"><leaf __type=\"s32\">7</leaf></inner><void/></nest>"
+            + "</root>";
+
+    @Test
+    void testcasesMatchToText() throws Exception {
+        byte[] kbin = Testcases.kbin();
+        String expected = new KbinXml(kbin).toText();
+
+        assertEquals(expected, new KbinCodec().decodeToText(kbin));
+
+        StringWriter sw = new StringWriter();
+        new KbinXml(kbin).streamText(KBinXmlByteBuffer.wrap(kbin), new XmlTextWriter(sw, true));
+        assertEquals(expected, sw.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new KbinCodec().decodeToText(kbin, out, true);
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void xrpcNodeMatchesTransformer() throws Exception {
+        XrpcNode node = XrpcNodeKbinCodec.ConvertFromKbin(Testcases.kbin());
+        String expected = new KbinXml(XrpcNodeConverter.ToXml(node)).toText();
+        assertEquals(expected, XrpcNodeConverter.ToXmlString(node));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XrpcNodeConverter.WriteXml(node, out, true);
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void compactModeHasNoIndentation() throws Exception {
+        StringWriter sw = new StringWriter();
+        new KbinCodec().decodeToText(Testcases.kbin(), sw, false);
+        String compact = sw.toString();
+        assertEquals(-1, compact.indexOf("\n    <"));
+        assertEquals(new KbinXml(Testcases.kbin()).toText().replaceAll(">\\s+<", "><").trim(), compact.replaceAll(">\\s+<", "><").trim());
+    }
+
+    @Test
+    void everyTypeMatchesToText() {
+        byte[] xml = MIXED.getBytes(StandardCharsets.UTF_8);
+        for (String encoding : new String[]{"UTF-8", "cp932", "EUC-JP"}) {
+            for (boolean compressed : new boolean[]{true, false}) {
+                byte[] kbin = new KbinXml(xml).toBinary(encoding, compressed);
+                assertEquals(new KbinXml(kbin).toText(), new KbinCodec().decodeToText(kbin), encoding + " " + compressed);
+            }
+        }
+    }
+
+    @Test
+    void uncompressedNamesMatchToText() {
+        // names the DOM only accepts with strict checking off, and one it never accepts
+        for (String name : new String[]{"カード・名", "1abc"}) {
+            KbinWriter writer = new KbinWriter("UTF-8", false);
+            writer.startNode("r").startNode(name, "s32", -1, "5").attr("カ・ド", "v").endNode().endNode();
+            byte[] kbin = writer.toByteArray();
+            for (boolean convertIllegalThings : new boolean[]{false, true}) {
+                assertEquals(domText(kbin, convertIllegalThings), streamedText(kbin, convertIllegalThings),
+                        name + " " + convertIllegalThings);
+            }
+        }
+    }
+
+    @Test
+    void xrpcNodeNamesMatchTransformer() throws Exception {
+        XrpcNode node = new XrpcNode("カード・名", "s32", "5");
+        node.getAttributeMap().put("カ・ド", "v");
+        assertEquals(new KbinXml(XrpcNodeConverter.ToXml(node)).toText(), XrpcNodeConverter.ToXmlString(node));
+    }
+
+    private static String domText(byte[] kbin, boolean convertIllegalThings) {
+        try {
+            return new KbinXml(kbin, convertIllegalThings).toText();
+        } catch (RuntimeException e) {
+            return "error";
+        }
+    }
+
+    private static String streamedText(byte[] kbin, boolean convertIllegalThings) {
+        try {
+            return new KbinCodec("UTF-8", false, convertIllegalThings).decodeToText(kbin);
+        } catch (RuntimeException e) {
+            return "error";
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class KbinStringDecoderTest {
+    private static final Charset CP932 = Charset.forName(Testcases.ENCODING);
+
+    @Test
+    void repeatedNamesHitTheCache() {
+        for (boolean compressed : new boolean[]{true, false}) {
+            KbinStringDecoder decoder = new KbinStringDecoder(CP932, compressed);
+            String first = decoder.name(name("entry", compressed));
+            assertEquals("entry", first);
+            assertEquals("other", decoder.name(name("other", compressed)));
+            assertSame(first, decoder.name(name("entry", compressed)));
+        }
+        // same bytes, other decoder: the cache is per reader
+        assertNotSame(new KbinStringDecoder(CP932, true).name(name("entry", true)),
+                new KbinStringDecoder(CP932, true).name(name("entry", true)));
+    }
+
+    @Test
+    void collidingNameEvictsSlot() {
+        KbinStringDecoder decoder = new KbinStringDecoder(CP932, true);
+        for (int i = 0; i < 100_000; i++) {
+            String cached = decoder.name(name("entry", true));
+            String candidate = decoder.name(name("n" + i, true));
+            assertEquals("n" + i, candidate);
+            String again = decoder.name(name("entry", true));
+            if (again != cached) {
+                assertEquals("entry", again);
+                // the evicting name was itself replaced, and comes back as a new instance
+                assertNotSame(candidate, decoder.name(name(candidate, true)));
+                return;
+            }
+        }
+        fail("no name shares a slot with \"entry\"");
+    }
+
+    @Test
+    void stringsMatchNewString() {
+        KbinStringDecoder decoder = new KbinStringDecoder(CP932, false);
+        for (String value : new String[]{"", "ascii", "カード・名", "mixed カ x"}) {
+            byte[] bytes = value.getBytes(CP932);
+            assertEquals(value, decoder.decode(bytes, 0, bytes.length));
+            assertEquals(value, decoder.string(nulTerminated(bytes), bytes.length + 1));
+        }
+        byte[] malformed = {'a', (byte) 0x81, 'b', (byte) 0xFF};
+        assertEquals(new String(malformed, CP932), decoder.decode(malformed, 0, malformed.length));
+        assertEquals(0, decoder.string(KBinXmlByteBuffer.wrap(new byte[0]), 0).length());
+
+        KbinStringDecoder utf8 = new KbinStringDecoder(StandardCharsets.UTF_8, false);
+        byte[] long8 = "é".repeat(300).getBytes(StandardCharsets.UTF_8);
+        assertEquals("é".repeat(300), utf8.decode(long8, 0, long8.length));
+    }
+
+    // a node-section name record: sixbit-packed, or the length byte and the encoded name
+    private static KBinXmlByteBuffer name(String name, boolean compressed) {
+        KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+        if (compressed) {
+            Sixbit.packSixBit(name, buf);
+        } else {
+            byte[] bytes = name.getBytes(CP932);
+            buf.appendU8((bytes.length - 1) | 64);
+            buf.appendBytes(bytes);
+        }
+        return KBinXmlByteBuffer.wrap(buf.toByteArray());
+    }
+
+    private static KBinXmlByteBuffer nulTerminated(byte[] bytes) {
+        byte[] out = new byte[bytes.length + 1];
+        System.arraycopy(bytes, 0, out, 0, bytes.length);
+        return KBinXmlByteBuffer.wrap(out);
+    }
+}
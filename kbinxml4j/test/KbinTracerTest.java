@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KbinTracerTest {
+    // uncompressed, so each record is its type byte, a length byte and the name
+    private static final byte[] KBIN = new KbinWriter(Testcases.ENCODING, false)
+            .startNode("r").attr("x", "yz")
+            .s32("a", 1)
+            .u8Array("b", new byte[]{1, 2, 3})
+            .endNode().toByteArray();
+
+    // data section at 0x1c: the attribute's length field, then its string
+    private static final List<String> EXPECTED = List.of(
+            "0x0008 void r",
+            "0x000b attr x data=0x0020+3",
+            "0x000e s32 a data=0x0024+4",
+            "0x0011 nodeEnd",
+            "0x0012 u8[] b data=0x002c+3",
+            "0x0015 nodeEnd",
+            "0x0016 nodeEnd",
+            "0x0017 endSection");
+
+    @Test
+    void readerReportsEveryRecord() {
+        List<String> lines = new ArrayList<>();
+        KbinReader reader = new KbinReader(KBIN);
+        reader.setTracer(KbinTracer.lines(lines::add));
+        while (reader.hasNext()) {
+            reader.next();
+        }
+        assertEquals(EXPECTED, lines);
+    }
+
+    @Test
+    void kbinXmlPassesTracerToReader() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        KbinXml xml = new KbinXml(false);
+        xml.setTracer(KbinTracer.printingTo(new PrintStream(out, true, StandardCharsets.UTF_8)));
+        xml.fromBinary(KBIN);
+        assertEquals(String.join(System.lineSeparator(), EXPECTED) + System.lineSeparator(), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodingPrintsNothingByDefault() {
+        PrintStream saved = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            new KbinXml(Testcases.kbin()).toText();
+        } finally {
+            System.setOut(saved);
+        }
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void deprecatedDebugFlagPrintsToStdout() {
+        PrintStream saved = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        KbinXml.DEBUG = true;
+        try {
+            new KbinXml(false).fromBinary(KBIN);
+        } finally {
+            KbinXml.DEBUG = false;
+            System.setOut(saved);
+        }
+        assertEquals(String.join(System.lineSeparator(), EXPECTED) + System.lineSeparator(), out.toString(StandardCharsets.UTF_8));
+    }
+}
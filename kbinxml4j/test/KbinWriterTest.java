@@ -0,0 +1,169 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KbinWriterTest {
+
+    @Test
+    void typedLeavesReadBack() {
+        for (boolean compressed : new boolean[]{true, false}) {
+            byte[] kbin = new KbinWriter("UTF-8", compressed)
+                    .startNode("root")
+                    .u8("a", 200).attr("k", "v")
+                    .s16("b", (short) -2)
+                    .s8("c", (byte) -3)
+                    .u16("d", 65535)
+                    .bool("e", true)
+                    .s32("f", -5)
+                    .u32("g", 0xFFFFFFFF)
+                    .s64("h", Long.MIN_VALUE)
+                    .u64("i", -1L)
+                    .str("j", "テキスト")
+                    .bin("k", new byte[]{1, 2, 3})
+                    .s16Array("l", new short[]{1, -1, 3})
+                    .u8Array("m", new byte[]{(byte) 255, 0})
+                    .endNode()
+                    .toByteArray();
+
+            KbinReader reader = new KbinReader(kbin);
+            assertEquals(compressed, reader.isCompressed());
+            assertEquals(KbinReader.START_NODE, reader.next());
+            assertEquals(200, leaf(reader, "a", "u8").getInt());
+            assertEquals(KbinReader.ATTRIBUTE, reader.next());
+            assertEquals("v", reader.getString());
+            assertEquals(-2, leaf(reader, "b", "s16").getInt());
+            assertEquals(-3, leaf(reader, "c", "s8").getInt());
+            assertEquals(65535, leaf(reader, "d", "u16").getInt());
+            assertEquals(1, leaf(reader, "e", "bool").getInt());
+            assertEquals(-5, leaf(reader, "f", "s32").getInt());
+            assertEquals(0xFFFFFFFFL, leaf(reader, "g", "u32").getLong());
+            assertEquals(Long.MIN_VALUE, leaf(reader, "h", "s64").getLong());
+            assertEquals(-1L, leaf(reader, "i", "u64").getLong());
+            assertEquals("テキスト", leaf(reader, "j", "str").getString());
+            assertArrayEquals(new byte[]{1, 2, 3}, leaf(reader, "k", "bin").getBytes());
+            KbinReader array = leaf(reader, "l", "s16");
+            assertEquals(3, array.getCount());
+            assertArrayEquals(new int[]{1, -1, 3}, array.getIntArray());
+            assertEquals("255 0", leaf(reader, "m", "u8").getText());
+            assertEquals(KbinReader.END_NODE, reader.next());
+            assertEquals(KbinReader.END_NODE, reader.next());
+            assertEquals(KbinReader.END_DOCUMENT, reader.next());
+        }
+    }
+
+    @Test
+    void textValuesMatchTypedWriters() {
+        byte[] typed = new KbinWriter(Testcases.ENCODING, true)
+                .startNode("root").attr("x", "1")
+                .u8("a", 7).s32("b", -9).u16("c", 3).str("d", "text").bin("e", new byte[]{(byte) 0xde, (byte) 0xad})
+                .s32Array("f", new int[]{1, 2, 3})
+                .endNode().toByteArray();
+        byte[] text = new KbinWriter(Testcases.ENCODING, true)
+                .startNode("root").attr("x", "1")
+                .startNode("a", "u8", -1, "7").endNode()
+                .startNode("b", "s32", -1, "-9").endNode()
+                .startNode("c", "u16", -1, "3").endNode()
+                .startNode("d", "str", -1, "text").endNode()
+                .startNode("e", "bin", -1, "dead").endNode()
+                .startNode("f", "s32", 3, "1 2 3").endNode()
+                .endNode().toByteArray();
+        assertArrayEquals(typed, text);
+
+        String xml = "<root x=\"1\"><a __type=\"u8\">7</a><b __type=\"s32\">-9</b><c __type=\"u16\">3</c>"
+                + "<d __type=\"str\">text</d><e __type=\"bin\">dead</e><f __type=\"s32\" __count=\"3\">1 2 3</f></root>";
+        assertArrayEquals(typed, new KbinXml(xml.getBytes(StandardCharsets.UTF_8)).toBinary(Testcases.ENCODING, true));
+    }
+
+    @Test
+    void reencodesTestcasesByteIdentically() {
+        byte[] kbin = Testcases.kbin();
+        KbinXml xml = new KbinXml(kbin);
+        assertArrayEquals(kbin, xml.toBinary(Testcases.ENCODING, Testcases.COMPRESSED));
+        assertArrayEquals(kbin, new KbinXml(xml.toText().getBytes(StandardCharsets.UTF_8))
+                .toBinary(Testcases.ENCODING, Testcases.COMPRESSED));
+    }
+
+    @Test
+    void packsBytesAndWordsIntoSharedWords() {
+        KbinWriter writer = new KbinWriter(Testcases.ENCODING, true)
+                .startNode("r").u8("a", 1).u16("b", 2).u8("c", 3).s32("d", 4).u8("e", 5).endNode();
+        // u8 a, c and e share the first word, u16 b takes the second and s32 d the third
+        assertEquals(12, writer.getDataSize());
+        byte[] kbin = writer.toByteArray();
+        KbinReader reader = new KbinReader(kbin);
+        reader.next();
+        assertEquals(1, leaf(reader, "a", "u8").getInt());
+        assertEquals(2, leaf(reader, "b", "u16").getInt());
+        assertEquals(3, leaf(reader, "c", "u8").getInt());
+        assertEquals(4, leaf(reader, "d", "s32").getInt());
+        assertEquals(5, leaf(reader, "e", "u8").getInt());
+    }
+
+    @Test
+    void rejectsMisuse() {
+        assertThrows(IllegalStateException.class, () -> new KbinWriter().endNode());
+        assertThrows(KbinXml.KBinException.class, () -> new KbinWriter().startNode("a", "nope", -1, ""));
+        KbinWriter open = new KbinWriter().startNode("a");
+        assertFalse(open.getDataSize() < 0);
+        assertThrows(IllegalStateException.class, open::toByteArray);
+    }
+
+    @Test
+    void rejectsValuesOfOtherType() {
+        KbinWriter writer = new KbinWriter().startNode("r");
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "s32", false, new long[]{1}));
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "bin", false, "00"));
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "u8", false, null));
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "str", false, new int[]{1}));
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "str", false, new StringBuilder("x")));
+        // nothing was written for the rejected nodes
+        byte[] kbin = writer.startNodeValues("a", "s32", false, new int[]{1}).endNode()
+                .startNodeValues("b", "str", false, null).endNode()
+                .endNode().toByteArray();
+        KbinReader reader = new KbinReader(kbin);
+        reader.next();
+        assertEquals(1, leaf(reader, "a", "s32").getInt());
+        assertEquals("", leaf(reader, "b", "str").getString());
+        assertEquals(KbinReader.END_NODE, reader.next());
+        assertEquals(KbinReader.END_NODE, reader.next());
+        assertEquals(KbinReader.END_DOCUMENT, reader.next());
+    }
+
+    @Test
+    void rejectsValuesOfOtherLength() {
+        KbinWriter writer = new KbinWriter().startNode("r");
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "3s32", false, new int[]{1, 2}));
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "3s32", false, new int[]{1, 2, 3, 4}));
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "3s32", true, new int[]{1, 2, 3, 4}));
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "2u8", false, new byte[]{1}));
+        assertThrows(KbinXml.KBinException.class, () -> writer.startNodeValues("a", "s16", false, new short[0]));
+        assertThrows(KbinXml.KBinException.class, () -> new KbinWriter().startNode("r").startNode("a", "3s32", -1, "1 2"));
+
+        byte[] kbin = writer.startNodeValues("a", "3s32", false, new int[]{1, 2, 3}).endNode()
+                .startNodeValues("b", "3s32", true, new int[]{4, 5, 6, 7, 8, 9}).endNode()
+                .startNodeValues("c", "2u8", false, new byte[]{10, 11}).endNode()
+                .endNode().toByteArray();
+        KbinReader reader = new KbinReader(kbin);
+        reader.next();
+        assertArrayEquals(new int[]{1, 2, 3}, leaf(reader, "a", "3s32").getIntArray());
+        assertArrayEquals(new int[]{4, 5, 6, 7, 8, 9}, leaf(reader, "b", "3s32").getIntArray());
+        assertArrayEquals(new int[]{10, 11}, leaf(reader, "c", "2u8").getIntArray());
+    }
+
+    // advances past the end of the previous node to the VALUE event of the next leaf
+    private static KbinReader leaf(KbinReader reader, String name, String type) {
+        while (reader.next() == KbinReader.END_NODE) {
+            // closing the previous leaf
+        }
+        assertEquals(KbinReader.START_NODE, reader.getEventType());
+        assertEquals(KbinReader.VALUE, reader.next());
+        assertEquals(name, reader.getName());
+        assertEquals(type, reader.getTypeName());
+        return reader;
+    }
+}
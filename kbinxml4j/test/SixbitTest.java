@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The table-driven codec against the BigInteger implementation it replaced, kept below as the reference.
+ */
+class SixbitTest {
+    private static final String CHARMAP = "0123456789:ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    @Test
+    void packMatchesBaselineForEveryLength() {
+        Random random = new Random(3);
+        for (int length = 0; length <= Sixbit.MAX_LENGTH; length++) {
+            for (int n = 0; n < 20; n++) {
+                String name = randomName(random, length);
+                KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+                Sixbit.packSixBit(name, buf);
+                assertArrayEquals(referencePack(name), buf.toByteArray(), name);
+            }
+        }
+    }
+
+    @Test
+    void unpackMatchesBaselineForEveryLength() {
+        Random random = new Random(4);
+        char[] chars = new char[Sixbit.MAX_LENGTH];
+        for (int length = 0; length <= Sixbit.MAX_LENGTH; length++) {
+            for (int n = 0; n < 20; n++) {
+                byte[] packed = referencePack(randomName(random, length));
+                String expected = referenceUnpack(packed);
+
+                assertEquals(expected, Sixbit.unpackSixbit(KBinXmlByteBuffer.wrap(packed)));
+                int count = Sixbit.unpackSixbit(KBinXmlByteBuffer.wrap(packed), chars);
+                assertEquals(expected, new String(chars, 0, count));
+                // padded, as the name sits inside the node section
+                byte[] inSection = new byte[packed.length + 3];
+                System.arraycopy(packed, 0, inSection, 1, packed.length);
+                count = Sixbit.unpackSixbit(inSection, 1, chars);
+                assertEquals(expected, new String(chars, 0, count));
+            }
+        }
+    }
+
+    @Test
+    void everyCharacterRoundTrips() {
+        KBinXmlByteBuffer buf = new KBinXmlByteBuffer();
+        Sixbit.packSixBit(CHARMAP, buf);
+        assertArrayEquals(referencePack(CHARMAP), buf.toByteArray());
+        buf.setOffset(0);
+        assertEquals(CHARMAP, Sixbit.unpackSixbit(buf));
+    }
+
+    @Test
+    void rejectsTooLongNames() {
+        String name = "a".repeat(Sixbit.MAX_LENGTH + 1);
+        assertThrows(IllegalArgumentException.class, () -> Sixbit.packSixBit(name, new KBinXmlByteBuffer()));
+    }
+
+    private static String randomName(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = CHARMAP.charAt(random.nextInt(CHARMAP.length()));
+        }
+        return new String(chars);
+    }
+
+    // ---------- baseline BigInteger codec ----------
+
+    private static byte[] referencePack(String str) {
+        int padding = 8 - (str.length() * 6 % 8);
+        if (padding == 8) {
+            padding = 0;
+        }
+        BigInteger bits = BigInteger.ZERO;
+        for (int i = 0; i < str.length(); i++) {
+            bits = bits.shiftLeft(6).or(BigInteger.valueOf(CHARMAP.indexOf(str.charAt(i))));
+        }
+        bits = bits.shiftLeft(padding);
+
+        int totalBytes = (str.length() * 6 + padding) / 8;
+        byte[] out = new byte[1 + totalBytes];
+        out[0] = (byte) str.length();
+        for (int i = totalBytes - 1; i >= 0; i--) {
+            out[1 + i] = (byte) bits.and(BigInteger.valueOf(0xFF)).intValue();
+            bits = bits.shiftRight(8);
+        }
+        return out;
+    }
+
+    private static String referenceUnpack(byte[] packed) {
+        int length = packed[0] & 0xFF;
+        int lengthBits = length * 6;
+        int lengthBytes = (lengthBits + 7) / 8;
+        int padding = 8 - (lengthBits % 8);
+        if (padding == 8) {
+            padding = 0;
+        }
+        BigInteger bits = BigInteger.ZERO;
+        for (int i = 0; i < lengthBytes; i++) {
+            bits = bits.shiftLeft(8).or(BigInteger.valueOf(packed[1 + i] & 0xFF));
+        }
+        bits = bits.shiftRight(padding);
+
+        char[] result = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            result[i] = CHARMAP.charAt(bits.and(BigInteger.valueOf(0b111111)).intValue());
+            bits = bits.shiftRight(6);
+        }
+        return new String(result);
+    }
+}
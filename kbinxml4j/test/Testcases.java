@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The repository's test case: testcases.xml (Shift-JIS source), testcases_out.kbin (its cp932,
+ * compressed encoding) and testcases_out.xml (the decoded text, as written by the Python library).
+ */
+final class Testcases {
+    static final String ENCODING = "cp932";
+    static final boolean COMPRESSED = true;
+
+    /**
+     * A small document with every integer type, strings, binary, attributes and nesting.
+     */
+    static final String SAMPLE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<root a=\"1\" b=\"&lt;&amp;&gt;&quot;\">"
+            + "<s8 __type=\"s8\">-5</s8><u8 __type=\"u8\">250</u8><s16 __type=\"s16\">-300</s16>"
+            + "<u16 __type=\"u16\">65535</u16><s32 __type=\"s32\">-70000</s32><u32 __type=\"u32\">4294967295</u32>"
+            + "<s64 __type=\"s64\">-1</s64><u64 __type=\"u64\">18446744073709551615</u64>"
+            + "<ip __type=\"ip4\">10.0.0.1</ip><t __type=\"time\">1234</t><b __type=\"bool\">1</b>"
+            + "<v __type=\"3s16\">1 -2 3</v><arr __type=\"u8\" __count=\"5\">1 2 3 4 255</arr>"
+            + "<ints __type=\"2s32\" __count=\"2\">1 -2 3 -4</ints>"
+            + "<bin __type=\"bin\">00ff10</bin>"
+            + "<str __type=\"str\">カード &lt;x&gt;</str><nostr __type=\"str\"/>"
+            + "<nest><inner x=\"y\"><leaf __type=\"s32\">7</leaf></inner><void/></nest>"
+            + "</root>";
+
+    private Testcases() {
+    }
+
+    static byte[] sample() {
+        return SAMPLE.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] kbin() {
+        return read("testcases_out.kbin");
+    }
+
+    static byte[] xml() {
+        return read("testcases.xml");
+    }
+
+    static byte[] outXml() {
+        return read("testcases_out.xml");
+    }
+
+    private static byte[] read(String name) {
+        try (InputStream in = Testcases.class.getResourceAsStream("/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException(name + " is not on the test classpath");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import SimpleMappingModel.FormatIds;
+import SimpleMappingModel.TextCodec;
+import SimpleMappingModel.XrpcNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The hand-rolled formatting against {@code String.format(Locale.ROOT, ...)}, which the baseline used.
+ */
+class TextCodecTest {
+
+    @Test
+    void fixed6MatchesFormatForFloats() {
+        Random random = new Random(1);
+        for (int n = 0; n < 50_000; n++) {
+            float value = Float.intBitsToFloat(random.nextInt());
+            assertFixed6(value);
+        }
+        for (int n = 0; n < 50_000; n++) {
+            // short decimals, where the 7th fraction digit decides the rounding
+            assertFixed6((float) (random.nextInt(20_000_001) - 10_000_000) / 1e7f);
+        }
+    }
+
+    @Test
+    void fixed6MatchesFormatForDoubles() {
+        Random random = new Random(2);
+        for (int n = 0; n < 50_000; n++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            assertFixed6(value);
+        }
+        for (int n = 0; n < 50_000; n++) {
+            assertFixed6((random.nextLong() % 100_000_000_000L) / Math.pow(10, random.nextInt(12)));
+        }
+    }
+
+    @Test
+    void fixed6EdgeCases() {
+        double[] values = {
+                0.0, -0.0, 1.0, -1.0, 0.5, 0.0000005, -0.0000005, 0.0000004, 0.9999995, -0.9999995,
+                9.9999995, 999999.9999995, 1e-7, -1e-7, 1e7, 1e21, 1e300, -1e300, Double.MIN_VALUE,
+                -Double.MIN_VALUE, Double.MAX_VALUE, Float.MAX_VALUE, Float.MIN_VALUE, 0.1f, 1.1f, 3.14159265f,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        for (double value : values) {
+            assertFixed6(value);
+        }
+    }
+
+    @Test
+    void integersMatchFormat() {
+        Random random = new Random(5);
+        for (String name : new String[]{"s8", "u8", "s16", "u16", "s32", "u32", "s64", "u64"}) {
+            TextCodec text = codec(name);
+            for (int n = 0; n < 10_000; n++) {
+                long raw = random.nextLong();
+                StringBuilder out = new StringBuilder();
+                text.appendInteger(raw, out);
+                assertEquals(expectedInteger(name, raw), out.toString(), name);
+            }
+            for (long raw : new long[]{0, -1, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE, 0x80, 0x8000}) {
+                StringBuilder out = new StringBuilder();
+                text.appendInteger(raw, out);
+                assertEquals(expectedInteger(name, raw), out.toString(), name);
+            }
+        }
+    }
+
+    @Test
+    void ip4() {
+        TextCodec text = codec("ip4");
+        assertEquals("192.168.0.255", text.formatValue(0xC0A800FFL));
+        assertArrayEquals(new int[]{0xC0A800FF, 0x7F000001}, (int[]) text.parse("192.168.0.255 127.0.0.1"));
+    }
+
+    @Test
+    void parseRoundTrips() {
+        assertArrayEquals(new byte[]{-1, 0, -128}, (byte[]) codec("u8").parse(" 255 0\n128 "));
+        assertArrayEquals(new short[]{-1, 32767}, (short[]) codec("2s16").parse("-1 32767"));
+        assertArrayEquals(new long[]{-1, 1}, (long[]) codec("u64").parse("18446744073709551615 1"));
+        assertArrayEquals(new float[]{1.5f, -0.25f}, (float[]) codec("2f").parse("1.500000 -0.250000"));
+        assertEquals(0, ((int[]) codec("s32").parse("  ")).length);
+
+        TextCodec text = codec("4d");
+        double[] values = {1.25, -3.5, 0, 1e6};
+        StringBuilder out = new StringBuilder();
+        text.format(values, out);
+        assertEquals("1.250000 -3.500000 0.000000 1000000.000000", out.toString());
+        assertArrayEquals(values, (double[]) text.parse(out));
+
+        assertThrows(NumberFormatException.class, () -> codec("s32").parse("1 x"));
+        assertThrows(IllegalArgumentException.class, () -> codec("s32").format(new long[]{1}, new StringBuilder()));
+    }
+
+    @Test
+    void xrpcNodeContentIgnoresDefaultLocale() {
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            XrpcNode node = new XrpcNode("f", "2f");
+            node.setFloatContent("2f", new float[]{1.5f, -2.25f});
+            assertEquals("1.500000 -2.250000", node.getContentString());
+
+            XrpcNode parsed = new XrpcNode("f", "2f", "1.500000 -2.250000");
+            assertArrayEquals(new float[]{1.5f, -2.25f}, parsed.getFloatContent());
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    private static void assertFixed6(double value) {
+        StringBuilder out = new StringBuilder();
+        TextCodec.appendFixed6(value, out);
+        assertEquals(String.format(Locale.ROOT, "%.6f", value), out.toString(), () -> Double.toString(value));
+    }
+
+    private static TextCodec codec(String name) {
+        return FormatIds.XML_FORMATS.get(FormatIds.XML_TYPES.get(name)).text;
+    }
+
+    private static String expectedInteger(String name, long raw) {
+        switch (name) {
+            case "s8":
+                return String.format(Locale.ROOT, "%d", (byte) raw);
+            case "u8":
+                return String.format(Locale.ROOT, "%d", raw & 0xFF);
+            case "s16":
+                return String.format(Locale.ROOT, "%d", (short) raw);
+            case "u16":
+                return String.format(Locale.ROOT, "%d", raw & 0xFFFF);
+            case "s32":
+                return String.format(Locale.ROOT, "%d", (int) raw);
+            case "u32":
+                return String.format(Locale.ROOT, "%d", raw & 0xFFFFFFFFL);
+            case "s64":
+                return String.format(Locale.ROOT, "%d", raw);
+            default:
+                return String.format(Locale.ROOT, "%s", Long.toUnsignedString(raw));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import SimpleMappingModel.XrpcNode;
+import SimpleMappingModel.XrpcNodeConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The direct codec against the DOM path it replaces: kbin -> DOM -> XrpcNode and XrpcNode -> DOM -> kbin.
+ */
+class XrpcNodeKbinCodecTest {
+
+    @Test
+    void decodeMatchesDomPath() {
+        for (byte[] kbin : samples()) {
+            XrpcNode direct = XrpcNodeKbinCodec.ConvertFromKbin(kbin);
+            XrpcNode viaDom = XrpcNodeConverter.ConvertFromXml(new KbinXml(kbin).getDocument());
+            assertEquals(viaDom.toString(), direct.toString());
+        }
+    }
+
+    @Test
+    void encodeMatchesDomPath() throws Exception {
+        for (byte[] kbin : samples()) {
+            KbinReader header = new KbinReader(kbin);
+            XrpcNode node = XrpcNodeKbinCodec.ConvertFromKbin(kbin);
+            byte[] direct = XrpcNodeKbinCodec.ToKbin(node, header.getEncoding(), header.isCompressed());
+            byte[] viaDom = new KbinXml(XrpcNodeConverter.ToXml(node)).toBinary(header.getEncoding(), header.isCompressed());
+            assertArrayEquals(viaDom, direct);
+            assertArrayEquals(kbin, direct);
+        }
+    }
+
+    @Test
+    void decodesMappedFile(@TempDir Path dir) throws Exception {
+        for (byte[] kbin : samples()) {
+            Path file = Files.write(dir.resolve("sample.kbin"), kbin);
+            XrpcNode mapped = XrpcNodeKbinCodec.ConvertFromKbin(file);
+            assertEquals(XrpcNodeKbinCodec.ConvertFromKbin(kbin).toString(), mapped.toString());
+            assertEquals(new KbinXml(kbin).toText(), new KbinXml(file).toText());
+        }
+    }
+
+    @Test
+    void rejectsEmptyInput() {
+        assertThrows(IllegalArgumentException.class, () -> XrpcNodeKbinCodec.ConvertFromKbin((byte[]) null));
+        assertThrows(IllegalArgumentException.class, () -> XrpcNodeKbinCodec.ToKbin(null));
+        byte[] empty = new KbinWriter().toByteArray();
+        assertThrows(KbinXml.KBinException.class, () -> XrpcNodeKbinCodec.ConvertFromKbin(empty));
+    }
+
+    private static byte[][] samples() {
+        KbinXml xml = new KbinXml(Testcases.sample());
+        return new byte[][]{
+                xml.toBinary(Testcases.ENCODING, true),
+                xml.toBinary(Testcases.ENCODING, false),
+                xml.toBinary("UTF-8", true),
+        };
+    }
+}
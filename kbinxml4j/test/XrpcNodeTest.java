@@ -0,0 +1,125 @@
+import SimpleMappingModel.XrpcNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XrpcNodeTest {
+
+    @Test
+    void typedContentFormatsLikeXml() {
+        XrpcNode node = new XrpcNode();
+        node.setIntContent("u32", new int[]{-1});
+        assertEquals("u32", node.getTypeAttr());
+        assertTrue(node.hasTypedContent());
+        assertEquals("4294967295", node.getContentString());
+
+        node.setIntContent("ip4", new int[]{0x7F000001});
+        assertEquals("127.0.0.1", node.getContentString());
+        node.setByteContent("bin", new byte[]{0, (byte) 0xFF, 0x10});
+        assertEquals("00ff10", node.getContentString());
+        node.setByteContent("3u8", new byte[]{1, (byte) 200, 3});
+        assertEquals("1 200 3", node.getContentString());
+        node.setShortContent("s16", new short[]{-300, 7});
+        assertEquals("-300 7", node.getContentString());
+        node.setLongContent("u64", new long[]{-1L});
+        assertEquals("18446744073709551615", node.getContentString());
+        node.setFloatContent("2f", new float[]{1.5f, -2f});
+        assertEquals("1.500000 -2.000000", node.getContentString());
+
+        node.setContentString("text");
+        assertFalse(node.hasTypedContent());
+        assertEquals("text", node.getContentString());
+    }
+
+    @Test
+    void contentTextFollowsTypeChanges() {
+        XrpcNode node = new XrpcNode();
+        node.setIntContent("s32", new int[]{-1});
+        assertEquals("-1", node.getContentString());
+        node.setTypeAttr("u32");
+        assertEquals("4294967295", node.getContentString());
+        node.getAttributeMap().put("__type", "s32");
+        assertEquals("-1", node.getContentString());
+    }
+
+    @Test
+    void gettersParseTextContent() {
+        assertArrayEquals(new short[]{1, -2, 3}, new XrpcNode("v", "3s16", "1 -2 3").getShortContent());
+        assertArrayEquals(new int[]{-1}, new XrpcNode("v", "u32", "4294967295").getIntContent());
+        assertArrayEquals(new int[]{0x0A000001}, new XrpcNode("v", "ip4", "10.0.0.1").getIntContent());
+        assertArrayEquals(new long[]{-1L}, new XrpcNode("v", "u64", "18446744073709551615").getLongContent());
+        assertArrayEquals(new byte[]{0, (byte) 0xFF, 0x10}, new XrpcNode("v", "bin", "00ff10").getByteContent());
+        assertArrayEquals(new byte[]{(byte) 250}, new XrpcNode("v", "u8", " 250 ").getByteContent());
+        assertArrayEquals(new double[]{0.5}, new XrpcNode("v", "d", "0.500000").getDoubleContent());
+        assertEquals(0, new XrpcNode("v", "s32", "").getIntContent().length);
+
+        int[] values = {1, 2};
+        XrpcNode typed = new XrpcNode();
+        typed.setIntContent("2s32", values);
+        assertSame(values, typed.getIntContent());
+    }
+
+    @Test
+    void rejectsArrayOfOtherElementType() {
+        XrpcNode node = new XrpcNode();
+        assertThrows(IllegalArgumentException.class, () -> node.setShortContent("s32", new short[]{1}));
+        assertThrows(IllegalArgumentException.class, () -> node.setIntContent("float", new int[]{1}));
+        assertThrows(IllegalStateException.class, () -> new XrpcNode("v", "s16", "1 2").getIntContent());
+        assertThrows(IllegalStateException.class, () -> new XrpcNode("v", "str", "x").getLongContent());
+    }
+
+    @Test
+    void typedContentEncodesLikeText() throws Exception {
+        XrpcNode typed = sample(true);
+        XrpcNode text = sample(false);
+        assertEquals(text.toString(), typed.toString());
+        byte[] kbin = XrpcNodeKbinCodec.ToKbin(text, Testcases.ENCODING, Testcases.COMPRESSED);
+        assertArrayEquals(kbin, XrpcNodeKbinCodec.ToKbin(typed, Testcases.ENCODING, Testcases.COMPRESSED));
+
+        XrpcNode decoded = XrpcNodeKbinCodec.ConvertFromKbin(kbin);
+        XrpcNode[] children = decoded.getChildren();
+        assertArrayEquals(new int[]{-1, 5}, (int[]) children[0].getContent());
+        assertArrayEquals(new short[]{1, -2, 3}, (short[]) children[1].getContent());
+        assertArrayEquals(new byte[]{0, (byte) 0xFF}, (byte[]) children[2].getContent());
+        assertEquals(text.toString(), decoded.toString());
+    }
+
+    @Test
+    void floatContentRoundTrips() throws Exception {
+        XrpcNode root = new XrpcNode("root", null, new XrpcNode[]{new XrpcNode(), new XrpcNode()});
+        root.getAttributeMap().remove("__type");
+        XrpcNode[] children = root.getChildren();
+        children[0].setName("f");
+        children[0].setFloatContent("2f", new float[]{1.5f, -0.25f});
+        children[1].setName("d");
+        children[1].setDoubleContent("d", new double[]{Math.PI});
+
+        XrpcNode decoded = XrpcNodeKbinCodec.ConvertFromKbin(XrpcNodeKbinCodec.ToKbin(root, Testcases.ENCODING, Testcases.COMPRESSED));
+        assertArrayEquals(new float[]{1.5f, -0.25f}, decoded.getChildren()[0].getFloatContent());
+        assertArrayEquals(new double[]{Math.PI}, decoded.getChildren()[1].getDoubleContent());
+    }
+
+    private static XrpcNode sample(boolean typed) {
+        XrpcNode ints = new XrpcNode("ints", "s32");
+        ints.setCountAttr(2);
+        XrpcNode shorts = new XrpcNode("v", "3s16");
+        XrpcNode bin = new XrpcNode("bin", "bin");
+        if (typed) {
+            ints.setIntContent("s32", new int[]{-1, 5});
+            shorts.setShortContent("3s16", new short[]{1, -2, 3});
+            bin.setByteContent("bin", new byte[]{0, (byte) 0xFF});
+        } else {
+            ints.setContentString("-1 5");
+            shorts.setContentString("1 -2 3");
+            bin.setContentString("00ff");
+        }
+        XrpcNode root = new XrpcNode("root", null, new XrpcNode[]{ints, shorts, bin});
+        root.getAttributeMap().remove("__type");
+        return root;
+    }
+}